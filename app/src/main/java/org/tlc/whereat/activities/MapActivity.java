@@ -31,6 +31,11 @@ import org.tlc.whereat.modules.pubsub.receivers.MapActivityReceivers;
 import org.tlc.whereat.modules.db.LocationDao;
 import org.tlc.whereat.model.UserLocation;
 
+import java.util.List;
+
+import rx.android.schedulers.AndroidSchedulers;
+import rx.subscriptions.CompositeSubscription;
+
 
 public class MapActivity extends AppCompatActivity {
 
@@ -39,6 +44,7 @@ public class MapActivity extends AppCompatActivity {
     protected LocationDao mLocDao;
     protected Mapper mMapper;
     protected MenuHandler mMenu;
+    protected CompositeSubscription mStreams = new CompositeSubscription();
     protected boolean mRunning;
 
     // LIFE CYCLE METHODS
@@ -66,7 +72,9 @@ public class MapActivity extends AppCompatActivity {
         mReceivers.register();
 
         if(!mRunning) run();
-        else mMapper.refresh(mLocDao.getAllSince(mMapper.lastPing()));
+        else mStreams.add(mMapper.refresh(mLocDao
+            .streamAllSince(mMapper.lastPing())
+            .observeOn(AndroidSchedulers.mainThread())));
     }
 
     @Override
@@ -74,13 +82,15 @@ public class MapActivity extends AppCompatActivity {
         super.onPause();
         mLocPubMgr.unbind();
         mReceivers.unregister();
+        mStreams.clear(); // stop plotting into a map nobody can see
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        mStreams.clear();
         mMapper.clear();
-        mLocDao.disconnect();
+        LocationDao.fire(mLocDao.disconnectAsync(), "disconnecting from DB");
         mLocPubMgr.stop();
     }
 
@@ -102,22 +112,31 @@ public class MapActivity extends AppCompatActivity {
         mMapper.record(ul);
     }
 
+    public void mapAll(List<UserLocation> uls){
+        mMapper.recordAll(uls);
+    }
+
+    public void unmap(String id){
+        mMapper.remove(id);
+    }
+
     public void forgetSince(long time) {
         mMapper.forgetSince(time);
-        mLocDao.forgetSince(time);
+        LocationDao.fire(mLocDao.forgetSinceAsync(time), "forgetting locations");
     }
 
     // HELPER METHODS
 
     protected void run(){
         mLocPubMgr.start();
-        mLocDao.connect();
-        mMapper.render(mLocDao.getAll());
+        mStreams.add(mMapper.render(mLocDao.connectAsync()
+            .flatMap(LocationDao::streamAll)
+            .observeOn(AndroidSchedulers.mainThread())));
         mRunning = true;
     }
 
     protected void refresh(){
-        mLocDao.clear();
+        LocationDao.fire(mLocDao.clearAsync(), "clearing locations");
         mMapper.clear();
         mLocPubMgr.ping();
     }
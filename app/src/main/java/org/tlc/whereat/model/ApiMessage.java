@@ -17,8 +17,13 @@
 
 package org.tlc.whereat.model;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * Author: @aguestuser
@@ -45,11 +50,40 @@ public class ApiMessage {
     // CONVERTERS
 
     public String toJson() {
-        return new Gson().toJson(this);
+        return Json.GSON.toJson(this);
     }
 
     public static ApiMessage fromJson(String json){
-        return new Gson().fromJson(json, ApiMessage.class);
+        return Json.GSON.fromJson(json, ApiMessage.class);
+    }
+
+    // JSON ADAPTER
+
+    static class JsonAdapter extends TypeAdapter<ApiMessage> {
+
+        @Override
+        public void write(JsonWriter out, ApiMessage msg) throws IOException {
+            if (msg == null) { out.nullValue(); return; }
+            out.beginObject();
+            if (msg.mMsg != null) out.name("msg").value(msg.mMsg);
+            out.endObject();
+        }
+
+        @Override
+        public ApiMessage read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) { in.nextNull(); return null; }
+            String msg = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) { in.skipValue(); continue; }
+                if (name.equals("msg")) msg = in.nextString();
+                else in.skipValue();
+            }
+            in.endObject();
+            return new ApiMessage(msg);
+        }
     }
 
     @Override
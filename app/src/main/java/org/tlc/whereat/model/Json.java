@@ -0,0 +1,43 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * The one Gson the app uses. Building a Gson is expensive (it reflects over every class it meets
+ * and caches the resulting adapters), so it is built once, with hand-written streaming adapters
+ * for the models we (de)serialize on every update.
+ */
+
+public class Json {
+
+    public static final Type LOCATION_LIST = new TypeToken<List<UserLocation>>(){}.getType();
+
+    public static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(UserLocation.class, new UserLocation.JsonAdapter())
+        .registerTypeAdapter(UserLocationTimestamped.class, new UserLocationTimestamped.JsonAdapter())
+        .registerTypeAdapter(ApiMessage.class, new ApiMessage.JsonAdapter())
+        .create();
+
+    private Json(){}
+}
@@ -0,0 +1,126 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.model;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Response to a sync request: the locations added, moved and removed since the request's sync
+ * token, and the token to send next time (so the following response only has what changed since)
+ */
+
+public class LocationDelta {
+
+    @SerializedName("token") private String mToken;
+    @SerializedName("added") private List<UserLocation> mAdded;
+    @SerializedName("moved") private List<UserLocation> mMoved;
+    @SerializedName("removed") private List<String> mRemoved;
+
+    // CONSTRUCTORS
+
+    public static LocationDelta of(String token, List<UserLocation> added, List<UserLocation> moved, List<String> removed){
+        return new LocationDelta(token, added, moved, removed);
+    }
+
+    private LocationDelta(String token, List<UserLocation> added, List<UserLocation> moved, List<String> removed){
+        mToken = token;
+        mAdded = added;
+        mMoved = moved;
+        mRemoved = removed;
+    }
+
+    // ACCESSORS
+
+    // the server may omit empty lists, so missing ones read as empty
+
+    public String getToken(){
+        return mToken;
+    }
+
+    public List<UserLocation> getAdded(){
+        return mAdded == null ? Collections.<UserLocation>emptyList() : mAdded;
+    }
+
+    public List<UserLocation> getMoved(){
+        return mMoved == null ? Collections.<UserLocation>emptyList() : mMoved;
+    }
+
+    public List<String> getRemoved(){
+        return mRemoved == null ? Collections.<String>emptyList() : mRemoved;
+    }
+
+    /**
+     * @return Added and moved locations (ie: every row and marker to write)
+     */
+
+    public List<UserLocation> getChanged(){
+        List<UserLocation> changed = new ArrayList<>(getAdded());
+        changed.addAll(getMoved());
+        return changed;
+    }
+
+    public boolean isEmpty(){
+        return getAdded().isEmpty() && getMoved().isEmpty() && getRemoved().isEmpty();
+    }
+
+    // CONVERTERS
+
+    public String toJson(){
+        return Json.GSON.toJson(this);
+    }
+
+    public static LocationDelta fromJson(String json){
+        return Json.GSON.fromJson(json, LocationDelta.class);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LocationDelta that = (LocationDelta) o;
+
+        if (mToken != null ? !mToken.equals(that.mToken) : that.mToken != null) return false;
+        if (!getAdded().equals(that.getAdded())) return false;
+        if (!getMoved().equals(that.getMoved())) return false;
+        return getRemoved().equals(that.getRemoved());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mToken != null ? mToken.hashCode() : 0;
+        result = 31 * result + getAdded().hashCode();
+        result = 31 * result + getMoved().hashCode();
+        result = 31 * result + getRemoved().hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationDelta{" +
+            "token=" + mToken +
+            ", added=" + getAdded() +
+            ", moved=" + getMoved() +
+            ", removed=" + getRemoved() +
+            '}';
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Publishes a location and asks for every change since a sync token (a null token asks for
+ * every current location, all reported as added)
+ */
+
+public class SyncRequest {
+
+    @SerializedName("location") private UserLocation mUserLocation;
+    @SerializedName("token") private String mToken;
+
+    // CONSTRUCTORS
+
+    public static SyncRequest of(UserLocation ul, String token){
+        return new SyncRequest(ul, token);
+    }
+
+    private SyncRequest(UserLocation ul, String token){
+        mUserLocation = ul;
+        mToken = token;
+    }
+
+    // ACCESSORS
+
+    public UserLocation getUserLocation(){
+        return mUserLocation;
+    }
+
+    public String getToken(){
+        return mToken;
+    }
+
+    // CONVERTERS
+
+    public String toJson(){
+        return Json.GSON.toJson(this);
+    }
+
+    public static SyncRequest fromJson(String json){
+        return Json.GSON.fromJson(json, SyncRequest.class);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SyncRequest that = (SyncRequest) o;
+
+        if (!mUserLocation.equals(that.mUserLocation)) return false;
+        return mToken != null ? mToken.equals(that.mToken) : that.mToken == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mUserLocation.hashCode();
+        result = 31 * result + (mToken != null ? mToken.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncRequest{" +
+            "userLocation=" + mUserLocation +
+            ", token=" + mToken +
+            '}';
+    }
+}
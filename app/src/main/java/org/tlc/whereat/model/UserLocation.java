@@ -24,16 +24,18 @@ import android.os.Parcelable;
 
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.MarkerOptions;
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.List;
 
 import org.tlc.whereat.modules.map.LatLon;
+import org.tlc.whereat.util.IdGenerator;
 import org.tlc.whereat.util.TimeUtils;
-import org.whispersystems.curve25519.JCESecureRandomProvider;
 
 public class UserLocation implements Parcelable {
 
@@ -45,11 +47,7 @@ public class UserLocation implements Parcelable {
     // CONSTRUCTORS
 
     public static UserLocation valueOf(Location l){
-        JCESecureRandomProvider srp = new JCESecureRandomProvider();
-        byte[] idBytes = new byte[32];
-        srp.nextBytes(idBytes);
-        String id = new String(idBytes);
-        return valueOf(id, l);
+        return valueOf(IdGenerator.getInstance().next(), l);
     }
 
     public static UserLocation valueOf(String id, Location l){
@@ -83,20 +81,19 @@ public class UserLocation implements Parcelable {
     }
 
     public String toJson(){
-        return new Gson().toJson(this);
+        return Json.GSON.toJson(this);
     }
 
     public static String toJsonList(List<UserLocation> uls){
-        return new Gson().toJson(uls);
+        return Json.GSON.toJson(uls, Json.LOCATION_LIST);
     }
 
     public static UserLocation fromJson(String json){
-        return new Gson().fromJson(json, UserLocation.class);
+        return Json.GSON.fromJson(json, UserLocation.class);
     }
 
     public static List<UserLocation> fromJsonList(String json){
-        Type type = new TypeToken<List<UserLocation>>(){}.getType();
-        return new Gson().fromJson(json, type);
+        return Json.GSON.fromJson(json, Json.LOCATION_LIST);
     }
 
 
@@ -147,8 +144,8 @@ public class UserLocation implements Parcelable {
         @Override
         public UserLocation createFromParcel(Parcel in) {
             String id = in.readString();
-            Double lat = in.readDouble();
-            Double lon = in.readDouble();
+            double lat = in.readDouble();
+            double lon = in.readDouble();
             long time = in.readLong();
             return new UserLocation(id, lat, lon, time);
         }
@@ -159,6 +156,45 @@ public class UserLocation implements Parcelable {
         }
     };
 
+    // JSON ADAPTER
+
+    static class JsonAdapter extends TypeAdapter<UserLocation> {
+
+        @Override
+        public void write(JsonWriter out, UserLocation ul) throws IOException {
+            if (ul == null) { out.nullValue(); return; }
+            out.beginObject();
+            if (ul.mId != null) out.name("id").value(ul.mId);
+            out.name("lat").value(ul.mLat);
+            out.name("lon").value(ul.mLon);
+            out.name("time").value(ul.mTime);
+            out.endObject();
+        }
+
+        @Override
+        public UserLocation read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) { in.nextNull(); return null; }
+            String id = null;
+            double lat = 0, lon = 0;
+            long time = 0;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) { in.skipValue(); continue; }
+                switch (name) {
+                    case "id": id = in.nextString(); break;
+                    case "lat": lat = in.nextDouble(); break;
+                    case "lon": lon = in.nextDouble(); break;
+                    case "time": time = in.nextLong(); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new UserLocation(id, lat, lon, time);
+        }
+    }
+
     // EQUALS AND HASH CODE
 
     @Override
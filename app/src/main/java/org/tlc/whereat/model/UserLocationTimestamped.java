@@ -17,8 +17,13 @@
 
 package org.tlc.whereat.model;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 public class UserLocationTimestamped {
 
@@ -33,11 +38,11 @@ public class UserLocationTimestamped {
     // CONVERTERS
 
     public String toJson(){
-        return new Gson().toJson(this);
+        return Json.GSON.toJson(this);
     }
 
     public static UserLocationTimestamped fromJson(String json){
-        return new Gson().fromJson(json, UserLocationTimestamped.class);
+        return Json.GSON.fromJson(json, UserLocationTimestamped.class);
     }
 
     // ACESSORS
@@ -49,6 +54,42 @@ public class UserLocationTimestamped {
         return mLastPing;
     }
 
+    // JSON ADAPTER
+
+    static class JsonAdapter extends TypeAdapter<UserLocationTimestamped> {
+
+        protected TypeAdapter<UserLocation> mLocation = new UserLocation.JsonAdapter();
+
+        @Override
+        public void write(JsonWriter out, UserLocationTimestamped ult) throws IOException {
+            if (ult == null) { out.nullValue(); return; }
+            out.beginObject();
+            if (ult.mLastPing != null) out.name("lastPing").value(ult.mLastPing);
+            if (ult.mUserLocation != null) mLocation.write(out.name("location"), ult.mUserLocation);
+            out.endObject();
+        }
+
+        @Override
+        public UserLocationTimestamped read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) { in.nextNull(); return null; }
+            Long lastPing = null;
+            UserLocation ul = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) { in.skipValue(); continue; }
+                switch (name) {
+                    case "lastPing": lastPing = in.nextLong(); break;
+                    case "location": ul = mLocation.read(in); break;
+                    default: in.skipValue();
+                }
+            }
+            in.endObject();
+            return new UserLocationTimestamped(lastPing, ul);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,113 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.api;
+
+import rx.Observable;
+
+/**
+ * Stops calling a failing server: after FAILURE_THRESHOLD consecutive transient failures the
+ * breaker opens and calls fail fast (with OpenException) for COOLDOWN millis. Then one trial call
+ * is let through: if it succeeds the breaker closes, otherwise it stays open for another cooldown.
+ */
+
+public class CircuitBreaker {
+
+    // FIELDS
+
+    public static final int FAILURE_THRESHOLD = 5;
+    public static final long COOLDOWN = 60 * 1000L; // 1 min
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    protected int mThreshold;
+    protected long mCooldown;
+    protected State mState = State.CLOSED;
+    protected int mFailures;
+    protected long mOpenedAt;
+
+    // CONSTRUCTORS
+
+    public CircuitBreaker(){
+        this(FAILURE_THRESHOLD, COOLDOWN);
+    }
+
+    public CircuitBreaker(int threshold, long cooldown){
+        mThreshold = threshold;
+        mCooldown = cooldown;
+    }
+
+    // ACCESSORS
+
+    public synchronized State state(){ return mState; }
+
+    // PUBLIC METHODS
+
+    /**
+     * Wraps a (cold) call so that every subscription (ie: every attempt, when retried) is
+     * checked against and reported to the breaker
+     */
+
+    public <T> Observable<T> apply(Observable<T> call){
+        return Observable.defer(() -> allowRequest() ?
+            call.doOnCompleted(this::onSuccess).doOnError(this::onFailure) :
+            Observable.<T>error(new OpenException()));
+    }
+
+    public synchronized boolean allowRequest(){
+        if (mState == State.CLOSED) return true;
+        if (now() - mOpenedAt < mCooldown) return false;
+
+        // let this call through as the trial (replacing a trial that never reported back)
+        mState = State.HALF_OPEN;
+        mOpenedAt = now();
+        return true;
+    }
+
+    public synchronized void onSuccess(){
+        mState = State.CLOSED;
+        mFailures = 0;
+    }
+
+    public synchronized void onFailure(Throwable e){
+        if (!RetryPolicy.isTransient(e)) {
+            onSuccess(); // the server is up, even if it didn't like the request
+            return;
+        }
+        if (mState == State.HALF_OPEN || ++mFailures >= mThreshold) open();
+    }
+
+    // HELPERS
+
+    protected void open(){
+        mState = State.OPEN;
+        mOpenedAt = now();
+        mFailures = 0;
+    }
+
+    protected long now(){
+        return System.currentTimeMillis();
+    }
+
+    // EXCEPTIONS
+
+    public static class OpenException extends RuntimeException {
+        public OpenException(){
+            super("Circuit open: not calling server until cooldown elapses.");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Gzips the bodies of requests to endpoints annotated with @Headers(GZIP). Bodies smaller than
+ * MIN_BYTES are sent as-is, since gzip's header and trailer would eat most of what it saves.
+ * (Responses need nothing from us: OkHttp asks for gzip and inflates it transparently.)
+ */
+
+public class GzipRequestInterceptor implements Interceptor {
+
+    // FIELDS
+
+    public static final String GZIP_HEADER = "X-Whereat-Gzip";
+    public static final String GZIP = GZIP_HEADER + ": true";
+    public static final long MIN_BYTES = 512L;
+
+    protected long mMinBytes;
+
+    // CONSTRUCTORS
+
+    public GzipRequestInterceptor(){
+        this(MIN_BYTES);
+    }
+
+    public GzipRequestInterceptor(long minBytes){
+        mMinBytes = minBytes;
+    }
+
+    // PUBLIC METHODS
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request req = chain.request();
+        if (req.header(GZIP_HEADER) == null) return chain.proceed(req);
+
+        Request.Builder unmarked = req.newBuilder().removeHeader(GZIP_HEADER);
+        RequestBody body = req.body();
+        if (body == null || req.header("Content-Encoding") != null || body.contentLength() < mMinBytes)
+            return chain.proceed(unmarked.build());
+
+        return chain.proceed(unmarked
+            .header("Content-Encoding", "gzip")
+            .method(req.method(), gzip(body))
+            .build());
+    }
+
+    // HELPERS
+
+    // buffered (rather than streamed) so the compressed request still carries a Content-Length
+
+    protected static RequestBody gzip(RequestBody body) throws IOException {
+        Buffer buf = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(buf));
+        body.writeTo(sink);
+        sink.close();
+        return RequestBody.create(body.contentType(), buf.readByteArray());
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary wire format for locations (big-endian, as written by DataOutput):
+ *
+ *   location:  id (i32 byte length + UTF-8), lat (i32, E7), lon (i32, E7), time (i64)
+ *   timestamped: hasLastPing (u8, 0 or 1), lastPing (i64, only if present), location
+ *   list:      count (i32), location * count
+ *
+ * Coordinates are stored in fixed-point degrees * 10^7 (~1 cm), so decoding rounds to 7 places.
+ */
+
+public class LocationCodec {
+
+    // FIELDS
+
+    public static final String MIME_TYPE = "application/x-whereat-location";
+    public static final double E7 = 1e7;
+    public static final int MAX_ID_BYTES = 1024;
+
+    protected static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // PUBLIC METHODS
+
+    public static boolean supports(Type type){
+        if (type == UserLocation.class || type == UserLocationTimestamped.class) return true;
+        if (!(type instanceof ParameterizedType)) return false;
+        ParameterizedType p = (ParameterizedType) type;
+        return p.getRawType() == List.class && p.getActualTypeArguments()[0] == UserLocation.class;
+    }
+
+    public static byte[] encode(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (o instanceof UserLocation) write(out, (UserLocation) o);
+        else if (o instanceof UserLocationTimestamped) write(out, (UserLocationTimestamped) o);
+        else if (o instanceof List) write(out, (List<?>) o);
+        else throw new IllegalArgumentException("Can't encode " + o.getClass().getSimpleName());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static Object decode(byte[] bytes, Type type) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (type == UserLocation.class) return readLocation(in);
+        if (type == UserLocationTimestamped.class) return readTimestamped(in);
+        if (supports(type)) return readList(in);
+        throw new IllegalArgumentException("Can't decode " + type);
+    }
+
+    // HELPERS
+
+    protected static void write(DataOutput out, UserLocation ul) throws IOException {
+        writeString(out, ul.getId());
+        out.writeInt((int) Math.round(ul.getLatitude() * E7));
+        out.writeInt((int) Math.round(ul.getLongitude() * E7));
+        out.writeLong(ul.getTime());
+    }
+
+    protected static void write(DataOutput out, UserLocationTimestamped ult) throws IOException {
+        Long lastPing = ult.getLastPing();
+        out.writeBoolean(lastPing != null);
+        if (lastPing != null) out.writeLong(lastPing);
+        write(out, ult.getUserLocation());
+    }
+
+    protected static void write(DataOutput out, List<?> uls) throws IOException {
+        out.writeInt(uls.size());
+        for (Object ul : uls) write(out, (UserLocation) ul);
+    }
+
+    protected static UserLocation readLocation(DataInput in) throws IOException {
+        String id = readString(in);
+        double lat = in.readInt() / E7;
+        double lon = in.readInt() / E7;
+        return UserLocation.create(id, lat, lon, in.readLong());
+    }
+
+    protected static UserLocationTimestamped readTimestamped(DataInput in) throws IOException {
+        Long lastPing = in.readBoolean() ? in.readLong() : null;
+        return new UserLocationTimestamped(lastPing, readLocation(in));
+    }
+
+    // plain UTF-8 (not DataOutput's modified UTF-8), so non-JVM servers can read it
+    protected static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_ID_BYTES) throw new IOException("Bad id length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    protected static List<UserLocation> readList(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Negative location count: " + count);
+        List<UserLocation> uls = new ArrayList<>(Math.min(count, 1024)); // don't trust count to size the list
+        for (int i = 0; i < count; i++) uls.add(readLocation(in));
+        return uls;
+    }
+}
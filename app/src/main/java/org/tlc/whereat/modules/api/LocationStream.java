@@ -0,0 +1,93 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import org.tlc.whereat.model.Json;
+import org.tlc.whereat.model.UserLocation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+import rx.Observable;
+import rx.Subscriber;
+
+/**
+ * Decodes a (@Streaming) response holding a list of locations one location at a time, emitting
+ * each as soon as it is read, so nothing waits for (or holds) the whole body. The body is read in
+ * whichever format the server answered in: a JSON array or LocationCodec's binary list.
+ * Unsubscribing stops the read and closes the body.
+ */
+
+public class LocationStream {
+
+    // PUBLIC METHODS
+
+    public static Observable<UserLocation> parse(Response res){
+        return Observable.create(sub -> {
+            TypedInput body = res.getBody();
+            InputStream in = null;
+            try {
+                if (body != null) {
+                    in = body.in();
+                    if (NegotiatingConverter.isBinary(body.mimeType())) readBinary(in, sub);
+                    else readJson(in, sub);
+                }
+                if (!sub.isUnsubscribed()) sub.onCompleted();
+            } catch (IOException | RuntimeException e) {
+                if (!sub.isUnsubscribed()) sub.onError(e);
+            } finally {
+                closeQuietly(in);
+            }
+        });
+    }
+
+    // HELPERS
+
+    protected static void readJson(InputStream in, Subscriber<? super UserLocation> sub) throws IOException {
+        TypeAdapter<UserLocation> adapter = Json.GSON.getAdapter(UserLocation.class);
+        JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (sub.isUnsubscribed()) return;
+            sub.onNext(adapter.read(reader));
+        }
+        reader.endArray();
+    }
+
+    protected static void readBinary(InputStream in, Subscriber<? super UserLocation> sub) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            if (sub.isUnsubscribed()) return;
+            sub.onNext(LocationCodec.readLocation(data));
+        }
+    }
+
+    protected static void closeQuietly(Closeable c){
+        if (c == null) return;
+        try { c.close(); } catch (IOException ignored) {}
+    }
+}
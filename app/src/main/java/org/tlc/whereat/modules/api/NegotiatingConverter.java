@@ -0,0 +1,112 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import org.tlc.whereat.model.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+
+import retrofit.RequestInterceptor;
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.converter.GsonConverter;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+/**
+ * Sits in front of Gson: responses are decoded by their Content-Type (LocationCodec's binary
+ * format or JSON), and -- once the binary codec is enabled -- location request bodies are sent
+ * in binary and the server is told (via ACCEPT) that it may answer in kind.
+ */
+
+public class NegotiatingConverter implements Converter {
+
+    // FIELDS
+
+    public static final String ACCEPT = LocationCodec.MIME_TYPE + ", application/json;q=0.9";
+
+    protected Converter mJson;
+    protected boolean mBinary;
+
+    // CONSTRUCTORS
+
+    public NegotiatingConverter(boolean binary){
+        this(new GsonConverter(Json.GSON), binary);
+    }
+
+    public NegotiatingConverter(Converter json, boolean binary){
+        mJson = json;
+        mBinary = binary;
+    }
+
+    // ACCESSORS
+
+    public boolean isBinary(){ return mBinary; }
+
+    // PUBLIC METHODS
+
+    @Override
+    public Object fromBody(TypedInput body, Type type) throws ConversionException {
+        if (!isBinary(body.mimeType())) return mJson.fromBody(body, type);
+        if (!LocationCodec.supports(type)) throw new ConversionException("No binary format for " + type);
+        try {
+            return LocationCodec.decode(read(body), type);
+        } catch (IOException e) {
+            throw new ConversionException(e);
+        }
+    }
+
+    @Override
+    public TypedOutput toBody(Object object) {
+        if (!mBinary || !LocationCodec.supports(object.getClass())) return mJson.toBody(object);
+        try {
+            return new TypedByteArray(LocationCodec.MIME_TYPE, LocationCodec.encode(object));
+        } catch (IOException e) {
+            throw new AssertionError(e); // writes to memory can't fail
+        }
+    }
+
+    /**
+     * @return Interceptor advertising the binary format (a no-op when it is disabled)
+     */
+
+    public RequestInterceptor accept(){
+        return req -> { if (mBinary) req.addHeader("Accept", ACCEPT); };
+    }
+
+    // HELPERS
+
+    protected static boolean isBinary(String mimeType){
+        return mimeType != null && mimeType.startsWith(LocationCodec.MIME_TYPE);
+    }
+
+    protected static byte[] read(TypedInput body) throws IOException {
+        InputStream in = body.in();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for (int n; (n = in.read(buf)) != -1; ) out.write(buf, 0, n);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
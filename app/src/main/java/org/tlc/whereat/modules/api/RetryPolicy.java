@@ -0,0 +1,121 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.api;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit.RetrofitError;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * Retries transient API failures (network errors, timeouts, 5xx and 429 responses) up to
+ * MAX_ATTEMPTS times in all, waiting a random delay of up to BASE_DELAY * 2^(n - 1) millis
+ * (capped at MAX_DELAY) after the n-th failure. The randomness ("full jitter") spreads out the
+ * retries of every client that saw the same outage, so they don't hit the server in lockstep.
+ */
+
+public class RetryPolicy {
+
+    // FIELDS
+
+    public static final int MAX_ATTEMPTS = 4;
+    public static final long BASE_DELAY = 1000L; // 1 sec
+    public static final long MAX_DELAY = 30 * 1000L; // 30 sec
+
+    protected int mMaxAttempts;
+    protected long mBaseDelay;
+    protected long mMaxDelay;
+    protected Random mRandom;
+    protected Scheduler mScheduler;
+
+    // CONSTRUCTORS
+
+    public RetryPolicy(){
+        this(MAX_ATTEMPTS, BASE_DELAY, MAX_DELAY);
+    }
+
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay){
+        this(maxAttempts, baseDelay, maxDelay, new Random(), Schedulers.computation());
+    }
+
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, Random random, Scheduler scheduler){
+        mMaxAttempts = maxAttempts;
+        mBaseDelay = baseDelay;
+        mMaxDelay = maxDelay;
+        mRandom = random;
+        mScheduler = scheduler;
+    }
+
+    // ACCESSORS
+
+    public int maxAttempts(){ return mMaxAttempts; }
+
+    // PUBLIC METHODS
+
+    /**
+     * Wraps a (cold) call so it is resubscribed after each transient failure
+     *
+     * @param call Observable that performs the request on subscription
+     * @return The call, with retries: errors once attempts run out or on a non-transient failure
+     */
+
+    public <T> Observable<T> apply(Observable<T> call){
+        return call.retryWhen(errors -> {
+            AtomicInteger failures = new AtomicInteger(); // one count per subscription
+            return errors.flatMap(e -> {
+                int n = failures.incrementAndGet();
+                return n >= mMaxAttempts || !isTransient(e) ?
+                    Observable.<Long>error(e) :
+                    Observable.timer(delay(n), TimeUnit.MILLISECONDS, mScheduler);
+            });
+        });
+    }
+
+    /**
+     * @param n Number of failures so far (>= 1)
+     * @return Millis to wait before the next attempt: uniform in [0, min(MAX_DELAY, BASE_DELAY * 2^(n - 1))]
+     */
+
+    public long delay(int n){
+        long ceiling = mBaseDelay << Math.min(n - 1, 30);
+        if (ceiling <= 0 || ceiling > mMaxDelay) ceiling = mMaxDelay;
+        return (long) (mRandom.nextDouble() * (ceiling + 1));
+    }
+
+    /**
+     * @return True for failures that may succeed on retry (client errors and bad responses won't)
+     */
+
+    public static boolean isTransient(Throwable e){
+        if (e instanceof IOException || e instanceof TimeoutException) return true;
+        if (!(e instanceof RetrofitError)) return false;
+
+        RetrofitError re = (RetrofitError) e;
+        if (re.getKind() == RetrofitError.Kind.NETWORK) return true;
+        if (re.getKind() != RetrofitError.Kind.HTTP || re.getResponse() == null) return false;
+
+        int status = re.getResponse().getStatus();
+        return status >= 500 || status == 429;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.api;
+
+import android.util.Log;
+
+import org.tlc.whereat.model.LocationDelta;
+import org.tlc.whereat.model.SyncRequest;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
+import org.tlc.whereat.modules.db.LocationDao;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit.RetrofitError;
+import rx.Observable;
+import rx.functions.Action1;
+
+/**
+ * Sends location updates to the server through the DB outbox: each update is queued (coalescing
+ * with any update still pending for the same user), then the outbox is drained oldest first with
+ * at most one request in flight. A failed request leaves its update queued until the next drain,
+ * which is triggered by the next offer or by connectivity returning.
+ *
+ * Responses are relayed in chunks of up to CHUNK_SIZE locations as they stream in.
+ *
+ * With delta sync enabled, updates are sent to /locations/sync along with the token from the last
+ * response, so the server only returns what changed since; a server without that endpoint (404)
+ * switches the queue back to full updates.
+ */
+
+public class UpdateQueue {
+
+    // FIELDS
+
+    public static final String TAG = UpdateQueue.class.getSimpleName();
+    public static final int CHUNK_SIZE = 50;
+
+    protected LocationDao mDao;
+    protected WhereatApi mApi;
+    protected Action1<List<UserLocation>> mOnResponse;
+    protected Action1<LocationDelta> mOnDelta;
+    protected AtomicBoolean mInFlight = new AtomicBoolean(false);
+    protected volatile boolean mDeltaSync = false;
+    protected volatile String mToken;
+
+    // CONSTRUCTOR
+
+    public UpdateQueue(LocationDao dao, WhereatApi api, Action1<List<UserLocation>> onResponse){
+        mDao = dao;
+        mApi = api;
+        mOnResponse = onResponse;
+    }
+
+    // ACCESSORS
+
+    public boolean isDraining(){
+        return mInFlight.get();
+    }
+
+    public boolean isDeltaSync(){
+        return mDeltaSync;
+    }
+
+    public String syncToken(){
+        return mToken;
+    }
+
+    // SETTERS
+
+    /**
+     * Switches to delta sync, handing each response to a callback before its token is adopted
+     * (so a failed callback means the same changes are asked for again)
+     */
+
+    public UpdateQueue enableDeltaSync(Action1<LocationDelta> onDelta){
+        mOnDelta = onDelta;
+        mDeltaSync = true;
+        return this;
+    }
+
+    /**
+     * Switches back to full updates, dropping any sync token
+     */
+
+    public UpdateQueue disableDeltaSync(){
+        mDeltaSync = false;
+        mToken = null;
+        return this;
+    }
+
+    /**
+     * Forgets the sync token, so the next response holds every current location (ie: after the
+     * local copy is cleared)
+     */
+
+    public void resetSync(){
+        mToken = null;
+    }
+
+    // PUBLIC METHODS
+
+    public void offer(UserLocationTimestamped ult){
+        mDao.enqueueAsync(ult).subscribe(
+            row -> drain(),
+            e -> Log.e(TAG, "Error queueing location update: " + e.getMessage()));
+    }
+
+    /**
+     * Sends queued updates one at a time until the outbox is empty or a request fails
+     * (a no-op if a drain is already under way)
+     */
+
+    public void drain(){
+        if (mInFlight.compareAndSet(false, true)) sendNext();
+    }
+
+    // HELPERS
+
+    // The empty-outbox check and the release of mInFlight happen in one task on the DB I/O thread,
+    // and offers enqueue on that same thread, so an update queued while draining is either seen by
+    // the check or finds the drain released and starts another: no wakeup is lost.
+
+    protected void sendNext(){
+        mDao.nextQueuedAsync()
+            .flatMap(this::send)
+            .defaultIfEmpty(false)
+            .subscribe(
+                sent -> { if (sent) sendNext(); else mInFlight.set(false); },
+                this::fail);
+    }
+
+    protected Observable<Boolean> send(UserLocationTimestamped ult){
+        return (mDeltaSync ? sync(ult) : update(ult))
+            .flatMap(ok -> mDao.dequeueAsync(ult))
+            .map(dequeued -> true);
+    }
+
+    // the response is handed over in chunks as it is decoded, so mapping and saving the first
+    // peers overlaps with downloading the rest
+
+    protected Observable<Boolean> update(UserLocationTimestamped ult){
+        return mApi.updateStream(ult)
+            .flatMap(LocationStream::parse)
+            .buffer(CHUNK_SIZE)
+            .doOnNext(mOnResponse::call)
+            .count()
+            .map(chunks -> true);
+    }
+
+    protected Observable<Boolean> sync(UserLocationTimestamped ult){
+        return mApi.sync(SyncRequest.of(ult.getUserLocation(), mToken))
+            .doOnNext(delta -> {
+                mOnDelta.call(delta);
+                mToken = delta.getToken();
+            })
+            .map(delta -> true)
+            .onErrorResumeNext(e -> {
+                if (!isNotFound(e)) return Observable.<Boolean>error(e);
+                Log.w(TAG, "Server does not support delta sync; falling back to full updates.");
+                mDeltaSync = false;
+                return update(ult);
+            });
+    }
+
+    protected static boolean isNotFound(Throwable e){
+        return e instanceof RetrofitError &&
+            ((RetrofitError) e).getResponse() != null &&
+            ((RetrofitError) e).getResponse().getStatus() == 404;
+    }
+
+    protected void fail(Throwable e){
+        Log.w(TAG, "Location update failed; will retry on next drain: " + e.getMessage());
+        mInFlight.set(false);
+    }
+}
@@ -18,13 +18,18 @@
 package org.tlc.whereat.modules.api;
 
 import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.LocationDelta;
+import org.tlc.whereat.model.SyncRequest;
 import org.tlc.whereat.model.UserLocationTimestamped;
 import org.tlc.whereat.model.UserLocation;
 
 import java.util.List;
 
+import retrofit.client.Response;
 import retrofit.http.Body;
+import retrofit.http.Headers;
 import retrofit.http.POST;
+import retrofit.http.Streaming;
 import rx.Observable;
 
 /**
@@ -35,8 +40,19 @@ import rx.Observable;
 public interface WhereatApi {
 
     @POST("/locations/update")
+    @Headers(GzipRequestInterceptor.GZIP)
     Observable<List<UserLocation>> update(@Body UserLocationTimestamped ult);
 
+    // same endpoint as update, but the body is left unread, for LocationStream to decode as it arrives
+    @POST("/locations/update")
+    @Headers(GzipRequestInterceptor.GZIP)
+    @Streaming
+    Observable<Response> updateStream(@Body UserLocationTimestamped ult);
+
+    @POST("/locations/sync")
+    @Headers(GzipRequestInterceptor.GZIP)
+    Observable<LocationDelta> sync(@Body SyncRequest req);
+
     @POST("/locations/clear")
     Observable<ApiMessage> remove(@Body UserLocation ul);
 
@@ -18,12 +18,22 @@
 package org.tlc.whereat.modules.api;
 
 import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.LocationDelta;
+import org.tlc.whereat.model.SyncRequest;
 import org.tlc.whereat.model.UserLocationTimestamped;
 import org.tlc.whereat.model.UserLocation;
 
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
+
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import retrofit.RestAdapter;
+import retrofit.client.OkClient;
+import retrofit.client.Response;
 import rx.Observable;
 
 /**
@@ -36,39 +46,134 @@ public class WhereatApiClient implements WhereatApi {
     private static String mRoot = "https://api.whereat.io";
     //private static String mRoot = "https: //api-dev.whereat.io"; // for testing
     private static WhereatApiClient mInstance;
+    private static OkHttpClient sHttpClient;
     private WhereatApi mApi;
+    protected OkHttpClient mHttpClient;
+    protected RetryPolicy mRetryPolicy;
+    protected CircuitBreaker mBreaker;
+    protected NegotiatingConverter mConverter;
+
+    public static final long CONNECT_TIMEOUT = 10 * 1000L; // 10 sec
+    public static final long READ_TIMEOUT = 20 * 1000L; // 20 sec
+    public static final long WRITE_TIMEOUT = 20 * 1000L; // 20 sec
+    public static final int MAX_IDLE_CONNECTIONS = 4;
+    public static final long KEEP_ALIVE = 5 * 60 * 1000L; // 5 min
 
 
     // CONSTRUCTORS
 
-    public static WhereatApiClient getInstance(){
-        if (mInstance == null) mInstance = new WhereatApiClient(mRoot);
+    public static synchronized WhereatApiClient getInstance(){
+        if (mInstance == null) mInstance = new Builder().build();
         return mInstance;
     }
 
-    public static WhereatApiClient getInstance(String root){
-        if (mInstance == null) mInstance = new WhereatApiClient(root);
+    public static synchronized WhereatApiClient getInstance(String root){
+        if (mInstance == null) mInstance = new Builder().setRoot(root).build();
         return mInstance;
     }
 
-    private WhereatApiClient(String root){
-        RestAdapter ra = new RestAdapter.Builder()
-            .setEndpoint(root)
-            .build();
+    private WhereatApiClient(Builder b){
+        mHttpClient = b.mHttpClient;
+        mRetryPolicy = b.mRetryPolicy;
+        mBreaker = b.mBreaker;
+        mConverter = new NegotiatingConverter(b.mBinaryCodec);
+        mApi = new RestAdapter.Builder()
+            .setEndpoint(b.mRoot)
+            .setClient(new OkClient(mHttpClient))
+            .setConverter(mConverter)
+            .setRequestInterceptor(mConverter.accept())
+            .build()
+            .create(WhereatApi.class);
+    }
 
-        mApi = ra.create(WhereatApi.class);
+    /**
+     * Returns the process-wide HTTP client, so every API client shares one connection pool
+     * (kept-alive connections, multiplexed over HTTP/2 where the server supports it)
+     */
+
+    public static synchronized OkHttpClient sharedHttpClient(){
+        if (sHttpClient == null) {
+            sHttpClient = new OkHttpClient();
+            sHttpClient.setConnectTimeout(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS);
+            sHttpClient.setReadTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+            sHttpClient.setWriteTimeout(WRITE_TIMEOUT, TimeUnit.MILLISECONDS);
+            sHttpClient.setConnectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE));
+            sHttpClient.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+            sHttpClient.interceptors().add(new GzipRequestInterceptor());
+        }
+        return sHttpClient;
+    }
+
+    public static class Builder {
+
+        protected String mRoot = WhereatApiClient.mRoot;
+        protected OkHttpClient mHttpClient = sharedHttpClient();
+        protected RetryPolicy mRetryPolicy = new RetryPolicy();
+        protected CircuitBreaker mBreaker = new CircuitBreaker();
+        protected boolean mBinaryCodec;
+
+        public Builder setRoot(String root){
+            mRoot = root;
+            return this;
+        }
+
+        public Builder setHttpClient(OkHttpClient client){
+            mHttpClient = client;
+            return this;
+        }
+
+        public Builder setRetryPolicy(RetryPolicy policy){
+            mRetryPolicy = policy;
+            return this;
+        }
+
+        public Builder setCircuitBreaker(CircuitBreaker breaker){
+            mBreaker = breaker;
+            return this;
+        }
+
+        /**
+         * Sends location bodies in LocationCodec's binary format and accepts it in responses
+         * (off by default: the server has to speak it too)
+         */
+
+        public Builder setBinaryCodec(boolean enabled){
+            mBinaryCodec = enabled;
+            return this;
+        }
+
+        public WhereatApiClient build(){
+            return new WhereatApiClient(this);
+        }
     }
 
     // API METHODS
 
     @Override
     public Observable<List<UserLocation>> update(UserLocationTimestamped ult) {
-        return mApi.update(ult);
+        return guard(Observable.defer(() -> mApi.update(ult)));
+    }
+
+    @Override
+    public Observable<Response> updateStream(UserLocationTimestamped ult) {
+        return guard(Observable.defer(() -> mApi.updateStream(ult)));
+    }
+
+    @Override
+    public Observable<LocationDelta> sync(SyncRequest req) {
+        return guard(Observable.defer(() -> mApi.sync(req)));
     }
 
     @Override
     public Observable<ApiMessage> remove(UserLocation ul) {
-        return mApi.remove(ul);
+        return guard(Observable.defer(() -> mApi.remove(ul)));
+    }
+
+    // HELPERS
+
+    // every attempt passes through the breaker, so once it opens the remaining retries fail fast
+    protected <T> Observable<T> guard(Observable<T> call){
+        return mRetryPolicy.apply(mBreaker.apply(call));
     }
 
 }
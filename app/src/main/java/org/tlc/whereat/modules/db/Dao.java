@@ -14,7 +14,6 @@
  * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
  *
  */
-
 package org.tlc.whereat.modules.db;
 
 import android.content.Context;
@@ -32,66 +31,202 @@ public class Dao extends SQLiteOpenHelper {
     public static final String COLUMN_LON = "lon";
     public static final String COLUMN_TIME = "time";
 
+    public static final String TABLE_HISTORY = "history";
+    public static final String COLUMN_USER_ID = "user_id";
+
+    public static final String TABLE_OUTBOX = "outbox";
+    public static final String COLUMN_LAST_PING = "last_ping";
+
+    public static final String INDEX_LOCATIONS_TIME = "locations_time_index";
+    public static final String INDEX_HISTORY_USER_TIME = "history_user_time_index";
+    public static final String INDEX_HISTORY_TIME = "history_time_index";
+
     protected static final String DB_NAME = "whereat.db";
 
-    protected static final int DB_VERSION = 3;
+    protected static final int DB_VERSION = 6; // must equal PATCHES.length
     protected static final String DB_CREATE =
         "create table " + TABLE_LOCATIONS + " (" +
             COLUMN_ID + " text primary key not null, " +
             COLUMN_LAT + " real not null, " +
             COLUMN_LON + " real not null, " +
             COLUMN_TIME + " integer not null);";
+    protected static final String DB_DROP =
+        "drop table if exists " + TABLE_LOCATIONS + ";";
+    protected static final String HISTORY_CREATE =
+        "create table " + TABLE_HISTORY + " (" +
+            COLUMN_ID + " integer primary key autoincrement, " +
+            COLUMN_USER_ID + " text not null, " +
+            COLUMN_LAT + " real not null, " +
+            COLUMN_LON + " real not null, " +
+            COLUMN_TIME + " integer not null);";
+    protected static final String HISTORY_DROP =
+        "drop table if exists " + TABLE_HISTORY + ";";
+    protected static final String OUTBOX_CREATE =
+        "create table " + TABLE_OUTBOX + " (" +
+            COLUMN_USER_ID + " text primary key not null, " +
+            COLUMN_LAT + " real not null, " +
+            COLUMN_LON + " real not null, " +
+            COLUMN_TIME + " integer not null, " +
+            COLUMN_LAST_PING + " integer not null);";
+    protected static final String OUTBOX_DROP =
+        "drop table if exists " + TABLE_OUTBOX + ";";
 
     private static Dao sInstance;
+    protected int mVersion;
+    protected int mRefs;
 
     // CONSTRUCTOR
 
+    /**
+     * Returns the process-wide helper, so the service and every activity share one connection
+     * (write-ahead logged, so the map can read while the publisher writes)
+     */
+
     public static synchronized Dao getInstance(Context ctx){
-        return new Dao(ctx);
-        //TODO can multiple activities share the same instance? Should they?
-//        if (sInstance == null) sInstance = new Dao(ctx);
-//        return sInstance;
+        if (sInstance == null) sInstance = new Dao(ctx.getApplicationContext());
+        return sInstance;
     }
 
     private Dao(Context ctx){
-        super(ctx, DB_NAME, null, DB_VERSION);
+        this(ctx, DB_NAME, DB_VERSION);
     }
 
     protected Dao(Context ctx, String dbName){
-        super(ctx, dbName, null, DB_VERSION);
+        this(ctx, dbName, DB_VERSION);
+    }
+
+    protected Dao(Context ctx, String dbName, int version){
+        super(ctx, dbName, null, version);
+        mVersion = version;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    // REFERENCE COUNTING
+
+    public synchronized SQLiteDatabase acquire(){
+        SQLiteDatabase db = getWritableDatabase();
+        mRefs++;
+        return db;
     }
 
+    public synchronized void release(){
+        if (mRefs > 0 && --mRefs == 0) close();
+    }
+
+    public synchronized int refs(){
+        return mRefs;
+    }
+
+    // LIFE CYCLE METHODS
+
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(DB_CREATE);
+        migrate(db, 0, mVersion);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        Log.w(Dao.class.getName(), "Upgrading DB from v. " + oldVersion + " to " + newVersion);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_LOCATIONS);
-        onCreate(db);
+        log("Upgrading DB from v. " + oldVersion + " to " + newVersion);
+        migrate(db, oldVersion, newVersion);
     }
 
-
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        log("Downgrading DB from v. " + oldVersion + " to " + newVersion);
+        migrate(db, oldVersion, newVersion);
+    }
 
     // MIGRATIONS
 
-    private static class Patch {
+    /**
+     * Walks the schema from one version to another, applying patches on the way up and reverting
+     * them on the way down. SQLiteOpenHelper already wraps create/upgrade/downgrade in a transaction,
+     * so a failed patch leaves the DB at its old version.
+     *
+     * @param db Database being migrated
+     * @param from Version the DB is currently at
+     * @param to Version the DB should end up at
+     */
+
+    protected static void migrate(SQLiteDatabase db, int from, int to){
+        for (int v = from; v < to; v++) PATCHES[v].apply(db);
+        for (int v = from; v > to; v--) PATCHES[v - 1].revert(db);
+    }
+
+    protected static class Patch {
         public void apply(SQLiteDatabase db){}
         public void revert(SQLiteDatabase db){}
     }
 
+    // PATCHES[v] migrates the schema from version v to version v + 1
+
     protected static final Patch[] PATCHES = new Patch[] {
+        // v0 -> v1: create locations table
+        new Patch(){
+            @Override
+            public void apply(SQLiteDatabase db) {
+                db.execSQL(DB_CREATE);
+            }
+
+            @Override
+            public void revert(SQLiteDatabase db) {
+                db.execSQL(DB_DROP);
+            }
+        },
+        // v1 -> v2, v2 -> v3: pre-migration releases, which rebuilt the table on every upgrade
         new Patch(){
             @Override
             public void apply(SQLiteDatabase db) {
+                db.execSQL(DB_DROP);
                 db.execSQL(DB_CREATE);
             }
+        },
+        new Patch(){
+            @Override
+            public void apply(SQLiteDatabase db) {
+                db.execSQL(DB_DROP);
+                db.execSQL(DB_CREATE);
+            }
+        },
+        // v3 -> v4: index locations by time for getAllSince() & forgetSince()
+        new Patch(){
+            @Override
+            public void apply(SQLiteDatabase db) {
+                db.execSQL("create index " + INDEX_LOCATIONS_TIME +
+                    " on " + TABLE_LOCATIONS + " (" + COLUMN_TIME + ");");
+            }
+
+            @Override
+            public void revert(SQLiteDatabase db) {
+                db.execSQL("drop index if exists " + INDEX_LOCATIONS_TIME + ";");
+            }
+        },
+        // v4 -> v5: append-only location history (for trails), indexed for per-user reads & pruning
+        new Patch(){
+            @Override
+            public void apply(SQLiteDatabase db) {
+                db.execSQL(HISTORY_CREATE);
+                db.execSQL("create index " + INDEX_HISTORY_USER_TIME +
+                    " on " + TABLE_HISTORY + " (" + COLUMN_USER_ID + ", " + COLUMN_TIME + ");");
+                db.execSQL("create index " + INDEX_HISTORY_TIME +
+                    " on " + TABLE_HISTORY + " (" + COLUMN_TIME + ");");
+            }
+
+            @Override
+            public void revert(SQLiteDatabase db) {
+                db.execSQL(HISTORY_DROP); // drops its indexes too
+            }
+        },
+        // v5 -> v6: outbound queue of updates not yet accepted by the server (one row per user)
+        new Patch(){
+            @Override
+            public void apply(SQLiteDatabase db) {
+                db.execSQL(OUTBOX_CREATE);
+            }
 
             @Override
             public void revert(SQLiteDatabase db) {
-                db.execSQL("DROP TABLE IF EXISTS" + TABLE_LOCATIONS);
+                db.execSQL(OUTBOX_DROP);
             }
         }
     };
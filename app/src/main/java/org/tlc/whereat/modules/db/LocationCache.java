@@ -0,0 +1,186 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.db;
+
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.util.TimeIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LocationCache {
+
+    // FIELDS
+
+    public static final int DEFAULT_CAPACITY = 500;
+
+    protected static final Comparator<UserLocation> BY_TIME = (a, b) -> {
+        long x = a.getTime(), y = b.getTime();
+        return x < y ? -1 : (x == y ? 0 : 1);
+    };
+
+    private static LocationCache sInstance;
+
+    protected final int mCapacity;
+    protected final LinkedHashMap<String, UserLocation> mLocs;
+    protected final TimeIndex<String> mExpiry = new TimeIndex<>();
+    protected boolean mComplete;
+    protected long mEvictions;
+    protected long mHits;
+    protected long mMisses;
+
+    // CONSTRUCTORS
+
+    /**
+     * Returns the process-wide cache, which (like the connection it fronts) is shared by every DAO
+     */
+
+    public static synchronized LocationCache getInstance(){
+        if (sInstance == null) sInstance = new LocationCache(DEFAULT_CAPACITY);
+        return sInstance;
+    }
+
+    public LocationCache(int capacity){
+        mCapacity = capacity;
+        mLocs = new LinkedHashMap<String, UserLocation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserLocation> eldest) {
+                if (size() <= mCapacity) return false;
+                mComplete = false; // an evicted row now lives only on disk
+                mEvictions++;
+                mExpiry.remove(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    // ACCESSORS
+
+    public int capacity(){ return mCapacity; }
+    public synchronized int size(){ return mLocs.size(); }
+    public synchronized long hits(){ return mHits; }
+    public synchronized long misses(){ return mMisses; }
+    public synchronized long evictions(){ return mEvictions; }
+
+    /**
+     * @return True if the cache holds every row in the DB (so whole-table reads can skip disk)
+     */
+
+    public synchronized boolean isComplete(){ return mComplete; }
+
+    // READS
+
+    public synchronized UserLocation get(String id){
+        UserLocation l = mLocs.get(id);
+        if (l == null) mMisses++;
+        else mHits++;
+        return l;
+    }
+
+    /**
+     * @return All cached locations, oldest first
+     */
+
+    public synchronized List<UserLocation> getAll(){
+        return sorted(mLocs.values());
+    }
+
+    public synchronized List<UserLocation> getAllSince(long t){
+        List<UserLocation> ls = new ArrayList<>();
+        for (UserLocation l : mLocs.values()) if (l.getTime() > t) ls.add(l);
+        return sorted(ls);
+    }
+
+    // WRITES
+
+    public synchronized void put(UserLocation l){
+        mLocs.put(l.getId(), l);
+        mExpiry.touch(l.getId(), l.getTime());
+    }
+
+    public synchronized void putAll(List<UserLocation> ls){
+        for (UserLocation l : ls) put(l);
+    }
+
+    /**
+     * Replaces the cache's contents with a full read of the DB, marking it complete if every row fit
+     *
+     * @param ls Every location in the DB
+     */
+
+    public synchronized void warm(List<UserLocation> ls){
+        mLocs.clear();
+        mExpiry.clear();
+        mComplete = true;
+        putAll(ls);
+    }
+
+    /**
+     * Marks the cache complete after every row of the DB has been streamed through #put,
+     * unless some row was evicted while the stream was running
+     *
+     * @param evictions Value of #evictions() when the stream began
+     */
+
+    public synchronized void markComplete(long evictions){
+        if (evictions == mEvictions) mComplete = true;
+    }
+
+    public synchronized void remove(String id){
+        mLocs.remove(id);
+        mExpiry.remove(id);
+    }
+
+    public synchronized void forgetSince(long t){
+        for (String id : mExpiry.expire(t)) mLocs.remove(id);
+    }
+
+    /**
+     * Empties the cache, which then mirrors the (just cleared) DB exactly
+     */
+
+    public synchronized void clear(){
+        mLocs.clear();
+        mExpiry.clear();
+        mComplete = true;
+    }
+
+    /**
+     * Forgets contents without claiming anything about the DB (ie: on cold start, or in tests)
+     */
+
+    public synchronized void invalidate(){
+        mLocs.clear();
+        mExpiry.clear();
+        mComplete = false;
+        mEvictions = mHits = mMisses = 0;
+    }
+
+    // HELPERS
+
+    protected static List<UserLocation> sorted(Iterable<UserLocation> ls){
+        List<UserLocation> copy = new ArrayList<>();
+        for (UserLocation l : ls) copy.add(l);
+        Collections.sort(copy, BY_TIME);
+        return copy;
+    }
+}
@@ -14,42 +14,140 @@
  * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
  *
  */
-
 package org.tlc.whereat.modules.db;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
 
 public class LocationDao {
 
     // FIELDS
 
     public static final String TAG = LocationDao.class.getSimpleName();
+
+    protected static final String ID_EQUALS = Dao.COLUMN_ID + " = ?";
+    protected static final String TIME_GREATER_THAN = Dao.COLUMN_TIME + " > ?";
+    protected static final String TIME_LESS_THAN = Dao.COLUMN_TIME + " < ?";
+
+    protected static final String INSERT_OR_REPLACE =
+        "insert or replace into " + Dao.TABLE_LOCATIONS + " (" +
+            Dao.COLUMN_ID + ", " +
+            Dao.COLUMN_LAT + ", " +
+            Dao.COLUMN_LON + ", " +
+            Dao.COLUMN_TIME + ") values (?, ?, ?, ?);";
+    protected static final String DELETE_BY_ID =
+        "delete from " + Dao.TABLE_LOCATIONS + " where " + ID_EQUALS + ";";
+    protected static final String DELETE_OLDER_THAN =
+        "delete from " + Dao.TABLE_LOCATIONS + " where " + TIME_LESS_THAN + ";";
+    protected static final String COUNT =
+        "select count(*) from " + Dao.TABLE_LOCATIONS + ";";
+
+    protected static final String USER_ID_EQUALS = Dao.COLUMN_USER_ID + " = ?";
+    protected static final String APPEND_HISTORY =
+        "insert into " + Dao.TABLE_HISTORY + " (" +
+            Dao.COLUMN_USER_ID + ", " +
+            Dao.COLUMN_LAT + ", " +
+            Dao.COLUMN_LON + ", " +
+            Dao.COLUMN_TIME + ") values (?, ?, ?, ?);";
+    protected static final String DELETE_HISTORY_OLDER_THAN =
+        "delete from " + Dao.TABLE_HISTORY + " where " + TIME_LESS_THAN + ";";
+    // deletes every point of one user's (?1) older than their n-th most recent one (bound to offset
+    // ?2 = n - 1), seeking on the (user, time) index rather than scanning the whole table
+    protected static final String TRIM_HISTORY =
+        "delete from " + Dao.TABLE_HISTORY + " where " + Dao.COLUMN_USER_ID + " = ?1 and " + Dao.COLUMN_TIME + " < (" +
+            "select " + Dao.COLUMN_TIME + " from " + Dao.TABLE_HISTORY +
+            " where " + Dao.COLUMN_USER_ID + " = ?1" +
+            " order by " + Dao.COLUMN_TIME + " desc limit 1 offset ?2);";
+
+    // coalesces to one pending update per user: the newest fix, asking for everything since the
+    // oldest last ping it replaces (so no peer locations are skipped while updates are queued)
+    protected static final String ENQUEUE =
+        "insert or replace into " + Dao.TABLE_OUTBOX + " (" +
+            Dao.COLUMN_USER_ID + ", " +
+            Dao.COLUMN_LAT + ", " +
+            Dao.COLUMN_LON + ", " +
+            Dao.COLUMN_TIME + ", " +
+            Dao.COLUMN_LAST_PING + ") values (?1, ?2, ?3, ?4, min(?5, coalesce((" +
+            "select " + Dao.COLUMN_LAST_PING + " from " + Dao.TABLE_OUTBOX +
+            " where " + Dao.COLUMN_USER_ID + " = ?1), ?5)));";
+    // only removes the update that was sent, not a newer one queued while it was in flight
+    protected static final String DEQUEUE =
+        "delete from " + Dao.TABLE_OUTBOX + " where " + USER_ID_EQUALS + " and " + Dao.COLUMN_TIME + " = ?;";
+    protected static final String DELETE_QUEUED_OLDER_THAN =
+        "delete from " + Dao.TABLE_OUTBOX + " where " + TIME_LESS_THAN + ";";
+
+    public static final int HISTORY_CAP = 100; // max points kept per user
+
+    public static final String IO_THREAD_NAME = "whereat-db-io";
+
+    // every DAO funnels its I/O through this one thread, so writes are serialized in the order issued
+    protected static final Scheduler sIoScheduler =
+        Schedulers.from(Executors.newSingleThreadExecutor(r -> new Thread(r, IO_THREAD_NAME)));
+
     protected Context mCtx;
+    protected Scheduler mScheduler = sIoScheduler;
     protected SQLiteDatabase mDb;
     protected Dao mDao;
+    protected LocationCache mCache;
     protected String[] mAllColumns = {
         Dao.COLUMN_ID,
         Dao.COLUMN_LAT,
         Dao.COLUMN_LON,
         Dao.COLUMN_TIME };
+    protected String[] mHistoryColumns = {
+        Dao.COLUMN_USER_ID,
+        Dao.COLUMN_LAT,
+        Dao.COLUMN_LON,
+        Dao.COLUMN_TIME };
+    protected String[] mOutboxColumns = {
+        Dao.COLUMN_USER_ID,
+        Dao.COLUMN_LAT,
+        Dao.COLUMN_LON,
+        Dao.COLUMN_TIME,
+        Dao.COLUMN_LAST_PING };
     protected boolean mConnected;
+    protected volatile boolean mHistoryEnabled; // toggled from the preference thread
+
+    // compiled once per connection, closed on disconnect
+    protected SQLiteStatement mInsertStmt;
+    protected SQLiteStatement mDeleteStmt;
+    protected SQLiteStatement mForgetStmt;
+    protected SQLiteStatement mCountStmt;
+    protected SQLiteStatement mAppendStmt;
+    protected SQLiteStatement mForgetHistoryStmt;
+    protected SQLiteStatement mTrimHistoryStmt;
+    protected SQLiteStatement mEnqueueStmt;
+    protected SQLiteStatement mDequeueStmt;
+    protected SQLiteStatement mForgetQueuedStmt;
 
     // CONSTRUCTOR
 
     public LocationDao(Context ctx){
         mCtx = ctx;
         mDao = Dao.getInstance(ctx);
+        mCache = LocationCache.getInstance();
     }
 
     // GETTERS
@@ -58,9 +156,27 @@ public class LocationDao {
         return mConnected;
     }
 
+    public boolean isHistoryEnabled(){
+        return mHistoryEnabled;
+    }
+
+    // SETTERS
+
+    /**
+     * Toggles history mode, in which every saved location is also appended to a per-user trail
+     * (trimmed to the last HISTORY_CAP points as it is appended to, and pruned along with
+     * `locations` by #forgetSince)
+     */
+
+    public LocationDao setHistoryEnabled(boolean enabled){
+        mHistoryEnabled = enabled;
+        return this;
+    }
+
     // PUBLIC METHODS
 
-    public LocationDao connect() {
+    public synchronized LocationDao connect() {
+        if (mConnected) return this;
         try {
             tryConnect();
             mConnected = true;
@@ -71,62 +187,430 @@ public class LocationDao {
         return this;
     }
 
-    public void disconnect() {
-        mDao.close();
-        mDb.close();
+    /**
+     * Releases this DAO's hold on the shared connection, which is only closed once every
+     * other DAO using it has also disconnected
+     */
+
+    public synchronized void disconnect() {
+        if (!mConnected) return;
+        closeStatements();
+        mDao.release();
+        mConnected = false;
     }
 
     private void tryConnect() throws SQLException {
-        mDb = mDao.getWritableDatabase();
+        mDb = mDao.acquire();
+        compileStatements();
     }
 
     // CRUD
 
-    public long save(UserLocation loc){
-        return mDb.replace(Dao.TABLE_LOCATIONS, null, parseRow(loc));
+    // Every write goes to disk first, then to the shared LocationCache, so reads can be served from
+    // memory: by id whenever the row is cached, and whole-table once the cache has seen every row.
+
+    public synchronized long save(UserLocation loc){
+        long row = mHistoryEnabled ? insertAndAppend(loc) : insert(loc);
+        mCache.put(loc);
+        return row;
+    }
+
+    /**
+     * Writes a batch of locations (ie: one server response) in a single transaction,
+     * reusing the connection's compiled insert statement for every row
+     *
+     * @param locs Locations to insert or replace
+     * @return Number of rows written
+     */
+
+    public synchronized int saveAll(List<UserLocation> locs){
+        mDb.beginTransaction();
+        try {
+            Set<String> appended = new HashSet<>();
+            for (UserLocation loc : locs) {
+                insert(loc);
+                if (mHistoryEnabled) {
+                    append(loc);
+                    appended.add(loc.getId());
+                }
+            }
+            for (String id : appended) trim(id);
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        mCache.putAll(locs);
+        return locs.size();
     }
 
     public UserLocation get(String id){
-        Cursor c = mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, idEquals(id), null, null, null, null);
-        return parseUserLocation(c);
+        UserLocation cached = mCache.get(id);
+        if (cached != null) return cached;
+
+        Cursor c = mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, ID_EQUALS, new String[]{ id }, null, null, null);
+        UserLocation l = parseUserLocation(c);
+        mCache.put(l);
+        return l;
     }
 
     public List<UserLocation> getAll(){
+        if (mCache.isComplete()) return mCache.getAll();
+
         Cursor c = mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, null, null, null, null, null);
-        return parseUserLocations(c);
+        List<UserLocation> ls = parseUserLocations(c);
+        mCache.warm(ls);
+        return ls;
     }
 
     public List<UserLocation> getAllSince(long t){
-        Cursor c = mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, timeGreaterThan(t), null, null, null, null, null);
+        if (mCache.isComplete()) return mCache.getAllSince(t);
+
+        Cursor c = mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, TIME_GREATER_THAN, new String[]{ Long.toString(t) }, null, null, null, null);
         return parseUserLocations(c);
     }
 
-    public int delete(String id) {
-        return mDb.delete(Dao.TABLE_LOCATIONS, idEquals(id), null);
+    /**
+     * Retrieves a user's location history, oldest point first
+     *
+     * @param id Id of user whose trail to retrieve
+     * @return Up to HISTORY_CAP locations (empty if history mode was never enabled)
+     */
+
+    public List<UserLocation> getTrail(String id){
+        Cursor c = mDb.query(Dao.TABLE_HISTORY, mHistoryColumns, USER_ID_EQUALS, new String[]{ id }, null, null, Dao.COLUMN_TIME);
+        return parseUserLocations(c);
     }
 
-    public int forgetSince(long t) {
-        return mDb.delete(Dao.TABLE_LOCATIONS, timeLessThan(t), null);
+    public synchronized int delete(String id) {
+        mDeleteStmt.bindString(1, id);
+        int deleted = mDeleteStmt.executeUpdateDelete();
+        mCache.remove(id);
+        return deleted;
     }
 
-    public int clear(){
-        return mDb.delete(Dao.TABLE_LOCATIONS,null,null);
+    /**
+     * Deletes a batch of locations (ie: peers a sync response reports as removed) in one transaction
+     *
+     * @param ids Ids of locations to delete
+     * @return Number of rows deleted
+     */
+
+    public synchronized int deleteAll(List<String> ids){
+        int deleted = 0;
+        mDb.beginTransaction();
+        try {
+            for (String id : ids) {
+                mDeleteStmt.bindString(1, id);
+                deleted += mDeleteStmt.executeUpdateDelete();
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        for (String id : ids) mCache.remove(id);
+        return deleted;
+    }
+
+    /**
+     * Deletes all locations older than a given time, and prunes history down to the same time
+     * window (trails are already capped per user as they are appended to). Queued updates older
+     * than the same time are dropped too, since peers would forget them on arrival.
+     *
+     * @param t Expiration time (in millis since 1970)
+     * @return Number of (current) locations deleted
+     */
+
+    public synchronized int forgetSince(long t) {
+        mDb.beginTransaction();
+        try {
+            mForgetStmt.bindLong(1, t);
+            int deleted = mForgetStmt.executeUpdateDelete();
+
+            mForgetHistoryStmt.bindLong(1, t);
+            mForgetHistoryStmt.executeUpdateDelete();
+
+            mForgetQueuedStmt.bindLong(1, t);
+            mForgetQueuedStmt.executeUpdateDelete();
+
+            mDb.setTransactionSuccessful();
+            mCache.forgetSince(t);
+            return deleted;
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    public synchronized int clear(){
+        mDb.beginTransaction();
+        try {
+            int deleted = mDb.delete(Dao.TABLE_LOCATIONS, null, null);
+            mDb.delete(Dao.TABLE_HISTORY, null, null);
+            mDb.delete(Dao.TABLE_OUTBOX, null, null);
+            mDb.setTransactionSuccessful();
+            mCache.clear();
+            return deleted;
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    public synchronized long count(){
+        return mCountStmt.simpleQueryForLong();
+    }
+
+    // OUTBOX
+
+    // Updates are written here before they are sent and removed once the server accepts them, so
+    // a fix survives failed requests and restarts, and a burst of fixes collapses into one request.
+
+    /**
+     * Queues an update for the server, replacing any update already pending for the same user
+     *
+     * @param ult Fix to send, with the last ping to request peer locations since
+     * @return Row id of the queued update
+     */
+
+    public synchronized long enqueue(UserLocationTimestamped ult){
+        bindRow(mEnqueueStmt, ult.getUserLocation());
+        mEnqueueStmt.bindLong(5, ult.getLastPing());
+        return mEnqueueStmt.executeInsert();
+    }
+
+    /**
+     * @return Oldest pending update, or null if the outbox is empty
+     */
+
+    public UserLocationTimestamped nextQueued(){
+        Cursor c = mDb.query(Dao.TABLE_OUTBOX, mOutboxColumns, null, null, null, null, Dao.COLUMN_TIME, "1");
+        try {
+            return c.moveToFirst() ? new UserLocationTimestamped(c.getLong(4), doParseUserLocation(c)) : null;
+        } finally {
+            c.close();
+        }
     }
 
-    public long count(){
-        return DatabaseUtils.queryNumEntries(mDb, Dao.TABLE_LOCATIONS);
+    /**
+     * Removes an update once it has been sent (unless a newer fix has since replaced it)
+     *
+     * @return Number of updates removed (0 or 1)
+     */
+
+    public synchronized int dequeue(UserLocationTimestamped ult){
+        mDequeueStmt.bindString(1, ult.getUserLocation().getId());
+        mDequeueStmt.bindLong(2, ult.getUserLocation().getTime());
+        return mDequeueStmt.executeUpdateDelete();
+    }
+
+    public long countQueued(){
+        return DatabaseUtils.queryNumEntries(mDb, Dao.TABLE_OUTBOX);
+    }
+
+    // ASYNC
+
+    // Each call defers its synchronous twin onto the DB I/O scheduler: nothing touches disk until
+    // subscription, and results arrive on the I/O thread (so UI callers should observe on main).
+
+    public Observable<LocationDao> connectAsync(){
+        return async(this::connect);
+    }
+
+    public Observable<LocationDao> disconnectAsync(){
+        return async(() -> { disconnect(); return this; });
+    }
+
+    public Observable<Long> saveAsync(UserLocation loc){
+        return async(() -> save(loc));
+    }
+
+    public Observable<Integer> saveAllAsync(List<UserLocation> locs){
+        return async(() -> saveAll(locs));
+    }
+
+    public Observable<UserLocation> getAsync(String id){
+        return async(() -> get(id));
+    }
+
+    public Observable<List<UserLocation>> getAllAsync(){
+        return async(this::getAll);
+    }
+
+    public Observable<List<UserLocation>> getAllSinceAsync(long t){
+        return async(() -> getAllSince(t));
+    }
+
+    public Observable<List<UserLocation>> getTrailAsync(String id){
+        return async(() -> getTrail(id));
+    }
+
+    public Observable<Long> enqueueAsync(UserLocationTimestamped ult){
+        return async(() -> enqueue(ult));
+    }
+
+    /**
+     * @return Oldest pending update, or nothing (rather than null) if the outbox is empty
+     */
+
+    public Observable<UserLocationTimestamped> nextQueuedAsync(){
+        return Observable.defer(() -> {
+            UserLocationTimestamped ult = nextQueued();
+            return ult == null ? Observable.<UserLocationTimestamped>empty() : Observable.just(ult);
+        }).subscribeOn(mScheduler);
+    }
+
+    public Observable<Integer> dequeueAsync(UserLocationTimestamped ult){
+        return async(() -> dequeue(ult));
+    }
+
+    /**
+     * Runs an async call whose result isn't needed, logging any error (which, left unhandled, would
+     * be re-thrown on the I/O thread and crash the process)
+     *
+     * @param call Async DAO call
+     * @param what What the call does, for the log (ie: "saving location")
+     */
+
+    public static <T> Subscription fire(Observable<T> call, String what){
+        return call.subscribe(
+            result -> {},
+            e -> Log.e(TAG, "Error " + what + ": " + e.getMessage()));
+    }
+
+    // STREAMS
+
+    // Rows are parsed one at a time as subscribers request them (honoring backpressure), so memory
+    // use does not grow with the table; the cursor is closed on completion, error or unsubscription.
+
+    // Once the cache holds every row, streams are served from it instead (still on the I/O thread,
+    // so they observe every write issued before them); a full stream from disk warms the cache.
+
+    public Observable<UserLocation> streamAll(){
+        return Observable.defer(() -> {
+            if (mCache.isComplete()) return Observable.from(mCache.getAll());
+
+            long evictions = mCache.evictions();
+            return stream(() -> mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, null, null, null, null, null))
+                .doOnNext(mCache::put)
+                .doOnCompleted(() -> mCache.markComplete(evictions));
+        }).subscribeOn(mScheduler);
+    }
+
+    public Observable<UserLocation> streamAllSince(long t){
+        return Observable.defer(() -> mCache.isComplete() ?
+            Observable.from(mCache.getAllSince(t)) :
+            stream(() ->
+                mDb.query(Dao.TABLE_LOCATIONS, mAllColumns, TIME_GREATER_THAN, new String[]{ Long.toString(t) }, null, null, null, null))
+        ).subscribeOn(mScheduler);
+    }
+
+    public Observable<Integer> deleteAsync(String id){
+        return async(() -> delete(id));
+    }
+
+    public Observable<Integer> deleteAllAsync(List<String> ids){
+        return async(() -> deleteAll(ids));
+    }
+
+    public Observable<Integer> forgetSinceAsync(long t){
+        return async(() -> forgetSince(t));
+    }
+
+    public Observable<Integer> clearAsync(){
+        return async(this::clear);
     }
 
     // HELPERS
 
-    protected ContentValues parseRow(UserLocation loc){
-        ContentValues vals = new ContentValues();
-        vals.put(Dao.COLUMN_ID, loc.getId());
-        vals.put(Dao.COLUMN_LAT, loc.getLatitude());
-        vals.put(Dao.COLUMN_LON, loc.getLongitude());
-        vals.put(Dao.COLUMN_TIME, loc.getTime());
+    protected <T> Observable<T> async(Func0<T> fn){
+        return Observable.defer(() -> Observable.just(fn.call())).subscribeOn(mScheduler);
+    }
+
+    protected Observable<UserLocation> stream(Func0<Cursor> query){
+        return Observable.using(query, c -> Observable.from(iterate(c)), Cursor::close).subscribeOn(mScheduler);
+    }
+
+    protected Iterable<UserLocation> iterate(Cursor c){
+        return () -> new Iterator<UserLocation>() {
+            boolean mReady = c.moveToFirst();
+
+            @Override
+            public boolean hasNext() {
+                return mReady;
+            }
+
+            @Override
+            public UserLocation next() {
+                if (!mReady) throw new NoSuchElementException();
+                UserLocation l = doParseUserLocation(c);
+                mReady = c.moveToNext();
+                return l;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    protected void compileStatements(){
+        mInsertStmt = mDb.compileStatement(INSERT_OR_REPLACE);
+        mDeleteStmt = mDb.compileStatement(DELETE_BY_ID);
+        mForgetStmt = mDb.compileStatement(DELETE_OLDER_THAN);
+        mCountStmt = mDb.compileStatement(COUNT);
+        mAppendStmt = mDb.compileStatement(APPEND_HISTORY);
+        mForgetHistoryStmt = mDb.compileStatement(DELETE_HISTORY_OLDER_THAN);
+        mTrimHistoryStmt = mDb.compileStatement(TRIM_HISTORY);
+        mEnqueueStmt = mDb.compileStatement(ENQUEUE);
+        mDequeueStmt = mDb.compileStatement(DEQUEUE);
+        mForgetQueuedStmt = mDb.compileStatement(DELETE_QUEUED_OLDER_THAN);
+    }
+
+    protected void closeStatements(){
+        for (SQLiteStatement stmt : new SQLiteStatement[]{
+            mInsertStmt, mDeleteStmt, mForgetStmt, mCountStmt, mAppendStmt, mForgetHistoryStmt, mTrimHistoryStmt,
+            mEnqueueStmt, mDequeueStmt, mForgetQueuedStmt }){
+            if (stmt != null) stmt.close();
+        }
+        mInsertStmt = mDeleteStmt = mForgetStmt = mCountStmt = null;
+        mAppendStmt = mForgetHistoryStmt = mTrimHistoryStmt = null;
+        mEnqueueStmt = mDequeueStmt = mForgetQueuedStmt = null;
+    }
+
+    protected long insert(UserLocation loc){
+        bindRow(mInsertStmt, loc);
+        return mInsertStmt.executeInsert();
+    }
+
+    protected long insertAndAppend(UserLocation loc){
+        mDb.beginTransaction();
+        try {
+            long row = insert(loc);
+            append(loc);
+            trim(loc.getId());
+            mDb.setTransactionSuccessful();
+            return row;
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    protected long append(UserLocation loc){
+        bindRow(mAppendStmt, loc);
+        return mAppendStmt.executeInsert();
+    }
+
+    // keeps only a user's last HISTORY_CAP points
+    protected int trim(String id){
+        mTrimHistoryStmt.bindString(1, id);
+        mTrimHistoryStmt.bindLong(2, HISTORY_CAP - 1);
+        return mTrimHistoryStmt.executeUpdateDelete();
+    }
 
-        return vals;
+    protected void bindRow(SQLiteStatement stmt, UserLocation loc){
+        stmt.bindString(1, loc.getId());
+        stmt.bindDouble(2, loc.getLatitude());
+        stmt.bindDouble(3, loc.getLongitude());
+        stmt.bindLong(4, loc.getTime());
     }
 
     protected UserLocation parseUserLocation(Cursor c){
@@ -161,16 +645,4 @@ public class LocationDao {
         );
     }
 
-    protected static String idEquals(String id){
-        return String.format("%s = '%s'", Dao.COLUMN_ID, id);
-    }
-
-    protected static String timeGreaterThan(long t){
-        return String.format("%s > %s", Dao.COLUMN_TIME, t);
-    }
-
-    protected static String timeLessThan(long t) {
-        return String.format("%s < %s", Dao.COLUMN_TIME, t);
-    }
-
 }
@@ -0,0 +1,121 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.location;
+
+import org.tlc.whereat.model.UserLocation;
+
+import static com.google.android.gms.location.LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY;
+import static com.google.android.gms.location.LocationRequest.PRIORITY_HIGH_ACCURACY;
+import static org.tlc.whereat.util.GeoUtils.distance;
+
+/**
+ * Decides how often (and how precisely) to poll for location: the interval doubles each time
+ * STILL_FIXES consecutive fixes land within the larger of STILL_METERS and their own accuracy
+ * radius of where the device stopped (so the jitter of coarse fixes doesn't count as movement), up to
+ * MAX_BACKOFF times the configured interval, and snaps back to it as soon as the device moves.
+ * On low battery the interval is at least LOW_BATTERY_BACKOFF times the configured one.
+ */
+
+public class AdaptivePollPolicy {
+
+    // FIELDS
+
+    public static final double STILL_METERS = 25.0;
+    public static final int STILL_FIXES = 3;
+    public static final int MAX_BACKOFF = 8;
+    public static final int LOW_BATTERY_BACKOFF = 2;
+
+    protected int mBaseInterval;
+    protected int mBackoff = 1;
+    protected int mStillFixes;
+    protected UserLocation mAnchor;
+    protected boolean mLowBattery;
+
+    // CONSTRUCTOR
+
+    public AdaptivePollPolicy(int baseInterval){
+        mBaseInterval = baseInterval;
+    }
+
+    // ACCESSORS
+
+    public int interval(){
+        return mBaseInterval * Math.max(mBackoff, mLowBattery ? LOW_BATTERY_BACKOFF : 1);
+    }
+
+    public int priority(){
+        return isThrottled() ? PRIORITY_BALANCED_POWER_ACCURACY : PRIORITY_HIGH_ACCURACY;
+    }
+
+    public boolean isStill(){
+        return mBackoff > 1;
+    }
+
+    public boolean isThrottled(){
+        return isStill() || mLowBattery;
+    }
+
+    // PUBLIC METHODS
+
+    /**
+     * Feeds the policy a new fix
+     *
+     * @param ul Latest location
+     * @param accuracy Fix's accuracy radius (in meters, 0 if unknown)
+     * @return True if the location request should be rebuilt (ie: interval or priority changed)
+     */
+
+    public boolean onFix(UserLocation ul, float accuracy){
+        int interval = interval();
+        int priority = priority();
+
+        if (mAnchor != null && distance(mAnchor, ul) < Math.max(STILL_METERS, accuracy)) {
+            if (++mStillFixes >= STILL_FIXES) {
+                mBackoff = Math.min(mBackoff * 2, MAX_BACKOFF);
+                mStillFixes = 0;
+            }
+        } else {
+            mAnchor = ul;
+            mStillFixes = 0;
+            mBackoff = 1;
+        }
+
+        return interval != interval() || priority != priority();
+    }
+
+    /**
+     * @return True if the location request should be rebuilt
+     */
+
+    public boolean setLowBattery(boolean low){
+        int interval = interval();
+        int priority = priority();
+        mLowBattery = low;
+        return interval != interval() || priority != priority();
+    }
+
+    public void setBaseInterval(int baseInterval){
+        mBaseInterval = baseInterval;
+    }
+
+    public void reset(){
+        mAnchor = null;
+        mStillFixes = 0;
+        mBackoff = 1;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.location;
+
+import org.tlc.whereat.model.UserLocation;
+
+import static org.tlc.whereat.util.GeoUtils.distance;
+
+/**
+ * Decides whether a fix is worth publishing: fixes that land within the larger of a minimum
+ * distance and the fix's own accuracy radius of the last published fix are suppressed, except
+ * that one is let through every KEEP_ALIVE millis so peers (and the server) don't forget us.
+ * A minimum distance of 0 disables suppression.
+ */
+
+public class PublishFilter {
+
+    // FIELDS
+
+    public static final long KEEP_ALIVE = 5 * 60 * 1000L; // 5 min
+
+    protected int mMinDistance;
+    protected long mKeepAlive;
+    protected UserLocation mLast;
+
+    // CONSTRUCTORS
+
+    public PublishFilter(int minDistance){
+        this(minDistance, KEEP_ALIVE);
+    }
+
+    public PublishFilter(int minDistance, long keepAlive){
+        mMinDistance = minDistance;
+        mKeepAlive = keepAlive;
+    }
+
+    // ACCESSORS
+
+    public int minDistance(){ return mMinDistance; }
+    public boolean isEnabled(){ return mMinDistance > 0; }
+
+    // PUBLIC METHODS
+
+    /**
+     * @param ul Latest fix
+     * @param accuracy Fix's accuracy radius (in meters, 0 if unknown)
+     * @return True if the fix should be published (in which case it becomes the new reference)
+     */
+
+    public boolean accept(UserLocation ul, float accuracy){
+        if (!isEnabled() || mLast == null || isKeepAliveDue(ul) || hasMoved(ul, accuracy)) {
+            mLast = ul;
+            return true;
+        }
+        return false;
+    }
+
+    public void setMinDistance(int minDistance){
+        mMinDistance = minDistance;
+    }
+
+    /**
+     * Forgets the last published fix, so the next one is always published
+     */
+
+    public void reset(){
+        mLast = null;
+    }
+
+    // HELPERS
+
+    protected boolean isKeepAliveDue(UserLocation ul){
+        return ul.getTime() - mLast.getTime() >= mKeepAlive;
+    }
+
+    protected boolean hasMoved(UserLocation ul, float accuracy){
+        return distance(mLast, ul) > Math.max(mMinDistance, accuracy);
+    }
+}
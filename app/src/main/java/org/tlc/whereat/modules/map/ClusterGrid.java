@@ -0,0 +1,241 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups points into clusters by dropping them into a grid of CELL_PX square (screen) cells laid
+ * over the Web Mercator projection at the current zoom level, so each cell holds the points that
+ * would draw within a few dozen pixels of each other. Adding, moving or removing a point touches
+ * only its cell(s), which are recorded as dirty so a renderer can update just those; changing
+ * zoom level regroups every point.
+ *
+ * Points are identified by the Item handles the grid hands out. Not thread-safe.
+ */
+
+public class ClusterGrid {
+
+    // FIELDS
+
+    public static final int TILE_PX = 256;
+    public static final int CELL_PX = 64;
+    public static final int MAX_ZOOM = 21;
+    protected static final double MAX_LAT = 85.05112878; // where Web Mercator squares the world
+
+    protected int mZoom = 0;
+    protected Set<Item> mItems = new LinkedHashSet<>();
+    protected Map<Long, Cell> mCells = new HashMap<>();
+    protected Set<Long> mDirty = new HashSet<>();
+
+    public static class Item {
+        protected LatLon mPosition;
+        protected String mTitle;
+        protected long mCell;
+
+        protected Item(LatLon position, String title){
+            mPosition = position;
+            mTitle = title;
+        }
+
+        public LatLon position(){ return mPosition; }
+        public String title(){ return mTitle; }
+    }
+
+    public static class Cell {
+        protected final long mKey;
+        protected final Set<Item> mItems = new LinkedHashSet<>();
+        protected double mLatSum;
+        protected double mLonSum;
+
+        protected Cell(long key){
+            mKey = key;
+        }
+
+        public long key(){ return mKey; }
+        public int size(){ return mItems.size(); }
+        public Item first(){ return mItems.iterator().next(); }
+
+        /**
+         * @return The lone item's position, or the centroid of a cluster's
+         */
+
+        public LatLon position(){
+            return size() == 1 ? first().position() : new LatLon(mLatSum / size(), mLonSum / size());
+        }
+
+        protected void add(Item item){
+            mItems.add(item);
+            mLatSum += item.mPosition.getLat();
+            mLonSum += item.mPosition.getLon();
+        }
+
+        protected void remove(Item item){
+            mItems.remove(item);
+            mLatSum -= item.mPosition.getLat();
+            mLonSum -= item.mPosition.getLon();
+        }
+    }
+
+    /**
+     * The range of cells covering some bounds (at the zoom level it was computed for)
+     */
+
+    public static class Viewport {
+        public static final Viewport ALL =
+            new Viewport(Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        protected final int mMinX, mMaxX, mMinY, mMaxY;
+
+        protected Viewport(int minX, int maxX, int minY, int maxY){
+            mMinX = minX;
+            mMaxX = maxX;
+            mMinY = minY;
+            mMaxY = maxY;
+        }
+
+        public boolean contains(long key){
+            int x = column(key);
+            int y = row(key);
+            boolean inX = mMinX <= mMaxX // else the viewport wraps around the antimeridian
+                ? x >= mMinX && x <= mMaxX
+                : x >= mMinX || x <= mMaxX;
+            return inX && y >= mMinY && y <= mMaxY;
+        }
+    }
+
+    // ACCESSORS
+
+    public int zoom(){ return mZoom; }
+    public int size(){ return mItems.size(); }
+    public Cell cell(long key){ return mCells.get(key); }
+    public Collection<Cell> cells(){ return mCells.values(); }
+
+    // PUBLIC METHODS
+
+    public Item add(LatLon position, String title){
+        Item item = new Item(position, title);
+        mItems.add(item);
+        place(item);
+        return item;
+    }
+
+    public void move(Item item, LatLon position){
+        if (!mItems.contains(item)) return;
+        displace(item);
+        item.mPosition = position;
+        place(item);
+    }
+
+    public void remove(Item item){
+        if (mItems.remove(item)) displace(item);
+    }
+
+    /**
+     * Regroups every item if the zoom level changed (leaving no cells dirty: after a regroup,
+     * every cell is new)
+     *
+     * @return True if items were regrouped
+     */
+
+    public boolean setZoom(int zoom){
+        zoom = Math.max(0, Math.min(zoom, MAX_ZOOM));
+        if (zoom == mZoom) return false;
+
+        mZoom = zoom;
+        mCells.clear();
+        for (Item item : mItems) place(item);
+        mDirty.clear();
+        return true;
+    }
+
+    /**
+     * @return Keys of the cells changed since the last call (some may since have emptied, and so
+     * no longer exist)
+     */
+
+    public List<Long> drainDirty(){
+        List<Long> dirty = new ArrayList<>(mDirty);
+        mDirty.clear();
+        return dirty;
+    }
+
+    public Viewport viewport(LatLonBounds b){
+        LatLon sw = b.getSouthWest();
+        LatLon ne = b.getNorthEast();
+        return new Viewport(
+            column(sw.getLon(), mZoom), column(ne.getLon(), mZoom),
+            row(ne.getLat(), mZoom), row(sw.getLat(), mZoom));
+    }
+
+    public void clear(){
+        mItems.clear();
+        mCells.clear();
+        mDirty.clear();
+    }
+
+    // HELPERS
+
+    protected void place(Item item){
+        item.mCell = key(item.mPosition, mZoom);
+        Cell cell = mCells.get(item.mCell);
+        if (cell == null) mCells.put(item.mCell, cell = new Cell(item.mCell));
+        cell.add(item);
+        mDirty.add(item.mCell);
+    }
+
+    protected void displace(Item item){
+        Cell cell = mCells.get(item.mCell);
+        cell.remove(item);
+        if (cell.size() == 0) mCells.remove(item.mCell);
+        mDirty.add(item.mCell);
+    }
+
+    protected static long key(LatLon ll, int zoom){
+        return ((long) column(ll.getLon(), zoom) << 32) | (row(ll.getLat(), zoom) & 0xffffffffL);
+    }
+
+    protected static int column(long key){ return (int) (key >> 32); }
+    protected static int row(long key){ return (int) key; }
+
+    protected static int column(double lon, int zoom){
+        return clamp((lon + 180) / 360, zoom);
+    }
+
+    protected static int row(double lat, int zoom){
+        double sin = Math.sin(Math.toRadians(Math.max(-MAX_LAT, Math.min(lat, MAX_LAT))));
+        return clamp(0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI), zoom);
+    }
+
+    // maps a [0, 1] projected coordinate to its cell index at a zoom level
+    protected static int clamp(double unit, int zoom){
+        int cells = cellsPerSide(zoom);
+        return Math.max(0, Math.min((int) Math.floor(unit * cells), cells - 1));
+    }
+
+    protected static int cellsPerSide(int zoom){
+        return Math.max(1, (1 << zoom) * (TILE_PX / CELL_PX));
+    }
+}
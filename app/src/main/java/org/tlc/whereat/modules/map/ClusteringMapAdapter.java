@@ -0,0 +1,223 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+import org.tlc.whereat.modules.map.ClusterGrid.Cell;
+import org.tlc.whereat.modules.map.ClusterGrid.Item;
+import org.tlc.whereat.modules.map.ClusterGrid.Viewport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decorates a map so that the markers added to it are clustered: callers get back a virtual
+ * marker per location, while the underlying map only gets one real marker per visible cluster
+ * (see ClusterGrid). Adding, moving or removing a virtual marker updates just the real marker of
+ * its cluster (once per batch, for updates made in a batch); a camera change regroups (if the
+ * zoom level changed) and adds or removes real markers as clusters scroll into or out of view.
+ */
+
+public class ClusteringMapAdapter implements MapAdapter {
+
+    // FIELDS
+
+    public static final String DEFAULT_CLUSTER_TITLE = "%d people";
+
+    protected MapAdapter mMap;
+    protected String mClusterTitle;
+    protected ClusterGrid mGrid;
+    protected Viewport mViewport;
+    protected Map<Long, Shown> mShown;
+    protected Runnable mListener;
+    protected int mBatchDepth;
+
+    // a real marker on the underlying map, and what it currently shows
+    protected static class Shown {
+        MarkerAdapter marker;
+        LatLon position;
+        String title;
+
+        Shown(MarkerAdapter marker, LatLon position, String title){
+            this.marker = marker;
+            this.position = position;
+            this.title = title;
+        }
+    }
+
+    // CONSTRUCTORS
+
+    public static MapAdapter getInstance(MapAdapter map, String clusterTitle){
+        return new ClusteringMapAdapter(map, clusterTitle);
+    }
+
+    /**
+     * @param map Map to draw real markers on
+     * @param clusterTitle Format for a cluster's title, given its size (ie: "%d people")
+     */
+
+    protected ClusteringMapAdapter(MapAdapter map, String clusterTitle){
+        mMap = map;
+        mClusterTitle = clusterTitle != null ? clusterTitle : DEFAULT_CLUSTER_TITLE;
+        mGrid = new ClusterGrid();
+        mViewport = Viewport.ALL;
+        mShown = new HashMap<>();
+    }
+
+    // PUBLIC METHODS
+
+    public MapAdapter getMap(){
+        mMap.getMap().onCameraChange(this::cameraChanged);
+        return this;
+    }
+
+    public MapAdapter clear(){
+        mMap.clear();
+        mGrid.clear();
+        mShown.clear();
+        return this;
+    }
+
+    public MapAdapter showUserLocation(){
+        mMap.showUserLocation();
+        return this;
+    }
+
+    public MapAdapter center(LatLon latLon){
+        mMap.center(latLon);
+        cameraChanged();
+        return this;
+    }
+
+    public MarkerAdapter addMarker(LatLon latLon, String msg){
+        MarkerAdapter marker = new ClusteredMarker(mGrid.add(latLon, msg));
+        refreshDirty();
+        return marker;
+    }
+
+    /**
+     * Applies a batch of virtual marker updates, touching each affected cluster's real marker once
+     * at the end (rather than once per update)
+     */
+
+    public MapAdapter batch(Runnable updates){
+        mBatchDepth++;
+        try {
+            updates.run();
+        } finally {
+            mBatchDepth--;
+        }
+        refreshDirty();
+        return this;
+    }
+
+    public float zoom(){
+        return mMap.zoom();
+    }
+
+    public LatLonBounds visibleBounds(){
+        return mMap.visibleBounds();
+    }
+
+    public MapAdapter onCameraChange(Runnable listener){
+        mListener = listener;
+        return this;
+    }
+
+    // VIRTUAL MARKERS
+
+    protected class ClusteredMarker implements MarkerAdapter {
+
+        protected Item mItem;
+
+        protected ClusteredMarker(Item item){
+            mItem = item;
+        }
+
+        public MarkerAdapter move(LatLon latLon){
+            mGrid.move(mItem, latLon);
+            refreshDirty();
+            return this;
+        }
+
+        public void remove(){
+            mGrid.remove(mItem);
+            refreshDirty();
+        }
+    }
+
+    // HELPERS
+
+    protected void cameraChanged(){
+        boolean regrouped = mGrid.setZoom((int) Math.floor(mMap.zoom()));
+        LatLonBounds bounds = mMap.visibleBounds();
+        mViewport = bounds != null ? mGrid.viewport(bounds) : Viewport.ALL;
+
+        if (regrouped) hideAll(); // cell keys mean different cells at a new zoom level
+        refreshAll();
+        if (mListener != null) mListener.run();
+    }
+
+    protected void refreshDirty(){
+        if (mBatchDepth > 0) return;
+        for (long key : mGrid.drainDirty()) refresh(key, mGrid.cell(key));
+    }
+
+    protected void refreshAll(){
+        for (long key : new ArrayList<>(mShown.keySet())) {
+            if (mGrid.cell(key) == null) hide(key);
+        }
+        for (Cell cell : mGrid.cells()) refresh(cell.key(), cell);
+        mGrid.drainDirty();
+    }
+
+    protected void refresh(long key, Cell cell){
+        if (cell == null || !mViewport.contains(key)) {
+            hide(key);
+            return;
+        }
+        LatLon position = cell.position();
+        String title = title(cell);
+        Shown shown = mShown.get(key);
+
+        if (shown != null && !title.equals(shown.title)) {
+            hide(key); // markers can only be moved, so a retitled cluster is redrawn
+            shown = null;
+        }
+        if (shown == null) {
+            mShown.put(key, new Shown(mMap.addMarker(position, title), position, title));
+        } else if (!position.equals(shown.position)) {
+            shown.marker.move(position);
+            shown.position = position;
+        }
+    }
+
+    protected void hide(long key){
+        Shown shown = mShown.remove(key);
+        if (shown != null) shown.marker.remove();
+    }
+
+    protected void hideAll(){
+        for (Shown shown : mShown.values()) shown.marker.remove();
+        mShown.clear();
+    }
+
+    protected String title(Cell cell){
+        return cell.size() == 1 ? cell.first().title() : String.format(mClusterTitle, cell.size());
+    }
+}
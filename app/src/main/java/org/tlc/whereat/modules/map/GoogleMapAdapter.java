@@ -23,7 +23,10 @@ import com.google.android.gms.maps.CameraUpdate;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.MapFragment;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.VisibleRegion;
 
 import org.tlc.whereat.R;
 
@@ -70,6 +73,26 @@ public class GoogleMapAdapter implements MapAdapter {
         return GoogleMarkerAdapter.getInstance(mMap.addMarker(getMarkerOptions(latLon, msg)));
     }
 
+    public MapAdapter batch(Runnable updates){
+        updates.run();
+        return this;
+    }
+
+    public float zoom(){
+        return mMap.getCameraPosition().zoom;
+    }
+
+    public LatLonBounds visibleBounds(){
+        LatLngBounds b = getVisibleRegion().latLngBounds;
+        return new LatLonBounds(asLatLon(b.southwest), asLatLon(b.northeast));
+    }
+
+    // the map calls back once the camera settles (not on every frame of a gesture or animation)
+    public MapAdapter onCameraChange(Runnable listener){
+        mMap.setOnCameraChangeListener(cp -> listener.run());
+        return this;
+    }
+
     // HELPERS
 
     protected GoogleMap getGoogleMap(){ // for testing seam!
@@ -86,4 +109,12 @@ public class GoogleMapAdapter implements MapAdapter {
                     .title(msg);
     }
 
+    protected VisibleRegion getVisibleRegion(){ // seam! (Projection is final)
+        return mMap.getProjection().getVisibleRegion();
+    }
+
+    protected static LatLon asLatLon(LatLng ll){
+        return new LatLon(ll.latitude, ll.longitude);
+    }
+
 }
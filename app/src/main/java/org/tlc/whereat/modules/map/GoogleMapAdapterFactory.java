@@ -19,6 +19,8 @@ package org.tlc.whereat.modules.map;
 
 import android.app.Activity;
 
+import org.tlc.whereat.R;
+
 /**
  * coded with <3 for where@
  */
@@ -29,7 +31,10 @@ public class GoogleMapAdapterFactory extends MapAdapterFactory {
         super(ctx);
     }
 
+    // peers' markers are clustered, so the map only ever holds markers for visible clusters
     public MapAdapter createMapAdapter(){
-        return GoogleMapAdapter.getInstance(mCtx);
+        return ClusteringMapAdapter.getInstance(
+            GoogleMapAdapter.getInstance(mCtx),
+            mCtx.getString(R.string.map_cluster_title));
     }
 }
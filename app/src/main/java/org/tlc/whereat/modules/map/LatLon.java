@@ -59,4 +59,13 @@ public class LatLon {
         if (Double.compare(latLon.mLat, mLat) != 0) return false;
         return Double.compare(latLon.mLon, mLon) == 0;
     }
+
+    @Override
+    public int hashCode() {
+        long lat = Double.doubleToLongBits(mLat);
+        long lon = Double.doubleToLongBits(mLon);
+        int result = (int) (lat ^ (lat >>> 32));
+        result = 31 * result + (int) (lon ^ (lon >>> 32));
+        return result;
+    }
 }
@@ -0,0 +1,66 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+/**
+ * The corners of a lat/lon rectangle (eg: the part of the map on screen). If the rectangle
+ * crosses the antimeridian, the south-west corner's longitude is greater than the north-east's.
+ */
+
+public class LatLonBounds {
+
+    // FIELDS
+
+    protected LatLon mSouthWest;
+    protected LatLon mNorthEast;
+
+    // CONSTRUCTOR
+
+    public LatLonBounds(LatLon southWest, LatLon northEast){
+        mSouthWest = southWest;
+        mNorthEast = northEast;
+    }
+
+    // ACCESSORS
+
+    public LatLon getSouthWest(){
+        return mSouthWest;
+    }
+    public LatLon getNorthEast(){
+        return mNorthEast;
+    }
+
+    // EQUALITY
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LatLonBounds b = (LatLonBounds) o;
+
+        return mSouthWest.equals(b.mSouthWest) && mNorthEast.equals(b.mNorthEast);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mSouthWest.hashCode();
+        result = 31 * result + mNorthEast.hashCode();
+        return result;
+    }
+}
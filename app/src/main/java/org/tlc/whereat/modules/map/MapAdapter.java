@@ -25,4 +25,9 @@ interface MapAdapter {
     MapAdapter center(LatLon latLon);
 
     MarkerAdapter addMarker(LatLon latLon, String msg);
+    MapAdapter batch(Runnable updates);
+
+    float zoom();
+    LatLonBounds visibleBounds();
+    MapAdapter onCameraChange(Runnable listener);
 }
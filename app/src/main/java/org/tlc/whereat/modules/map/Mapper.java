@@ -18,14 +18,18 @@
 package org.tlc.whereat.modules.map;
 
 import android.app.Activity;
+import android.util.Log;
 import android.util.Pair;
 
 import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.util.TimeIndex;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import rx.Observable;
+import rx.Subscription;
+
 import static org.tlc.whereat.util.CollectionUtils.last;
 
 public class Mapper {
@@ -39,6 +43,7 @@ public class Mapper {
     protected MapAdapterFactory mMapFactory;
     protected MapAdapter mMap;
     protected ConcurrentHashMap<String, Pair<Long, MarkerAdapter>> mMarkers;
+    protected TimeIndex<String> mExpiry;
     protected Long mLastPing;
     protected boolean mRendered;
 
@@ -48,6 +53,7 @@ public class Mapper {
         mCtx = ctx;
         mMapFactory = new GoogleMapAdapterFactory(ctx);
         mMarkers = new ConcurrentHashMap<>();
+        mExpiry = new TimeIndex<>();
         mLastPing = -1L;
         mRendered = false;
     }
@@ -61,46 +67,96 @@ public class Mapper {
 
     public Mapper render(List<UserLocation> uls){
         recordLastPing(uls);
-        mMap = mMapFactory
-            .createMapAdapter()
-            .getMap()
-            .showUserLocation()
-            .center(uls.isEmpty() ? LIBERTY : last(uls).asLatLon());
+        initMap(uls.isEmpty() ? LIBERTY : last(uls).asLatLon());
         if(!uls.isEmpty()) plotMany(uls);
-        mRendered = true;
         return this;
     }
 
+    /**
+     * Renders the map immediately, then plots each location as it arrives from the stream
+     * and re-centers on the last one once the stream completes (callers should observe on main).
+     * If the stream fails, the error is logged and whatever was plotted so far stays on the map.
+     *
+     * @param uls Stream of locations (ie: from LocationDao#streamAll)
+     * @return Subscription to the stream, so callers can stop plotting early
+     */
+
+    public Subscription render(Observable<UserLocation> uls){
+        initMap(LIBERTY);
+        return uls
+            .doOnNext(this::record)
+            .lastOrDefault(null)
+            .subscribe(this::centerOn, this::logStreamError);
+    }
+
     public void refresh(List<UserLocation> uls){
         recordLastPing(uls);
         plotMany(uls);
     }
 
+    public Subscription refresh(Observable<UserLocation> uls){
+        return uls.subscribe(this::record, this::logStreamError);
+    }
+
     public void record(UserLocation ul){
         recordPing(ul);
         plot(ul);
     }
 
+    /**
+     * Plots a whole batch at once (ie: in one main-looper turn, so in one frame)
+     */
+
+    public void recordAll(List<UserLocation> uls){
+        mMap.batch(() -> { for (UserLocation ul : uls) record(ul); });
+    }
+
+    public void remove(String id){
+        Pair<Long, MarkerAdapter> pair = mMarkers.remove(id);
+        if (pair != null) pair.second.remove();
+        mExpiry.remove(id);
+    }
+
+    /**
+     * Removes markers last seen before an expiration time, visiting only the expired ones
+     * (in one batch, so a cluster losing many members is redrawn once)
+     *
+     * @param expiration Time (in millis since 1970) before which markers are removed
+     */
+
     public void forgetSince(long expiration){
-        for (Map.Entry<String, Pair<Long,MarkerAdapter>> entry : mMarkers.entrySet()){
-            Pair<Long, MarkerAdapter> pair = entry.getValue();
-            if(pair.first < expiration){
-                pair.second.remove();
-                mMarkers.remove(entry.getKey());
+        mMap.batch(() -> {
+            for (String id : mExpiry.expire(expiration)){
+                Pair<Long, MarkerAdapter> pair = mMarkers.remove(id);
+                if (pair != null) pair.second.remove();
             }
-        }
+        });
     }
 
     public void clear(){
         mMap.clear();
         mMarkers.clear();
+        mExpiry.clear();
         mLastPing = -1L;
     }
 
     // HELPERS
 
+    protected void initMap(LatLon center){
+        mMap = mMapFactory
+            .createMapAdapter()
+            .getMap()
+            .showUserLocation()
+            .center(center);
+        mRendered = true;
+    }
+
+    protected void centerOn(UserLocation ul){
+        if (ul != null) mMap.center(ul.asLatLon());
+    }
+
     protected void plotMany(List<UserLocation> uls){
-        for (UserLocation ul : uls) plot(ul);
+        mMap.batch(() -> { for (UserLocation ul : uls) plot(ul); });
     }
 
     protected boolean plot(UserLocation ul){
@@ -112,6 +168,7 @@ public class Mapper {
         mMarkers.put(id, Pair.create(
                 ul.getTime(),
                 mMarkers.get(id).second.move(ul.asLatLon())));
+        mExpiry.touch(id, ul.getTime());
         return true;
     }
 
@@ -119,6 +176,7 @@ public class Mapper {
         mMarkers.put(
             ul.getId(),
             Pair.create(ul.getTime(), mMap.addMarker(ul.asLatLon(), ul.asDateTime())));
+        mExpiry.touch(ul.getId(), ul.getTime());
         return true;
     }
 
@@ -130,4 +188,8 @@ public class Mapper {
         mLastPing =  ul.getTime();
     }
 
+    protected void logStreamError(Throwable e){
+        Log.e(TAG, "Error streaming locations to map: " + e.getMessage());
+    }
+
 }
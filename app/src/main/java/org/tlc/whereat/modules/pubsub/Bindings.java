@@ -0,0 +1,73 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.pubsub;
+
+import android.util.Log;
+
+import rx.Observable;
+import rx.functions.Action1;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Ties a component's event subscriptions to its lifecycle: bind streams when the component
+ * registers (eg: in onResume) and unbind them all at once when it unregisters (eg: in onPause).
+ * A handler that throws is logged rather than allowed to end its subscription, so one bad event
+ * doesn't silence a stream for the rest of the component's life.
+ */
+
+public class Bindings {
+
+    // FIELDS
+
+    public static final String TAG = Bindings.class.getSimpleName();
+
+    protected CompositeSubscription mSubscriptions = new CompositeSubscription();
+
+    // ACCESSORS
+
+    public boolean isBound(){
+        return mSubscriptions.hasSubscriptions();
+    }
+
+    // PUBLIC METHODS
+
+    public <T> Bindings bind(Observable<T> events, Action1<? super T> onEvent){
+        mSubscriptions.add(events.subscribe(
+            event -> handle(onEvent, event),
+            e -> Log.e(TAG, "Event stream failed", e)));
+        return this;
+    }
+
+    /**
+     * Unsubscribes from everything bound so far (the bindings can be reused afterwards)
+     */
+
+    public void unbind(){
+        mSubscriptions.clear();
+    }
+
+    // HELPERS
+
+    protected static <T> void handle(Action1<? super T> onEvent, T event){
+        try {
+            onEvent.call(event);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Event handler failed", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.pubsub;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import rx.Observable;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
+
+/**
+ * In-process, typed alternative to a local broadcast: the published object itself is handed to
+ * each subscriber, with no Intent, Bundle or receiver matching in between. Events are multicast
+ * through a (serialized, so publishing is safe from any thread) subject, and each subscriber
+ * shapes its own view of the stream -- eg: sampling or throttling a chatty event -- before it is
+ * hopped onto the main thread, so events a subscriber drops or merges cost it no main-thread work.
+ *
+ * Subscriptions should be bound to their component's lifecycle (see Bindings); an event already
+ * posted to the main thread when a subscriber unsubscribes is not delivered.
+ */
+
+public class Channel<T> {
+
+    // FIELDS
+
+    protected final Subject<T, T> mSubject = new SerializedSubject<>(PublishSubject.<T>create());
+
+    // ACCESSORS
+
+    public boolean hasListeners(){
+        return mSubject.hasObservers();
+    }
+
+    // PUBLIC METHODS
+
+    /**
+     * Hands an event to every current subscriber (safe to call from any thread)
+     */
+
+    public void publish(T event){
+        if (hasListeners()) mSubject.onNext(event);
+    }
+
+    /**
+     * @return Events as they are published, on the publishing thread. A subject can't be slowed
+     * down, so events a slow subscriber hasn't requested yet are buffered for it.
+     */
+
+    public Observable<T> events(){
+        return mSubject.onBackpressureBuffer();
+    }
+
+    /**
+     * @return Events delivered on the main thread
+     */
+
+    public Observable<T> onMainThread(){
+        return events().observeOn(mainThread());
+    }
+
+    /**
+     * @param shape Operators applied (on the publishing thread) before events are delivered on the
+     *              main thread, eg: `events -> events.throttleFirst(1, SECONDS)`
+     * @return Shaped events delivered on the main thread
+     */
+
+    public <R> Observable<R> onMainThread(Observable.Transformer<? super T, ? extends R> shape){
+        return events().compose(shape).observeOn(mainThread());
+    }
+
+    // HELPERS
+
+    // bound per subscription (rather than once, like AndroidSchedulers.mainThread()) so that a
+    // replaced main looper, which only happens in tests, never strands events
+    protected static rx.Scheduler mainThread(){
+        return AndroidSchedulers.handlerThread(new Handler(Looper.getMainLooper()));
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.pubsub;
+
+import com.google.android.gms.common.ConnectionResult;
+
+import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.UserLocation;
+
+import java.util.List;
+
+/**
+ * The app's process-wide channels: every event the location publisher (or its scheduler) raises
+ * for the UI travels on one of these, typed by its payload.
+ */
+
+public class Channels {
+
+    /**
+     * Problems the user has to be told about (or asked to fix), which carry no payload
+     */
+
+    public enum Alert { LOCATION_REQUEST_FAILED, LOCATION_SERVICES_DISABLED, PLAY_SERVICES_DISABLED }
+
+    private static Channel<UserLocation> sLocationPublished;
+    private static Channel<List<UserLocation>> sLocationsReceived;
+    private static Channel<String> sLocationRemoved;
+    private static Channel<ApiMessage> sLocationsCleared;
+    private static Channel<Long> sLocationsForgotten;
+    private static Channel<ConnectionResult> sGoogleApiDisconnected;
+    private static Channel<Alert> sAlerts;
+
+    /**
+     * Carries each of the user's own locations as it is shared (at most once per poll)
+     */
+
+    public static synchronized Channel<UserLocation> locationPublished(){
+        if (sLocationPublished == null) sLocationPublished = new Channel<>();
+        return sLocationPublished;
+    }
+
+    /**
+     * Carries batches of received locations (eg: one per server response), so a batch is mapped
+     * in a single main-looper turn rather than one per peer
+     */
+
+    public static synchronized Channel<List<UserLocation>> locationsReceived(){
+        if (sLocationsReceived == null) sLocationsReceived = new Channel<>();
+        return sLocationsReceived;
+    }
+
+    /**
+     * Carries the ids of users whose locations were removed
+     */
+
+    public static synchronized Channel<String> locationRemoved(){
+        if (sLocationRemoved == null) sLocationRemoved = new Channel<>();
+        return sLocationRemoved;
+    }
+
+    /**
+     * Carries the server's reply to a request to erase the user's locations
+     */
+
+    public static synchronized Channel<ApiMessage> locationsCleared(){
+        if (sLocationsCleared == null) sLocationsCleared = new Channel<>();
+        return sLocationsCleared;
+    }
+
+    /**
+     * Carries the time (in millis) before which locations have been forgotten
+     */
+
+    public static synchronized Channel<Long> locationsForgotten(){
+        if (sLocationsForgotten == null) sLocationsForgotten = new Channel<>();
+        return sLocationsForgotten;
+    }
+
+    /**
+     * Carries the result of each failed attempt to connect to the Google location API
+     */
+
+    public static synchronized Channel<ConnectionResult> googleApiDisconnected(){
+        if (sGoogleApiDisconnected == null) sGoogleApiDisconnected = new Channel<>();
+        return sGoogleApiDisconnected;
+    }
+
+    public static synchronized Channel<Alert> alerts(){
+        if (sAlerts == null) sAlerts = new Channel<>();
+        return sAlerts;
+    }
+
+    /**
+     * Drops every channel (and so every subscription); for tests, which outlive their components
+     */
+
+    public static synchronized void reset(){
+        sLocationPublished = null;
+        sLocationsReceived = null;
+        sLocationRemoved = null;
+        sLocationsCleared = null;
+        sLocationsForgotten = null;
+        sGoogleApiDisconnected = null;
+        sAlerts = null;
+    }
+}
@@ -21,20 +21,38 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.support.v4.content.LocalBroadcastManager;
+
+import rx.Observable;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Bridges the system's broadcasts (battery, connectivity, etc.), which can only arrive as
+ * Intents, onto observables, so they can be bound like the app's own channels
+ */
 
 public class Dispatcher {
 
-    public static void register(LocalBroadcastManager bm, BroadcastReceiver br, String action){
-        bm.registerReceiver(br, new IntentFilter(action));
-    }
+    /**
+     * @return Intents matching the filter, delivered on the main thread. A receiver is registered
+     * on the context per subscription and unregistered when the subscription ends.
+     */
 
-    public static void broadcast(Context ctx, Intent i){
-        LocalBroadcastManager.getInstance(ctx).sendBroadcast(i);
+    public static Observable<Intent> broadcasts(Context ctx, IntentFilter filter){
+        return Observable.create(sub -> {
+            BroadcastReceiver br = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent i) {
+                    if (!sub.isUnsubscribed()) sub.onNext(i);
+                }
+            };
+            ctx.registerReceiver(br, filter);
+            sub.add(Subscriptions.create(() -> ctx.unregisterReceiver(br)));
+        });
     }
 
-    public static void broadcast(LocalBroadcastManager bm, Context ctx, Intent i){
-        LocalBroadcastManager bm_ = (bm != null) ? bm : LocalBroadcastManager.getInstance(ctx);
-        bm_.sendBroadcast(i);
+    public static Observable<Intent> broadcasts(Context ctx, String... actions){
+        IntentFilter filter = new IntentFilter();
+        for (String action : actions) filter.addAction(action);
+        return broadcasts(ctx, filter);
     }
 }
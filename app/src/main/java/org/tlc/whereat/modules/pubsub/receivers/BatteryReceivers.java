@@ -0,0 +1,72 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.pubsub.receivers;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+import org.tlc.whereat.modules.pubsub.Dispatcher;
+import org.tlc.whereat.services.LocationPublisher;
+
+public class BatteryReceivers extends Receivers {
+
+    // FIELDS
+
+    public static final String TAG = BatteryReceivers.class.getSimpleName();
+    public static final float LOW_BATTERY_FRACTION = 0.15f; // matches the system's battery-low warning
+
+    // CONSTRUCTORS
+
+    public BatteryReceivers(Context ctx){
+        super(ctx);
+    }
+
+    // PUBLIC METHODS
+
+    // battery broadcasts come from the system, so (unlike our own events) they are bridged from
+    // intents registered on the context
+
+    public void register(){
+        mBindings.bind(
+            Dispatcher.broadcasts(mCtx, Intent.ACTION_BATTERY_LOW, Intent.ACTION_BATTERY_OKAY),
+            this::onBattery);
+
+        Intent status = mCtx.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (status != null) ((LocationPublisher) mCtx).onBatteryLow(isLow(status));
+    }
+
+    public void unregister(){
+        mBindings.unbind();
+    }
+
+    // HANDLERS
+
+    protected void onBattery(Intent i){
+        ((LocationPublisher) mCtx).onBatteryLow(Intent.ACTION_BATTERY_LOW.equals(i.getAction()));
+    }
+
+    // HELPERS
+
+    protected static boolean isLow(Intent status){
+        int level = status.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = status.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return level >= 0 && scale > 0 && level / (float) scale <= LOW_BATTERY_FRACTION;
+    }
+}
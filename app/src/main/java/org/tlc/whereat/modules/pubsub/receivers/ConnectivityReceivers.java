@@ -0,0 +1,67 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.pubsub.receivers;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import org.tlc.whereat.modules.pubsub.Dispatcher;
+import org.tlc.whereat.services.LocationPublisher;
+
+public class ConnectivityReceivers extends Receivers {
+
+    // FIELDS
+
+    public static final String TAG = ConnectivityReceivers.class.getSimpleName();
+
+    // CONSTRUCTORS
+
+    public ConnectivityReceivers(Context ctx){
+        super(ctx);
+    }
+
+    // PUBLIC METHODS
+
+    // like battery broadcasts, connectivity changes come from the system (and are sticky, so
+    // registering also delivers the current state)
+
+    public void register(){
+        mBindings.bind(
+            Dispatcher.broadcasts(mCtx, ConnectivityManager.CONNECTIVITY_ACTION),
+            i -> onConnectivityChanged());
+    }
+
+    public void unregister(){
+        mBindings.unbind();
+    }
+
+    // HANDLERS
+
+    protected void onConnectivityChanged(){
+        ((LocationPublisher) mCtx).onConnectivityChanged(isConnected(mCtx));
+    }
+
+    // HELPERS
+
+    protected static boolean isConnected(Context ctx){
+        ConnectivityManager cm = (ConnectivityManager) ctx.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo ni = cm.getActiveNetworkInfo();
+        return ni != null && ni.isConnected();
+    }
+}
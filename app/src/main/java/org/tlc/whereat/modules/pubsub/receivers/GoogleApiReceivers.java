@@ -18,22 +18,20 @@
 package org.tlc.whereat.modules.pubsub.receivers;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
 import android.content.IntentSender;
-import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
 
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GooglePlayServicesUtil;
 
 import org.tlc.whereat.R;
-import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
 import org.tlc.whereat.fragments.LocServicesAlertFragment;
 import org.tlc.whereat.fragments.PlayServicesAlertFragment;
-import org.tlc.whereat.modules.pubsub.Dispatcher;
-import org.tlc.whereat.modules.ui.Toaster;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.Channels.Alert;
+
+import rx.Observable;
 
 import static org.tlc.whereat.modules.ui.Toaster.shortToast;
 
@@ -44,17 +42,13 @@ public class GoogleApiReceivers extends Receivers {
     public static final String TAG = GoogleApiReceivers.class.getSimpleName();
     protected final static int CONNECTION_FAILURE_RESOLUTION_REQUEST = 9000;
 
-    protected BroadcastReceiver mApiClientDisconnected = apiClientDisconnectedReceiver();
-    protected BroadcastReceiver mLocationServicesDisabledReceiver = locationServicesDisabledReceiver();
-    protected BroadcastReceiver mPlayServicesDisabledReceiver = playServicesDisabledReceiver();
-
     protected LocServicesAlertFragment mLocServicesAlert;
     protected PlayServicesAlertFragment mPlayServicesAlert;
 
     // CONSTRUCTOR
 
-    public GoogleApiReceivers(Context ctx, LocalBroadcastManager lbm){
-        super(ctx, lbm);
+    public GoogleApiReceivers(Context ctx){
+        super(ctx);
 
         mLocServicesAlert = new LocServicesAlertFragment();
         mPlayServicesAlert = new PlayServicesAlertFragment();
@@ -64,46 +58,15 @@ public class GoogleApiReceivers extends Receivers {
 
     @Override
     public void register(){
-        Dispatcher.register(mLbm, mApiClientDisconnected, LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED);
-        Dispatcher.register(mLbm, mLocationServicesDisabledReceiver, LocPubBroadcasters.ACTION_LOCATION_SERVICES_DISABLED);
-        Dispatcher.register(mLbm, mPlayServicesDisabledReceiver, LocPubBroadcasters.ACTION_PLAY_SERVICES_DISABLED);
+        mBindings
+            .bind(Channels.googleApiDisconnected().onMainThread(), this::fixApiConnection)
+            .bind(alerts(Alert.LOCATION_SERVICES_DISABLED), a -> fixLocationServices())
+            .bind(alerts(Alert.PLAY_SERVICES_DISABLED), a -> fixPlayServices());
     }
 
     @Override
     public void unregister(){
-        mLbm.unregisterReceiver(mApiClientDisconnected);
-        mLbm.unregisterReceiver(mLocationServicesDisabledReceiver);
-        mLbm.unregisterReceiver(mPlayServicesDisabledReceiver);
-    }
-
-    // RECEIVERS
-
-    protected BroadcastReceiver apiClientDisconnectedReceiver(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent i) {
-                ConnectionResult cr = i.getExtras().getParcelable(LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED);
-                fixApiConnection(cr);
-            }
-        };
-    }
-
-    protected BroadcastReceiver locationServicesDisabledReceiver(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                fixLocationServices();
-            }
-        };
-    }
-
-    protected BroadcastReceiver playServicesDisabledReceiver(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                fixPlayServices();
-            }
-        };
+        mBindings.unbind();
     }
 
     // FIXERS
@@ -148,4 +111,10 @@ public class GoogleApiReceivers extends Receivers {
     protected boolean recoverable(int code){
         return GooglePlayServicesUtil.isUserRecoverableError(code);
     }
+
+    // HELPERS
+
+    protected static Observable<Alert> alerts(Alert alert){
+        return Channels.alerts().onMainThread(alerts -> alerts.filter(alert::equals));
+    }
 }
@@ -17,62 +17,41 @@
 
 package org.tlc.whereat.modules.pubsub.receivers;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.support.v4.content.LocalBroadcastManager;
 
 import org.tlc.whereat.activities.MapActivity;
-import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
-import org.tlc.whereat.model.UserLocation;
-import org.tlc.whereat.modules.pubsub.Dispatcher;
-import org.tlc.whereat.modules.schedule.Scheduler;
+import org.tlc.whereat.modules.pubsub.Channels;
 
 public class LocationMappingReceivers extends Receivers {
 
     //FIELDS
 
     public static final String TAG = LocationMappingReceivers.class.getSimpleName();
-    protected BroadcastReceiver mMap = map();
-    protected BroadcastReceiver mForget = forget();
 
     // CONSTRUCTOR
 
-    public LocationMappingReceivers(Context ctx, LocalBroadcastManager lbm){
-        super(ctx, lbm);
+    public LocationMappingReceivers(Context ctx){
+        super(ctx);
     }
 
     // PUBLIC METHODS
 
+    // received locations already arrive batched (per server response), so they're mapped as is
+
     public void register(){
-        Dispatcher.register(mLbm, mMap, LocPubBroadcasters.ACTION_LOCATION_RECEIVED);
-        Dispatcher.register(mLbm, mForget, Scheduler.ACTION_LOCATIONS_FORGOTTEN);
+        mBindings
+            .bind(Channels.locationsReceived().onMainThread(), uls -> map().mapAll(uls))
+            .bind(Channels.locationRemoved().onMainThread(), id -> map().unmap(id))
+            .bind(Channels.locationsForgotten().onMainThread(), time -> map().forgetSince(time));
     }
 
     public void unregister(){
-        mLbm.unregisterReceiver(mMap);
-        mLbm.unregisterReceiver(mForget);
+        mBindings.unbind();
     }
 
-    // BROADCAST RECEIVERS
-
-    private BroadcastReceiver map(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent i) {
-                UserLocation l = i.getExtras().getParcelable(LocPubBroadcasters.ACTION_LOCATION_RECEIVED);
-                ((MapActivity) mCtx).map(l);
-            }
-        };
-    }
+    // HELPERS
 
-    private BroadcastReceiver forget(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent i) {
-                long time = i.getExtras().getLong(Scheduler.ACTION_LOCATIONS_FORGOTTEN);
-                ((MapActivity) mCtx).forgetSince(time);
-            }
-        };
+    private MapActivity map(){
+        return (MapActivity) mCtx;
     }
 }
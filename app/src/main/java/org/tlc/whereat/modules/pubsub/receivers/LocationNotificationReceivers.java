@@ -17,15 +17,14 @@
 
 package org.tlc.whereat.modules.pubsub.receivers;
 
-import android.content.Intent;
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.support.v4.content.LocalBroadcastManager;
 
 import org.tlc.whereat.R;
-import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
-import org.tlc.whereat.modules.pubsub.Dispatcher;
-import org.tlc.whereat.modules.schedule.Scheduler;
+import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.Channels.Alert;
+import org.tlc.whereat.modules.ui.ToastSink;
 import org.tlc.whereat.util.TimeUtils;
 
 import static org.tlc.whereat.modules.ui.Toaster.shortToast;
@@ -34,75 +33,52 @@ public class LocationNotificationReceivers extends Receivers {
 
     public static final String TAG = LocationNotificationReceivers.class.getSimpleName();
 
-    protected BroadcastReceiver mPub = pub();
-    protected BroadcastReceiver mClear = clear();
-    protected BroadcastReceiver mFail = fail();
-    protected BroadcastReceiver mForget = forget();
+    protected ToastSink mToasts = new ToastSink(mCtx);
 
     // CONSTRUCTOR
 
-    public LocationNotificationReceivers(Context ctx, LocalBroadcastManager lbm){
-        super(ctx, lbm);
+    public LocationNotificationReceivers(Context ctx){
+        super(ctx);
     }
 
     // LIFE CYCLE METHODS
 
     public void register(){
-        Dispatcher.register(mLbm, mPub, LocPubBroadcasters.ACTION_LOCATION_PUBLISHED);
-        Dispatcher.register(mLbm, mClear, LocPubBroadcasters.ACTION_LOCATIONS_CLEARED);
-        Dispatcher.register(mLbm, mFail, LocPubBroadcasters.ACTION_LOCATION_REQUEST_FAILED);
-        Dispatcher.register(mLbm, mForget, Scheduler.ACTION_LOCATIONS_FORGOTTEN);
+        mBindings
+            .bind(Channels.locationPublished().onMainThread(), this::pub)
+            .bind(Channels.alerts().onMainThread(
+                alerts -> alerts.filter(Alert.LOCATION_REQUEST_FAILED::equals)), a -> fail())
+            .bind(Channels.locationsCleared().onMainThread(), this::clear)
+            .bind(Channels.locationsForgotten().onMainThread(), this::forget);
     }
 
     public void unregister(){
-        mLbm.unregisterReceiver(mPub);
-        mLbm.unregisterReceiver(mFail);
-        mLbm.unregisterReceiver(mClear);
-        mLbm.unregisterReceiver(mForget);
+        mBindings.unbind();
+        mToasts.clear();
     }
 
-    // BROADCAST RECEIVERS
+    // HANDLERS
 
-    //TODO replace BroadcastReceivers with calls to AndroidObservable.fromBroacast()?
-    // see http://blog.danlew.net/2014/10/08/grokking-rxjava-part-4/
+    // a location is shared on every poll (as often as every few seconds), as may a failure be
+    // reported, so repeats are coalesced rather than each queueing a toast
 
-    protected BroadcastReceiver pub(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                shortToast(mCtx, mCtx.getString(R.string.loc_shared_toast));
-            }
-        };
+    protected void pub(UserLocation l){
+        mToasts.post(
+            mCtx.getString(R.string.loc_shared_toast),
+            n -> mCtx.getString(R.string.loc_shared_repeated_toast, n));
     }
 
-    protected BroadcastReceiver fail(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent i) {
-                shortToast(mCtx, mCtx.getString(R.string.loc_retrieval_failed_toast));
-            }
-        };
+    protected void fail(){
+        mToasts.post(mCtx.getString(R.string.loc_retrieval_failed_toast));
     }
 
-    protected BroadcastReceiver clear(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                shortToast(mCtx, mCtx.getString(R.string.loc_clear_toast));
-            }
-        };
-    }
+    // one-off confirmations are shown right away, never held in (or merged by) the sink
 
-    protected BroadcastReceiver forget(){
-        return new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                long time = intent.getExtras().getLong(Scheduler.ACTION_LOCATIONS_FORGOTTEN);
-                String msg = mCtx.getString(R.string.loc_forget_prefix) + TimeUtils.fullDate(time);
-                shortToast(mCtx, msg);
-            }
-        };
+    protected void clear(ApiMessage msg){
+        shortToast(mCtx, mCtx.getString(R.string.loc_clear_toast));
     }
 
-
+    protected void forget(long time){
+        shortToast(mCtx, mCtx.getString(R.string.loc_forget_prefix) + TimeUtils.fullDate(time));
+    }
 }
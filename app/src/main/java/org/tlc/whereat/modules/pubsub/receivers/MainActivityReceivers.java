@@ -18,7 +18,6 @@
 package org.tlc.whereat.modules.pubsub.receivers;
 
 import android.content.Context;
-import android.support.v4.content.LocalBroadcastManager;
 
 import java.util.Arrays;
 
@@ -32,7 +31,7 @@ public class MainActivityReceivers extends Receivers {
         super(ctx);
 
         mReceivers = Arrays.asList(
-            new LocationNotificationReceivers(mCtx, mLbm),
-            new GoogleApiReceivers(mCtx, mLbm));
+            new LocationNotificationReceivers(mCtx),
+            new GoogleApiReceivers(mCtx));
     }
 }
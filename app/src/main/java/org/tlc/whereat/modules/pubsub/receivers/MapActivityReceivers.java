@@ -18,7 +18,6 @@
 package org.tlc.whereat.modules.pubsub.receivers;
 
 import android.content.Context;
-import android.support.v4.content.LocalBroadcastManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,7 +32,7 @@ public class MapActivityReceivers extends Receivers {
         super(ctx);
 
         mReceivers = Arrays.asList(
-            new LocationNotificationReceivers(mCtx, mLbm),
-            new LocationMappingReceivers(mCtx, mLbm));
+            new LocationNotificationReceivers(mCtx),
+            new LocationMappingReceivers(mCtx));
     }
 }
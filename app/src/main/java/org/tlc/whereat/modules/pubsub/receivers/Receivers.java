@@ -18,24 +18,24 @@
 package org.tlc.whereat.modules.pubsub.receivers;
 
 import android.content.Context;
-import android.support.v4.content.LocalBroadcastManager;
+
+import org.tlc.whereat.modules.pubsub.Bindings;
 
 import java.util.List;
 
+/**
+ * A component's event handlers: leaf receivers bind the streams they handle on register and
+ * unbind them on unregister; composites just register and unregister their children.
+ */
+
 public abstract class Receivers {
 
     protected Context mCtx;
-    protected LocalBroadcastManager mLbm;
+    protected Bindings mBindings = new Bindings();
     protected List<Receivers> mReceivers;
 
     public Receivers(Context ctx){
         mCtx = ctx;
-        mLbm = LocalBroadcastManager.getInstance(mCtx);
-    }
-
-    public Receivers(Context ctx, LocalBroadcastManager lbm){
-        mCtx = ctx;
-        mLbm = lbm;
     }
 
     public void register() {
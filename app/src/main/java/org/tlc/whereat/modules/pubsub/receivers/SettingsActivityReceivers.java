@@ -28,6 +28,6 @@ public class SettingsActivityReceivers extends Receivers {
     public SettingsActivityReceivers(Context ctx){
         super(ctx);
 
-        mReceivers = Arrays.asList(new LocationNotificationReceivers(mCtx, mLbm));
+        mReceivers = Arrays.asList(new LocationNotificationReceivers(mCtx));
     }
 }
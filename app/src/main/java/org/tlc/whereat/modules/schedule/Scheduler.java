@@ -17,14 +17,12 @@
 
 package org.tlc.whereat.modules.schedule;
 
-import android.content.Context;
-import android.content.Intent;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
-import android.support.v4.content.LocalBroadcastManager;
 
-import org.tlc.whereat.modules.pubsub.Dispatcher;
+import org.tlc.whereat.modules.pubsub.Channel;
+import org.tlc.whereat.modules.pubsub.Channels;
 
 import java.util.Date;
 
@@ -32,26 +30,19 @@ public class Scheduler {
 
     // FIELDS
     public static String TAG = Scheduler.class.getSimpleName();
-    public static String ACTION_LOCATIONS_FORGOTTEN = TAG + ".LOCATIONS_FORGOTTEN";
 
-    protected Context mCtx;
-    protected LocalBroadcastManager mLbm;
+    protected Channel<Long> mForgotten;
     protected Handler mForgetHandler;
     protected Runnable mForgetRunnable;
 
     // CONSTRUCTORS
 
-    public static Scheduler getInstance(Context ctx){
-        return new Scheduler(ctx, LocalBroadcastManager.getInstance(ctx));
+    public static Scheduler getInstance(){
+        return new Scheduler(Channels.locationsForgotten());
     }
 
-    public static Scheduler getInstance(Context ctx, LocalBroadcastManager lbm){
-        return new Scheduler(ctx, lbm);
-    }
-
-    protected Scheduler(Context ctx, LocalBroadcastManager lbm){
-        mCtx = ctx;
-        mLbm = lbm;
+    protected Scheduler(Channel<Long> forgotten){
+        mForgotten = forgotten;
     }
 
     /**
@@ -72,7 +63,7 @@ public class Scheduler {
             @Override
             public void run() {
                 long rightNow = now.length > 0 ? now[0] : new Date().getTime();
-                broadcastForget(mLbm, mCtx, rightNow - ttl);
+                mForgotten.publish(rightNow - ttl);
                 mForgetHandler.postDelayed(this, interval);
             }
         };
@@ -83,11 +74,4 @@ public class Scheduler {
     public void cancelForget(){
         if(mForgetHandler != null) mForgetHandler.removeCallbacks(mForgetRunnable);
     }
-
-    protected void broadcastForget(LocalBroadcastManager lbm, Context ctx, long expiration){
-        Intent i = new Intent()
-            .setAction(ACTION_LOCATIONS_FORGOTTEN)
-            .putExtra(ACTION_LOCATIONS_FORGOTTEN, expiration);
-        Dispatcher.broadcast(lbm, ctx, i);
-    }
 }
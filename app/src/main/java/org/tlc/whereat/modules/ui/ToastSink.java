@@ -0,0 +1,128 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.ui;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Func1;
+
+/**
+ * Rate-limits and coalesces toasts: a message is shown at once, but repeats of it within the
+ * following WINDOW millis are only counted, and shown as one merged toast (eg: "Location shared 5
+ * more times.") when the window closes. A message repeated steadily therefore costs one toast per
+ * window instead of one per repeat.
+ *
+ * Not thread-safe: post from the main thread (where the scheduler should also run).
+ */
+
+public class ToastSink {
+
+    // FIELDS
+
+    public static final long WINDOW = 30 * 1000L; // 30 sec
+
+    public interface Display { void show(String msg); }
+
+    protected Display mDisplay;
+    protected Scheduler mScheduler;
+    protected Scheduler.Worker mWorker;
+    protected long mWindow;
+    protected Map<String, Window> mWindows = new HashMap<>();
+
+    protected static class Window {
+        final Func1<Integer, String> merged;
+        int repeats;
+
+        Window(Func1<Integer, String> merged){ this.merged = merged; }
+    }
+
+    // CONSTRUCTORS
+
+    public ToastSink(Context ctx){
+        this(msg -> Toaster.shortToast(ctx, msg),
+            AndroidSchedulers.handlerThread(new Handler(Looper.getMainLooper())),
+            WINDOW);
+    }
+
+    public ToastSink(Display display, Scheduler scheduler, long window){
+        mDisplay = display;
+        mScheduler = scheduler;
+        mWorker = scheduler.createWorker();
+        mWindow = window;
+    }
+
+    // PUBLIC METHODS
+
+    /**
+     * Shows a message, or counts it if it was already shown within the window
+     *
+     * @param msg Message to show
+     * @param merged Builds the toast that stands in for the given number of repeats (if null,
+     *               the message itself is shown again once per window while it keeps repeating)
+     */
+
+    public void post(String msg, Func1<Integer, String> merged){
+        Window w = mWindows.get(msg);
+        if (w != null) {
+            w.repeats++;
+            return;
+        }
+        mDisplay.show(msg);
+        open(msg, merged);
+    }
+
+    public void post(String msg){
+        post(msg, null);
+    }
+
+    /**
+     * Drops every open window (and the merged toasts they would have shown); eg: when the
+     * component showing the toasts goes into the background
+     */
+
+    public void clear(){
+        mWorker.unsubscribe();
+        mWorker = mScheduler.createWorker();
+        mWindows.clear();
+    }
+
+    // HELPERS
+
+    protected void open(String msg, Func1<Integer, String> merged){
+        Window w = new Window(merged);
+        mWindows.put(msg, w);
+        mWorker.schedule(() -> close(msg, w), mWindow, TimeUnit.MILLISECONDS);
+    }
+
+    // a window that saw repeats shows their summary and opens another, so the summary is
+    // rate-limited like the message itself
+    protected void close(String msg, Window w){
+        mWindows.remove(msg);
+        if (w.repeats == 0) return;
+        mDisplay.show(w.merged != null ? w.merged.call(w.repeats) : msg);
+        open(msg, w.merged);
+    }
+}
@@ -42,17 +42,26 @@ import static com.google.android.gms.location.LocationServices.FusedLocationApi;
 
 import org.tlc.whereat.R;
 import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.LocationDelta;
+import org.tlc.whereat.modules.api.UpdateQueue;
 import org.tlc.whereat.modules.api.WhereatApiClient;
+import org.tlc.whereat.modules.location.AdaptivePollPolicy;
+import org.tlc.whereat.modules.location.PublishFilter;
+import org.tlc.whereat.modules.pubsub.Bindings;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.receivers.BatteryReceivers;
+import org.tlc.whereat.modules.pubsub.receivers.ConnectivityReceivers;
 import org.tlc.whereat.modules.schedule.Scheduler;
 import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
 import org.tlc.whereat.modules.db.LocationDao;
 import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.util.IdGenerator;
 
-import java.util.UUID;
+import java.util.List;
 
-import rx.Observable;
 import rx.functions.Action1;
 
+import static java.lang.Boolean.parseBoolean;
 import static java.lang.Integer.parseInt;
 import static java.lang.Long.parseLong;
 import static android.content.SharedPreferences.OnSharedPreferenceChangeListener;
@@ -74,15 +83,23 @@ public class LocationPublisher extends Service
     protected LocationRequest mLocReq;
     protected LocationDao mDao;
     protected WhereatApiClient mWhereatClient;
+    protected UpdateQueue mQueue;
     protected Scheduler mScheduler;
     protected LocPubBroadcasters mBroadcast;
-    protected Action1<UserLocation> mLocSub;
+    protected Action1<List<UserLocation>> mLocSub;
+    protected Action1<LocationDelta> mDeltaSub;
     protected Action1<ApiMessage> mClearSub;
     protected SharedPreferences mPrefs;
     protected OnSharedPreferenceChangeListener mPrefListener;
+    protected AdaptivePollPolicy mPollPolicy = new AdaptivePollPolicy(0);
+    protected PublishFilter mPublishFilter = new PublishFilter(0);
+    protected BatteryReceivers mBatteryReceivers;
+    protected ConnectivityReceivers mConnectivityReceivers;
+    protected Bindings mBindings = new Bindings();
 
     protected String mUserId;
     protected int mPollInterval;
+    protected boolean mAdaptivePolling = false;
     protected long mTtl;
     protected boolean mPolling = false;
     protected long mLastPing = -1L;
@@ -92,7 +109,7 @@ public class LocationPublisher extends Service
 
     @Override
     public void onCreate(){
-        mBroadcast = LocPubBroadcasters.getInstance(this);
+        mBroadcast = LocPubBroadcasters.getInstance();
         Log.i(TAG, "Location service created.");
     }
 
@@ -124,16 +141,24 @@ public class LocationPublisher extends Service
         mPrefs = PreferenceManager.getDefaultSharedPreferences(this);
         mPrefListener = buildPrefListener();
         mPollInterval = getPollIntervalPref();
+        mAdaptivePolling = getAdaptivePollingPref();
+        mPollPolicy.setBaseInterval(mPollInterval);
+        mPublishFilter.setMinDistance(getMinDistancePref());
         mTtl = getTtlPref();
         mLocReq = buildLocReq();
+        mBatteryReceivers = new BatteryReceivers(this);
+        mConnectivityReceivers = new ConnectivityReceivers(this);
 
         mWhereatClient = WhereatApiClient.getInstance();
-        mDao = new LocationDao(this);
-        mScheduler = Scheduler.getInstance(this);
+        mDao = new LocationDao(this).setHistoryEnabled(getHistoryPref());
+        mScheduler = Scheduler.getInstance();
         mLocProvider = FusedLocationApi;
 
         mLocSub = this::record;
+        mDeltaSub = this::reconcile;
         mClearSub = mBroadcast::clear;
+        mQueue = new UpdateQueue(mDao, mWhereatClient, mLocSub);
+        resetDeltaSync();
 
         mUserId = getRandomId();
         mPolling = false;
@@ -143,10 +168,12 @@ public class LocationPublisher extends Service
 
     protected void run(){
         if (!mGoogClient.isConnected()) mGoogClient.connect();
-        mDao.connect();
+        LocationDao.fire(mDao.connectAsync(), "connecting to DB");
         mPrefs.registerOnSharedPreferenceChangeListener(mPrefListener);
+        mBatteryReceivers.register();
+        mConnectivityReceivers.register();
         mScheduler.forget(sForgetInterval, mTtl);
-
+        mBindings.bind(Channels.locationsForgotten().events(), this::forget);
     }
 
     @Override
@@ -164,9 +191,12 @@ public class LocationPublisher extends Service
     public void onDestroy(){
         stopPolling();
         mGoogClient.disconnect();
-        mDao.clear();
-        mDao.disconnect();
+        LocationDao.fire(mDao.clearAsync(), "clearing locations");
+        LocationDao.fire(mDao.disconnectAsync(), "disconnecting from DB");
+        mBatteryReceivers.unregister();
+        mConnectivityReceivers.unregister();
         mScheduler.cancelForget();
+        mBindings.unbind();
     }
 
     // CALLBACKS
@@ -174,7 +204,11 @@ public class LocationPublisher extends Service
     protected OnSharedPreferenceChangeListener buildPrefListener(){
         return ((SharedPreferences sp, String key) -> {
             if (key.equals(getString(R.string.pref_loc_share_interval_key))) resetPollInterval();
+            if (key.equals(getString(R.string.pref_loc_adaptive_key))) resetAdaptivePolling();
+            if (key.equals(getString(R.string.pref_loc_min_distance_key))) resetMinDistance();
             if (key.equals(getString(R.string.pref_loc_ttl_key))) resetTtl();
+            if (key.equals(getString(R.string.pref_loc_history_key))) resetHistory();
+            if (key.equals(getString(R.string.pref_loc_delta_sync_key))) resetDeltaSync();
         });
     }
 
@@ -202,7 +236,10 @@ public class LocationPublisher extends Service
             mBroadcast.fail();
             if(locationServicesDisabled()) mBroadcast.locServicesDisabled();
         }
-        else relay(l);
+        else {
+            mPublishFilter.reset(); // explicit pings always publish
+            relay(l);
+        }
     }
 
     public void poll(){
@@ -222,49 +259,112 @@ public class LocationPublisher extends Service
         return mPolling;
     }
 
+    public void onBatteryLow(boolean low){
+        if (mPollPolicy.setLowBattery(low) && mAdaptivePolling) resetLocReq();
+    }
+
+    public void onConnectivityChanged(boolean connected){
+        if (connected) mQueue.drain();
+    }
+
     public void clear(){
-        UserLocation ul = mDao.get(mUserId);
-        mWhereatClient.remove(ul).subscribe(mClearSub);
-        mDao.clear();
+        mDao.getAsync(mUserId)
+            .flatMap(mWhereatClient::remove)
+            .subscribe(mClearSub, e -> Log.e(TAG, "Error removing location from server: " + e.getMessage()));
+        LocationDao.fire(mDao.clearAsync(), "clearing locations");
+        mQueue.resetSync();
+        mPublishFilter.reset();
+    }
+
+    // prunes the DB (and history) whether or not a map is open to hear the same event
+    public void forget(long time){
+        LocationDao.fire(mDao.forgetSinceAsync(time), "forgetting locations");
     }
 
     // LOCATION HANDLERS
 
+    // an unmoved fix sends nothing: PublishFilter lets one through as a keep-alive every
+    // KEEP_ALIVE millis, and peers' locations arrive with the response to that (or to the next
+    // real move), so a stationary user costs one request per KEEP_ALIVE rather than one per fix
     protected void relay(Location l){
         UserLocation ul = UserLocation.valueOf(mUserId, l);
+        if (mAdaptivePolling && mPollPolicy.onFix(ul, l.getAccuracy())) resetLocReq();
+        if (!mPublishFilter.accept(ul, l.getAccuracy())) return;
 
-        mBroadcast.pub();
+        mBroadcast.pub(ul);
         update(ul);
-        mDao.save(ul);
+        LocationDao.fire(mDao.saveAsync(ul), "saving location");
         mLastPing = ul.getTime();
     }
 
+    // queued rather than sent directly, so the fix survives a failed request (see UpdateQueue)
     protected void update(UserLocation ul){
-        mWhereatClient.update(ul.withTimestamp(mLastPing))
-            .flatMap(Observable::from)
-            .subscribe(mLocSub);
+        mQueue.offer(ul.withTimestamp(mLastPing));
     }
 
-    protected void record(UserLocation ul){
-        mBroadcast.map(ul);
-        mDao.save(ul);
+    protected void record(List<UserLocation> uls){
+        mBroadcast.mapAll(uls);
+        LocationDao.fire(mDao.saveAllAsync(uls), "saving locations");
+    }
+
+    /**
+     * Applies a sync response, touching only the rows and markers that changed
+     */
+
+    protected void reconcile(LocationDelta delta){
+        List<UserLocation> changed = delta.getChanged();
+        if (!changed.isEmpty()) mBroadcast.mapAll(changed);
+        for (String id : delta.getRemoved()) mBroadcast.unmap(id);
+
+        if (!changed.isEmpty()) LocationDao.fire(mDao.saveAllAsync(changed), "saving synced locations");
+        if (!delta.getRemoved().isEmpty()) LocationDao.fire(mDao.deleteAllAsync(delta.getRemoved()), "deleting synced locations");
     }
 
     // HELPERS
 
     protected LocationRequest buildLocReq(){
+        int interval = mAdaptivePolling ? mPollPolicy.interval() : mPollInterval;
         return LocationRequest.create()
-            .setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY)
-            .setInterval(mPollInterval)
-            .setFastestInterval(mPollInterval);
+            .setPriority(mAdaptivePolling ? mPollPolicy.priority() : LocationRequest.PRIORITY_HIGH_ACCURACY)
+            .setInterval(interval)
+            .setFastestInterval(interval);
     }
 
-    protected void resetPollInterval(){
-        mPollInterval = getPollIntervalPref();
+    protected void resetLocReq(){
         mLocReq = buildLocReq();
         restartPolling();
     }
 
+    protected void resetPollInterval(){
+        mPollInterval = getPollIntervalPref();
+        mPollPolicy.setBaseInterval(mPollInterval);
+        resetLocReq();
+    }
+
+    protected void resetAdaptivePolling(){
+        mAdaptivePolling = getAdaptivePollingPref();
+        mPollPolicy.reset();
+        resetLocReq();
+    }
+
+    protected void resetMinDistance(){
+        mPublishFilter.setMinDistance(getMinDistancePref());
+        mPublishFilter.reset();
+    }
+
+    protected int getMinDistancePref(){
+        return parseInt(
+            mPrefs.getString(
+                getString(R.string.pref_loc_min_distance_key),
+                getString(R.string.pref_loc_min_distance_value_0)));
+    }
+
+    protected boolean getAdaptivePollingPref(){
+        return mPrefs.getBoolean(
+            getString(R.string.pref_loc_adaptive_key),
+            parseBoolean(getString(R.string.pref_loc_adaptive_value_default)));
+    }
+
     protected int getPollIntervalPref(){
         return parseInt(
             mPrefs.getString(
@@ -292,8 +392,30 @@ public class LocationPublisher extends Service
                 getString(R.string.pref_loc_ttl_value_1)));
     }
 
+    protected void resetHistory(){
+        mDao.setHistoryEnabled(getHistoryPref());
+    }
+
+    protected boolean getHistoryPref(){
+        return mPrefs.getBoolean(
+            getString(R.string.pref_loc_history_key),
+            parseBoolean(getString(R.string.pref_loc_history_value_default)));
+    }
+
+    // off by default: most servers lack /locations/sync, and probing it costs a 404 per start
+    protected void resetDeltaSync(){
+        if (getDeltaSyncPref()) mQueue.enableDeltaSync(mDeltaSub);
+        else mQueue.disableDeltaSync();
+    }
+
+    protected boolean getDeltaSyncPref(){
+        return mPrefs.getBoolean(
+            getString(R.string.pref_loc_delta_sync_key),
+            parseBoolean(getString(R.string.pref_loc_delta_sync_value_default)));
+    }
+
     protected String getRandomId(){
-        return UUID.randomUUID().toString();
+        return IdGenerator.getInstance().next();
     }
 
 
@@ -0,0 +1,43 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.util;
+
+import org.tlc.whereat.model.UserLocation;
+
+public class GeoUtils {
+
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    /**
+     * Great-circle (haversine) distance between two locations, in meters
+     */
+
+    public static double distance(UserLocation a, UserLocation b){
+        return distance(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+    }
+
+    public static double distance(double lat1, double lon1, double lat2, double lon2){
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+            Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+            Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+}
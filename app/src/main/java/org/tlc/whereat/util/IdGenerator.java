@@ -0,0 +1,63 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.util;
+
+import android.util.Base64;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Generates random ids: 128 bits from a SecureRandom that is created (and so seeded) once, written
+ * as 22 chars of unpadded URL-safe base64 (RFC 4648 section 5), so ids are safe in paths and JSON.
+ */
+
+public class IdGenerator {
+
+    // FIELDS
+
+    public static final int ID_BYTES = 16;
+    public static final int ID_LENGTH = 22; // ceil(16 * 8 / 6)
+
+    private static IdGenerator sInstance;
+    protected Random mRandom;
+
+    // CONSTRUCTORS
+
+    public static synchronized IdGenerator getInstance(){
+        if (sInstance == null) sInstance = new IdGenerator(new SecureRandom());
+        return sInstance;
+    }
+
+    public IdGenerator(Random random){
+        mRandom = random;
+    }
+
+    // PUBLIC METHODS
+
+    public String next(){
+        byte[] bytes = new byte[ID_BYTES];
+        mRandom.nextBytes(bytes);
+        return encode(bytes);
+    }
+
+    // HELPERS
+
+    protected static String encode(byte[] bytes){
+        return Base64.encodeToString(bytes, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
+    }
+}
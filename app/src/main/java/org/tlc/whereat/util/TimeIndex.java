@@ -0,0 +1,101 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Orders keys by last-seen time, so expiring everything older than a threshold costs
+ * O(log n + expired) instead of a scan over every key. Not thread-safe: callers synchronize.
+ *
+ * @param <K> Key type (ie: user id)
+ */
+
+public class TimeIndex<K> {
+
+    // FIELDS
+
+    protected final TreeMap<Long, Set<K>> mByTime = new TreeMap<>();
+    protected final Map<K, Long> mTimes = new HashMap<>();
+
+    // ACCESSORS
+
+    public int size(){ return mTimes.size(); }
+    public boolean contains(K key){ return mTimes.containsKey(key); }
+
+    // PUBLIC METHODS
+
+    /**
+     * Records (or moves) a key's last-seen time
+     */
+
+    public void touch(K key, long time){
+        Long old = mTimes.put(key, time);
+        if (old != null) unlink(key, old);
+
+        Set<K> bucket = mByTime.get(time);
+        if (bucket == null) mByTime.put(time, bucket = new LinkedHashSet<>());
+        bucket.add(key);
+    }
+
+    public void remove(K key){
+        Long old = mTimes.remove(key);
+        if (old != null) unlink(key, old);
+    }
+
+    /**
+     * Removes and returns every key last seen strictly before a given time, oldest first
+     *
+     * @param t Expiration time (in millis since 1970)
+     * @return Expired keys
+     */
+
+    public List<K> expire(long t){
+        List<K> expired = new ArrayList<>();
+        Iterator<Set<K>> buckets = mByTime.headMap(t).values().iterator();
+        while (buckets.hasNext()){
+            for (K key : buckets.next()) {
+                mTimes.remove(key);
+                expired.add(key);
+            }
+            buckets.remove();
+        }
+        return expired;
+    }
+
+    public void clear(){
+        mByTime.clear();
+        mTimes.clear();
+    }
+
+    // HELPERS
+
+    protected void unlink(K key, long time){
+        Set<K> bucket = mByTime.get(time);
+        if (bucket == null) return;
+        bucket.remove(key);
+        if (bucket.isEmpty()) mByTime.remove(time);
+    }
+}
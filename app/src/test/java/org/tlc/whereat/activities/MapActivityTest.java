@@ -21,6 +21,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
@@ -36,6 +37,11 @@ import org.tlc.whereat.services.LocPubManager;
 import org.tlc.whereat.modules.pubsub.receivers.MapActivityReceivers;
 import org.tlc.whereat.support.ActivityWithMenuHandlersTest;
 
+import java.util.Arrays;
+import java.util.List;
+
+import rx.Observable;
+import rx.Subscription;
 import rx.functions.Func1;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -43,6 +49,7 @@ import static org.mockito.Mockito.*;
 import static org.robolectric.Shadows.shadowOf;
 import static org.tlc.whereat.support.ActivityHelpers.createActivity;
 import static org.tlc.whereat.support.LocationHelpers.s17UserLocationStub;
+import static org.tlc.whereat.support.LocationHelpers.n17UserLocationStub;
 
 @RunWith(Enclosed.class)
 
@@ -50,6 +57,16 @@ public class MapActivityTest {
 
     static { ShadowLog.stream = System.out; }
     static UserLocation s17 = s17UserLocationStub();
+    static List<UserLocation> locs = Arrays.asList(s17);
+
+    static void stubAsyncDao(LocationDao dao){
+        doReturn(Observable.just(dao)).when(dao).connectAsync();
+        doReturn(Observable.just(dao)).when(dao).disconnectAsync();
+        doReturn(Observable.from(locs)).when(dao).streamAll();
+        doReturn(Observable.from(locs)).when(dao).streamAllSince(anyLong());
+        doReturn(Observable.just(1)).when(dao).forgetSinceAsync(anyLong());
+        doReturn(Observable.just(1)).when(dao).clearAsync();
+    }
 
     @RunWith(Enclosed.class)
 
@@ -87,6 +104,8 @@ public class MapActivityTest {
         public static class PostCreate {
 
             MapActivity a;
+            Subscription rendering;
+            Subscription refreshing;
 
             @Before
             public void setup(){
@@ -95,9 +114,14 @@ public class MapActivityTest {
                 a.mReceivers = mock(MapActivityReceivers.class);
                 a.mLocDao = mock(LocationDao.class);
                 a.mMapper = mock(Mapper.class);
+                rendering = mock(Subscription.class);
+                refreshing = mock(Subscription.class);
 
+                stubAsyncDao(a.mLocDao);
                 doReturn(a.mMapper).when(a.mMapper).render(anyListOf(UserLocation.class));
                 doNothing().when(a.mMapper).refresh(anyListOf(UserLocation.class));
+                doReturn(rendering).when(a.mMapper).render(any(Observable.class));
+                doReturn(refreshing).when(a.mMapper).refresh(any(Observable.class));
             }
 
             @Test
@@ -114,8 +138,12 @@ public class MapActivityTest {
                 a.onResume();
 
                 verify(a.mLocPubMgr, times(1)).start();
-                verify(a.mLocDao, times(1)).connect();
-                verify(a.mMapper, times(1)).render(anyListOf(UserLocation.class));
+                verify(a.mLocDao, times(1)).connectAsync();
+
+                ArgumentCaptor<Observable> stream = ArgumentCaptor.forClass(Observable.class);
+                verify(a.mMapper, times(1)).render(stream.capture());
+                assertThat(stream.getValue().toList().toBlocking().single()).isEqualTo(locs);
+                verify(a.mLocDao, times(1)).streamAll();
 
                 assertThat(a.mRunning).isTrue();
             }
@@ -126,10 +154,11 @@ public class MapActivityTest {
                 a.onResume();
 
                 verify(a.mLocPubMgr, times(0)).start();
-                verify(a.mLocDao, times(0)).connect();
-                verify(a.mMapper, times(0)).render(anyListOf(UserLocation.class));
+                verify(a.mLocDao, times(0)).connectAsync();
+                verify(a.mMapper, times(0)).render(any(Observable.class));
 
-                verify(a.mMapper, times(1)).refresh(anyListOf(UserLocation.class));
+                verify(a.mLocDao, times(1)).streamAllSince(anyLong());
+                verify(a.mMapper, times(1)).refresh(any(Observable.class));
             }
 
             @Test
@@ -140,12 +169,32 @@ public class MapActivityTest {
                 verify(a.mReceivers).unregister();
             }
 
+            @Test
+            public void onPause_should_stopStreamingLocationsToTheMap(){
+                a.onResume(); // first view renders
+                a.onResume(); // later views refresh
+
+                a.onPause();
+
+                verify(rendering).unsubscribe();
+                verify(refreshing).unsubscribe();
+            }
+
             @Test
             public void onDestroy_should_cleanUpResources(){
                 a.onDestroy();
 
                 verify(a.mMapper).clear();
-                verify(a.mLocDao).disconnect();
+                verify(a.mLocDao).disconnectAsync();
+            }
+
+            @Test
+            public void onDestroy_should_stopStreamingLocationsToTheMap(){
+                a.onResume();
+
+                a.onDestroy();
+
+                verify(rendering).unsubscribe();
             }
         }
     }
@@ -165,6 +214,7 @@ public class MapActivityTest {
             a.mLocDao = mock(LocationDao.class);
             a.mMapper = mock(Mapper.class);
 
+            stubAsyncDao(a.mLocDao);
             doReturn(a.mMapper).when(a.mMapper).render(anyListOf(UserLocation.class));
         }
 
@@ -174,13 +224,26 @@ public class MapActivityTest {
             verify(a.mMapper).record(s17);
         }
 
+        @Test
+        public void mapAll_should_delegateToChildren(){
+            List<UserLocation> uls = Arrays.asList(s17, n17UserLocationStub());
+            a.mapAll(uls);
+            verify(a.mMapper).recordAll(uls);
+        }
+
+        @Test
+        public void unmap_should_delegateToChildren(){
+            a.unmap(s17.getId());
+            verify(a.mMapper).remove(s17.getId());
+        }
+
         @Test
         public void forgetSince_should_delegateToChildren(){
             long t = s17.getTime();
             a.forgetSince(t);
 
             verify(a.mMapper).forgetSince(t);
-            verify(a.mLocDao).forgetSince(t);
+            verify(a.mLocDao).forgetSinceAsync(t);
         }
     }
 
@@ -199,6 +262,7 @@ public class MapActivityTest {
             a.mLocDao = mock(LocationDao.class);
             a.mMapper = mock(Mapper.class);
 
+            stubAsyncDao(a.mLocDao);
             doReturn(a.mMapper).when(a.mMapper).render(anyListOf(UserLocation.class));
         }
 
@@ -208,7 +272,7 @@ public class MapActivityTest {
             a.findViewById(R.id.refresh_map_button).performClick();
 
             InOrder inOrder = inOrder(a.mMapper, a.mLocDao, a.mLocPubMgr);
-            inOrder.verify(a.mLocDao).clear();
+            inOrder.verify(a.mLocDao).clearAsync();
             inOrder.verify(a.mMapper).clear();
             inOrder.verify(a.mLocPubMgr).ping();
         }
@@ -0,0 +1,77 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.model;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tlc.whereat.support.Benchmark;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.Assume.assumeTrue;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+/**
+ * Compares the old way (a new reflective Gson per call) to the shared Gson and its adapters
+ */
+
+public class JsonBenchmark {
+
+    static final String PEERS = UserLocation.toJsonList(peerLocationsStub(50));
+
+    @Before
+    public void setup(){
+        assumeTrue(Benchmark.ENABLED);
+    }
+
+    @Test
+    public void fromJsonList_withSharedGson_should_beFasterAndAllocateLess() throws Exception {
+        Benchmark.Result perCall = Benchmark.run("fromJsonList (new Gson per call)", 1000, 5000, () ->
+            new Gson().fromJson(PEERS, new TypeToken<List<UserLocation>>(){}.getType()));
+        Benchmark.Result shared = Benchmark.run("fromJsonList (shared Gson + adapter)", 1000, 5000, () ->
+            UserLocation.fromJsonList(PEERS));
+
+        assertThat(shared.nanosPerOp).isLessThan(perCall.nanosPerOp);
+        if (shared.bytesPerOp >= 0) assertThat(shared.bytesPerOp).isLessThan(perCall.bytesPerOp);
+    }
+
+    @Test
+    public void toJson_withSharedGson_should_beFasterAndAllocateLess() throws Exception {
+        UserLocationTimestamped ult = s17LocationTimestampedStub();
+
+        Benchmark.Result perCall = Benchmark.run("toJson (new Gson per call)", () -> new Gson().toJson(ult));
+        Benchmark.Result shared = Benchmark.run("toJson (shared Gson + adapter)", ult::toJson);
+
+        assertThat(shared.nanosPerOp).isLessThan(perCall.nanosPerOp);
+        if (shared.bytesPerOp >= 0) assertThat(shared.bytesPerOp).isLessThan(perCall.bytesPerOp);
+    }
+
+    @Test
+    public void fromJson_withAdapter_vsCachedReflection() throws Exception {
+        Gson reflective = new Gson();
+
+        // reported rather than asserted: once Gson is cached, the adapters' edge is small and noisy
+        Benchmark.run("fromJson (cached reflective Gson)", () ->
+            reflective.fromJson(S17_WITH_PING_JSON, UserLocationTimestamped.class));
+        Benchmark.run("fromJson (shared Gson + adapter)", () ->
+            UserLocationTimestamped.fromJson(S17_WITH_PING_JSON));
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.model;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.ApiHelpers.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class JsonTest {
+
+    Gson reflective = new Gson();
+
+    @Test
+    public void gson_should_beShared(){
+        assertThat(Json.GSON).isSameAs(Json.GSON);
+    }
+
+    @Test
+    public void adapters_should_writeWhatReflectionWrote(){
+        UserLocationTimestamped ult = s17LocationTimestampedStub();
+        List<UserLocation> uls = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+
+        assertThat(Json.GSON.toJson(ult)).isEqualTo(reflective.toJson(ult));
+        assertThat(Json.GSON.toJson(uls, Json.LOCATION_LIST)).isEqualTo(reflective.toJson(uls));
+        assertThat(Json.GSON.toJson(removeMsgStub())).isEqualTo(reflective.toJson(removeMsgStub()));
+        assertThat(Json.GSON.toJson(new UserLocationTimestamped(null, null))).isEqualTo("{}");
+    }
+
+    @Test
+    public void adapters_should_skipUnknownAndNullFields(){
+        String json = "{\"id\":\"abc\",\"extra\":{\"a\":[1,2]},\"lat\":null,\"lon\":1.5,\"time\":7}";
+
+        assertThat(UserLocation.fromJson(json)).isEqualTo(UserLocation.create("abc", 0, 1.5, 7L));
+        assertThat(ApiMessage.fromJson("{\"code\":3,\"msg\":\"hi\"}")).isEqualTo(ApiMessage.of("hi"));
+        assertThat(UserLocationTimestamped.fromJson("{\"lastPing\":null,\"location\":null}").getLastPing()).isNull();
+    }
+
+    @Test
+    public void adapters_should_readNull(){
+        assertThat(UserLocation.fromJson("null")).isNull();
+        assertThat(UserLocation.fromJsonList("[null]")).containsExactly((UserLocation) null);
+    }
+
+    @Test
+    public void nestedModels_should_useTheAdapters(){
+        LocationDelta delta = LocationDelta.fromJson(
+            "{\"token\":\"t\",\"added\":[" + S17_JSON + "],\"moved\":[],\"removed\":[\"x\"]}");
+
+        assertThat(delta.getAdded()).containsExactly(s17UserLocationStub());
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.tlc.whereat.support.LocationHelpers.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class LocationDeltaTest {
+
+    static final String DELTA_JSON =
+        "{" +
+            "\"token\":\"42\"," +
+            "\"added\":[" + S17_JSON + "]," +
+            "\"moved\":[]," +
+            "\"removed\":[\"" + N17_UUID + "\"]" +
+        "}";
+
+    static LocationDelta deltaStub(){
+        return LocationDelta.of("42",
+            Arrays.asList(s17UserLocationStub()),
+            Collections.<UserLocation>emptyList(),
+            Arrays.asList(N17_UUID));
+    }
+
+    @Test
+    public void toJson_should_serializeToJson(){
+        assertThat(deltaStub().toJson()).isEqualTo(DELTA_JSON);
+    }
+
+    @Test
+    public void fromJson_should_deserializeFromJson(){
+        assertThat(LocationDelta.fromJson(DELTA_JSON)).isEqualTo(deltaStub());
+    }
+
+    @Test
+    public void fromJson_should_readMissingListsAsEmpty(){
+        LocationDelta delta = LocationDelta.fromJson("{\"token\":\"7\"}");
+
+        assertThat(delta.getToken()).isEqualTo("7");
+        assertThat(delta.getAdded()).isEmpty();
+        assertThat(delta.getMoved()).isEmpty();
+        assertThat(delta.getRemoved()).isEmpty();
+        assertThat(delta.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void getChanged_should_returnAddedThenMoved(){
+        LocationDelta delta = LocationDelta.of("1",
+            Arrays.asList(s17UserLocationStub()),
+            Arrays.asList(n17UserLocationStubMoved()),
+            null);
+
+        assertThat(delta.getChanged()).containsExactly(s17UserLocationStub(), n17UserLocationStubMoved());
+        assertThat(delta.isEmpty()).isFalse();
+    }
+}
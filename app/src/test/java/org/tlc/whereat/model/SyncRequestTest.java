@@ -0,0 +1,43 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.model;
+
+import org.junit.Test;
+
+import static org.tlc.whereat.support.LocationHelpers.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class SyncRequestTest {
+
+    static final String SYNC_JSON = "{\"location\":" + S17_JSON + ",\"token\":\"42\"}";
+
+    @Test
+    public void toJson_should_serializeToJson(){
+        assertThat(SyncRequest.of(s17UserLocationStub(), "42").toJson()).isEqualTo(SYNC_JSON);
+    }
+
+    @Test
+    public void toJson_withoutToken_should_omitIt(){
+        assertThat(SyncRequest.of(s17UserLocationStub(), null).toJson()).isEqualTo("{\"location\":" + S17_JSON + "}");
+    }
+
+    @Test
+    public void fromJson_should_deserializeFromJson(){
+        assertThat(SyncRequest.fromJson(SYNC_JSON)).isEqualTo(SyncRequest.of(s17UserLocationStub(), "42"));
+    }
+}
@@ -22,6 +22,7 @@ import android.location.Location;
 import com.google.gson.Gson;
 
 import org.junit.Test;
+import org.tlc.whereat.util.IdGenerator;
 
 import java.util.Arrays;
 
@@ -59,6 +60,13 @@ public class UserLocationTest {
         assertFalse(ul1.equals(ul2));
     }
 
+    @Test
+    public void valueOf_should_produceUrlSafeIds(){
+        UserLocation ul = UserLocation.valueOf(s17AndroidLocationMock());
+
+        assertThat(ul.getId()).matches("[A-Za-z0-9_-]{" + IdGenerator.ID_LENGTH + "}");
+    }
+
     @Test
     public void create_should_constructUserLocation(){
         assertThat(
@@ -0,0 +1,164 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.modules.api.CircuitBreaker.State.*;
+
+public class CircuitBreakerTest {
+
+    static final int THRESHOLD = 3;
+    static final long COOLDOWN = 1000L;
+
+    FakeClockBreaker breaker;
+    AtomicInteger calls;
+
+    static class FakeClockBreaker extends CircuitBreaker {
+        long mNow = 0L;
+
+        FakeClockBreaker(){
+            super(THRESHOLD, COOLDOWN);
+        }
+
+        @Override
+        protected long now() {
+            return mNow;
+        }
+    }
+
+    @Before
+    public void setup(){
+        breaker = new FakeClockBreaker();
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    public void newBreaker_should_beClosed(){
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void consecutiveTransientFailures_should_openBreaker(){
+        fail(THRESHOLD - 1);
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+
+        fail(1);
+        assertThat(breaker.state()).isEqualTo(OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    public void success_should_resetTheFailureCount(){
+        fail(THRESHOLD - 1);
+        breaker.onSuccess();
+        fail(THRESHOLD - 1);
+
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    public void permanentFailures_should_notOpenBreaker(){
+        for (int i = 0; i < THRESHOLD; i++) breaker.onFailure(new IllegalArgumentException());
+
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    public void afterCooldown_should_letOneTrialThrough(){
+        fail(THRESHOLD);
+        breaker.mNow = COOLDOWN - 1;
+        assertThat(breaker.allowRequest()).isFalse();
+
+        breaker.mNow = COOLDOWN;
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    public void trialOutcome_should_closeOrReopenBreaker(){
+        fail(THRESHOLD);
+        breaker.mNow = COOLDOWN;
+        breaker.allowRequest();
+        fail(1);
+
+        assertThat(breaker.state()).isEqualTo(OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+
+        breaker.mNow = 2 * COOLDOWN;
+        breaker.allowRequest();
+        breaker.onSuccess();
+
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    public void abandonedTrial_should_beReplacedAfterAnotherCooldown(){
+        fail(THRESHOLD);
+        breaker.mNow = COOLDOWN;
+        breaker.allowRequest();
+
+        breaker.mNow = 2 * COOLDOWN;
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void apply_should_failFastWithoutCallingWhileOpen(){
+        Observable<String> call = breaker.apply(Observable.defer(() -> {
+            calls.incrementAndGet();
+            return Observable.<String>error(new IOException());
+        }));
+
+        for (int i = 0; i < THRESHOLD + 2; i++) call.subscribe(new TestSubscriber<>());
+
+        TestSubscriber<String> sub = new TestSubscriber<>();
+        call.subscribe(sub);
+
+        assertThat(calls.get()).isEqualTo(THRESHOLD);
+        assertThat(sub.getOnErrorEvents().get(0)).isInstanceOf(CircuitBreaker.OpenException.class);
+    }
+
+    @Test
+    public void apply_should_reportSuccess(){
+        fail(THRESHOLD - 1);
+        TestSubscriber<String> sub = new TestSubscriber<>();
+
+        breaker.apply(Observable.just("ok")).subscribe(sub);
+        fail(THRESHOLD - 1);
+
+        sub.assertReceivedOnNext(Arrays.asList("ok"));
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+    }
+
+    // HELPERS
+
+    void fail(int n){
+        for (int i = 0; i < n; i++) breaker.onFailure(new IOException());
+    }
+}
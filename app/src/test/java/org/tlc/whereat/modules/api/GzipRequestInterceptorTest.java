@@ -0,0 +1,111 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okio.Buffer;
+import okio.GzipSource;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.modules.api.GzipRequestInterceptor.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+import static org.tlc.whereat.model.UserLocation.toJsonList;
+
+public class GzipRequestInterceptorTest {
+
+    static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+    static final String BIG = toJsonList(peerLocationsStub(50));
+    static final String SMALL = S17_JSON;
+
+    MockWebServer server;
+    OkHttpClient http;
+
+    @Before
+    public void setup() throws Exception {
+        server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200));
+        server.start();
+        http = new OkHttpClient();
+        http.interceptors().add(new GzipRequestInterceptor());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void markedRequest_should_beGzipped() throws Exception {
+        RecordedRequest req = post(BIG, true);
+
+        assertThat(req.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(req.getBodySize()).isLessThan(BIG.length());
+        assertThat(gunzip(req.getBody())).isEqualTo(BIG);
+    }
+
+    @Test
+    public void markedRequest_should_notLeakTheMarkerHeader() throws Exception {
+        assertThat(post(BIG, true).getHeader(GZIP_HEADER)).isNull();
+        server.enqueue(new MockResponse().setResponseCode(200));
+        assertThat(post(SMALL, true).getHeader(GZIP_HEADER)).isNull();
+    }
+
+    @Test
+    public void markedRequest_withSmallBody_should_beSentAsIs() throws Exception {
+        RecordedRequest req = post(SMALL, true);
+
+        assertThat(req.getHeader("Content-Encoding")).isNull();
+        assertThat(req.getBody().readUtf8()).isEqualTo(SMALL);
+    }
+
+    @Test
+    public void unmarkedRequest_should_beSentAsIs() throws Exception {
+        RecordedRequest req = post(BIG, false);
+
+        assertThat(req.getHeader("Content-Encoding")).isNull();
+        assertThat(req.getBody().readUtf8()).isEqualTo(BIG);
+    }
+
+    // HELPERS
+
+    RecordedRequest post(String json, boolean marked) throws Exception {
+        Request.Builder req = new Request.Builder()
+            .url(server.getUrl("/"))
+            .post(RequestBody.create(JSON, json));
+        if (marked) req.header(GZIP_HEADER, "true");
+        http.newCall(req.build()).execute().body().close();
+        return server.takeRequest();
+    }
+
+    static String gunzip(Buffer gzipped) throws Exception {
+        Buffer out = new Buffer();
+        GzipSource source = new GzipSource(gzipped);
+        while (source.read(out, Long.MAX_VALUE) != -1);
+        return out.readUtf8();
+    }
+}
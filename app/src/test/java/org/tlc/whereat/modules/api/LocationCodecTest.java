@@ -0,0 +1,131 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class LocationCodecTest {
+
+    static final Type LOCATION_LIST = new TypeToken<List<UserLocation>>(){}.getType();
+
+    @Test
+    public void supports_should_acceptOnlyLocationTypes(){
+        assertThat(LocationCodec.supports(UserLocation.class)).isTrue();
+        assertThat(LocationCodec.supports(UserLocationTimestamped.class)).isTrue();
+        assertThat(LocationCodec.supports(LOCATION_LIST)).isTrue();
+        assertThat(LocationCodec.supports(ApiMessage.class)).isFalse();
+        assertThat(LocationCodec.supports(new TypeToken<List<String>>(){}.getType())).isFalse();
+    }
+
+    @Test
+    public void location_should_roundTrip() throws Exception {
+        UserLocation s17 = s17UserLocationStub();
+        assertThat(LocationCodec.decode(LocationCodec.encode(s17), UserLocation.class)).isEqualTo(s17);
+    }
+
+    @Test
+    public void timestampedLocation_should_roundTrip() throws Exception {
+        UserLocationTimestamped ult = s17LocationTimestampedStub();
+        assertThat(LocationCodec.decode(LocationCodec.encode(ult), UserLocationTimestamped.class)).isEqualTo(ult);
+    }
+
+    @Test
+    public void timestampedLocation_withoutLastPing_should_roundTripAsNull() throws Exception {
+        UserLocationTimestamped ult = new UserLocationTimestamped(null, s17UserLocationStub());
+
+        UserLocationTimestamped decoded =
+            (UserLocationTimestamped) LocationCodec.decode(LocationCodec.encode(ult), UserLocationTimestamped.class);
+
+        assertThat(decoded.getLastPing()).isNull();
+        assertThat(decoded.getUserLocation()).isEqualTo(s17UserLocationStub());
+    }
+
+    @Test
+    public void timestampedLocation_withLastPingOfMinusOne_should_roundTripAsMinusOne() throws Exception {
+        UserLocationTimestamped ult = new UserLocationTimestamped(-1L, s17UserLocationStub());
+        assertThat(LocationCodec.decode(LocationCodec.encode(ult), UserLocationTimestamped.class)).isEqualTo(ult);
+    }
+
+    @Test
+    public void location_should_writeIdsAsPlainUtf8() throws Exception {
+        String id = "caf\u00e9-\ud83d\ude00"; // 2-byte and 4-byte (supplementary) code points
+        UserLocation ul = UserLocation.create(id, S17_LAT, S17_LON, S17_MILLIS);
+        byte[] utf8 = id.getBytes("UTF-8");
+
+        byte[] bytes = LocationCodec.encode(ul);
+
+        assertThat(ByteBuffer.wrap(bytes).getInt()).isEqualTo(utf8.length);
+        assertThat(Arrays.copyOfRange(bytes, 4, 4 + utf8.length)).isEqualTo(utf8);
+        assertThat(LocationCodec.decode(bytes, UserLocation.class)).isEqualTo(ul);
+    }
+
+    @Test
+    public void locationList_should_roundTrip() throws Exception {
+        List<UserLocation> uls = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+        assertThat(LocationCodec.decode(LocationCodec.encode(uls), LOCATION_LIST)).isEqualTo(uls);
+    }
+
+    @Test
+    public void location_should_beRoundedToSevenPlaces() throws Exception {
+        UserLocation precise = UserLocation.create(S17_UUID, S17_LAT + 1e-9, S17_LON - 1e-9, S17_MILLIS);
+        assertThat(LocationCodec.decode(LocationCodec.encode(precise), UserLocation.class))
+            .isEqualTo(s17UserLocationStub());
+    }
+
+    @Test
+    public void encoding_should_beMuchSmallerThanJson() throws Exception {
+        UserLocationTimestamped ult = s17LocationTimestampedStub();
+        List<UserLocation> uls = peerLocationsStub(500);
+
+        // 36-char id + 4 + 4 + 4 + 8
+        assertThat(LocationCodec.encode(s17UserLocationStub()).length).isEqualTo(56);
+        assertThat(LocationCodec.encode(ult).length).isLessThan(ult.toJson().length() * 2 / 3);
+        assertThat(LocationCodec.encode(uls).length).isLessThan(UserLocation.toJsonList(uls).length() * 2 / 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_should_rejectUnsupportedTypes() throws Exception {
+        LocationCodec.encode(ApiMessage.of("nope"));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_should_rejectAnImplausibleIdLength() throws Exception {
+        byte[] bytes = LocationCodec.encode(s17UserLocationStub());
+        bytes[0] = (byte) 0x7f; // claims a ~2GB id
+        LocationCodec.decode(bytes, UserLocation.class);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_should_rejectTruncatedInput() throws Exception {
+        byte[] bytes = LocationCodec.encode(s17UserLocationStub());
+        LocationCodec.decode(Arrays.copyOf(bytes, bytes.length - 1), UserLocation.class);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import org.junit.Test;
+import org.tlc.whereat.model.UserLocation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+import rx.observers.TestSubscriber;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class LocationStreamTest {
+
+    static final String JSON = "application/json; charset=UTF-8";
+    List<UserLocation> uls = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+
+    @Test
+    public void parse_should_emitEachLocationInAJsonArray(){
+        TestSubscriber<UserLocation> sub = new TestSubscriber<>();
+
+        LocationStream.parse(response(JSON, API_INIT_RESPONSE.getBytes())).subscribe(sub);
+
+        sub.assertReceivedOnNext(uls);
+        sub.assertTerminalEvent();
+        sub.assertNoErrors();
+    }
+
+    @Test
+    public void parse_should_emitEachLocationInABinaryList() throws Exception {
+        TestSubscriber<UserLocation> sub = new TestSubscriber<>();
+
+        LocationStream.parse(response(LocationCodec.MIME_TYPE, LocationCodec.encode(uls))).subscribe(sub);
+
+        sub.assertReceivedOnNext(uls);
+        sub.assertNoErrors();
+    }
+
+    @Test
+    public void parse_withEmptyArrayOrNoBody_should_complete(){
+        TestSubscriber<UserLocation> sub = new TestSubscriber<>();
+
+        LocationStream.parse(response(JSON, "[]".getBytes()))
+            .concatWith(LocationStream.parse(new Response("/", 204, "", Collections.emptyList(), null)))
+            .subscribe(sub);
+
+        sub.assertReceivedOnNext(Collections.<UserLocation>emptyList());
+        sub.assertNoErrors();
+        assertThat(sub.getOnCompletedEvents()).hasSize(1);
+    }
+
+    @Test
+    public void parse_should_emitLocationsBeforeTheBodyIsFullyRead(){
+        String truncated = API_INIT_RESPONSE.substring(0, API_INIT_RESPONSE.indexOf("},{") + 2);
+        TestSubscriber<UserLocation> sub = new TestSubscriber<>();
+
+        LocationStream.parse(response(JSON, truncated.getBytes())).subscribe(sub);
+
+        sub.assertReceivedOnNext(Collections.singletonList(s17UserLocationStub()));
+        assertThat(sub.getOnErrorEvents()).hasSize(1);
+    }
+
+    @Test
+    public void parse_whenUnsubscribed_should_stopReadingAndCloseTheBody(){
+        TrackedInput body = new TrackedInput(JSON, API_INIT_RESPONSE.getBytes());
+        Response res = new Response("/", 200, "OK", Collections.emptyList(), body);
+
+        List<UserLocation> first = LocationStream.parse(res).take(1).toList().toBlocking().single();
+
+        assertThat(first).containsExactly(s17UserLocationStub());
+        assertThat(body.closed).isTrue();
+    }
+
+    // HELPERS
+
+    static Response response(String mimeType, byte[] bytes){
+        return new Response("/", 200, "OK", Collections.emptyList(), new TrackedInput(mimeType, bytes));
+    }
+
+    static class TrackedInput implements TypedInput {
+        String mimeType;
+        byte[] bytes;
+        boolean closed;
+
+        TrackedInput(String mimeType, byte[] bytes){
+            this.mimeType = mimeType;
+            this.bytes = bytes;
+        }
+
+        @Override public String mimeType() { return mimeType; }
+        @Override public long length() { return bytes.length; }
+
+        @Override
+        public InputStream in() throws IOException {
+            return new ByteArrayInputStream(bytes) {
+                @Override
+                public void close() throws IOException {
+                    closed = true;
+                    super.close();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.api;
+
+import org.junit.Test;
+import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import retrofit.RequestInterceptor;
+import retrofit.converter.ConversionException;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedOutput;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.tlc.whereat.modules.api.LocationCodecTest.LOCATION_LIST;
+import static org.tlc.whereat.support.ApiHelpers.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class NegotiatingConverterTest {
+
+    static final String JSON = "application/json; charset=UTF-8";
+
+    NegotiatingConverter binary = new NegotiatingConverter(true);
+    NegotiatingConverter json = new NegotiatingConverter(false);
+
+    @Test
+    public void toBody_whenBinaryIsDisabled_should_writeJson() throws Exception {
+        TypedOutput out = json.toBody(s17LocationTimestampedStub());
+
+        assertThat(out.mimeType()).startsWith("application/json");
+        assertThat(UserLocationTimestamped.fromJson(write(out))).isEqualTo(s17LocationTimestampedStub());
+    }
+
+    @Test
+    public void toBody_whenBinaryIsEnabled_should_writeLocationsInBinary() throws Exception {
+        TypedOutput out = binary.toBody(s17LocationTimestampedStub());
+
+        assertThat(out.mimeType()).isEqualTo(LocationCodec.MIME_TYPE);
+        assertThat(out.length()).isEqualTo(LocationCodec.encode(s17LocationTimestampedStub()).length);
+    }
+
+    @Test
+    public void toBody_whenBinaryIsEnabled_should_writeOtherTypesAsJson() throws Exception {
+        assertThat(binary.toBody(removeMsgStub()).mimeType()).startsWith("application/json");
+    }
+
+    @Test
+    public void fromBody_should_decodeByContentType() throws Exception {
+        List<UserLocation> uls = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+        TypedByteArray bin = new TypedByteArray(LocationCodec.MIME_TYPE, LocationCodec.encode(uls));
+        TypedByteArray txt = new TypedByteArray(JSON, UserLocation.toJsonList(uls).getBytes("UTF-8"));
+
+        // either converter reads either format: the server's choice wins
+        assertThat(json.fromBody(bin, LOCATION_LIST)).isEqualTo(uls);
+        assertThat(binary.fromBody(txt, LOCATION_LIST)).isEqualTo(uls);
+    }
+
+    @Test(expected = ConversionException.class)
+    public void fromBody_withBinaryBodyForUnsupportedType_should_fail() throws Exception {
+        binary.fromBody(new TypedByteArray(LocationCodec.MIME_TYPE, new byte[]{ 0 }), ApiMessage.class);
+    }
+
+    @Test(expected = ConversionException.class)
+    public void fromBody_withTruncatedBinaryBody_should_fail() throws Exception {
+        binary.fromBody(new TypedByteArray(LocationCodec.MIME_TYPE, new byte[]{ 0, 0, 0, 1 }), LOCATION_LIST);
+    }
+
+    @Test
+    public void accept_should_advertiseBinaryOnlyWhenEnabled(){
+        RequestInterceptor.RequestFacade req = mock(RequestInterceptor.RequestFacade.class);
+
+        json.accept().intercept(req);
+        verify(req, never()).addHeader(anyString(), anyString());
+
+        binary.accept().intercept(req);
+        verify(req).addHeader("Accept", NegotiatingConverter.ACCEPT);
+    }
+
+    // HELPERS
+
+    static String write(TypedOutput out) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        out.writeTo(bytes);
+        return bytes.toString("UTF-8");
+    }
+}
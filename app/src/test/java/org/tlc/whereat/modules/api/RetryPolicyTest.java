@@ -0,0 +1,166 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RetryPolicyTest {
+
+    TestScheduler scheduler;
+    RetryPolicy policy;
+    AtomicInteger attempts;
+
+    @Before
+    public void setup(){
+        scheduler = new TestScheduler();
+        policy = new RetryPolicy(3, 1000L, 30000L, fixedRandom(0.5), scheduler);
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    public void delay_should_doubleEachFailureUpToMaxDelay(){
+        assertThat(policy.delay(1)).isEqualTo(500L);
+        assertThat(policy.delay(2)).isEqualTo(1000L);
+        assertThat(policy.delay(3)).isEqualTo(2000L);
+        assertThat(policy.delay(6)).isEqualTo(15000L);
+        assertThat(policy.delay(100)).isEqualTo(15000L);
+    }
+
+    @Test
+    public void delay_should_beJitteredAcrossTheWholeWindow(){
+        RetryPolicy jittered = new RetryPolicy(3, 1000L, 30000L, new Random(42), scheduler);
+        long min = Long.MAX_VALUE, max = 0L;
+
+        for (int i = 0; i < 1000; i++) {
+            long d = jittered.delay(3);
+            min = Math.min(min, d);
+            max = Math.max(max, d);
+        }
+
+        assertThat(min).isBetween(0L, 200L);
+        assertThat(max).isBetween(3800L, 4000L);
+    }
+
+    @Test
+    public void apply_should_retryTransientFailuresAfterBackingOff(){
+        TestSubscriber<String> sub = new TestSubscriber<>();
+        policy.apply(failingTimes(2, new IOException())).subscribe(sub);
+
+        assertThat(attempts.get()).isEqualTo(1);
+
+        scheduler.advanceTimeBy(499L, TimeUnit.MILLISECONDS);
+        assertThat(attempts.get()).isEqualTo(1);
+        scheduler.advanceTimeBy(1L, TimeUnit.MILLISECONDS);
+        assertThat(attempts.get()).isEqualTo(2);
+
+        scheduler.advanceTimeBy(1000L, TimeUnit.MILLISECONDS);
+        assertThat(attempts.get()).isEqualTo(3);
+        sub.assertNoErrors();
+        sub.assertReceivedOnNext(Arrays.asList("ok"));
+    }
+
+    @Test
+    public void apply_should_giveUpAfterMaxAttempts(){
+        TestSubscriber<String> sub = new TestSubscriber<>();
+        policy.apply(failingTimes(5, new IOException())).subscribe(sub);
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(sub.getOnErrorEvents()).hasSize(1);
+        assertThat(sub.getOnErrorEvents().get(0)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void apply_should_notRetryPermanentFailures(){
+        TestSubscriber<String> sub = new TestSubscriber<>();
+        policy.apply(failingTimes(1, httpError(404))).subscribe(sub);
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(sub.getOnErrorEvents()).hasSize(1);
+    }
+
+    @Test
+    public void apply_should_countAttemptsPerSubscription(){
+        Observable<String> call = policy.apply(failingTimes(2, new IOException()));
+
+        call.subscribe(new TestSubscriber<>());
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+        attempts.set(0);
+
+        TestSubscriber<String> sub = new TestSubscriber<>();
+        call.subscribe(sub);
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        assertThat(attempts.get()).isEqualTo(1);
+        sub.assertReceivedOnNext(Arrays.asList("ok"));
+    }
+
+    @Test
+    public void isTransient_should_onlyMatchFailuresWorthRetrying(){
+        assertThat(RetryPolicy.isTransient(new IOException())).isTrue();
+        assertThat(RetryPolicy.isTransient(RetrofitError.networkError("/", new IOException()))).isTrue();
+        assertThat(RetryPolicy.isTransient(httpError(503))).isTrue();
+        assertThat(RetryPolicy.isTransient(httpError(429))).isTrue();
+
+        assertThat(RetryPolicy.isTransient(httpError(404))).isFalse();
+        assertThat(RetryPolicy.isTransient(new IllegalStateException())).isFalse();
+        assertThat(RetryPolicy.isTransient(new CircuitBreaker.OpenException())).isFalse();
+    }
+
+    // HELPERS
+
+    Observable<String> failingTimes(int n, Throwable e){
+        return Observable.defer(() -> attempts.incrementAndGet() <= n ?
+            Observable.<String>error(e) :
+            Observable.just("ok"));
+    }
+
+    static RetrofitError httpError(int status){
+        Response res = new Response("/", status, "", Collections.<Header>emptyList(), null);
+        return RetrofitError.httpError("/", res, null, null);
+    }
+
+    static Random fixedRandom(double value){
+        return new Random() {
+            @Override
+            public double nextDouble() {
+                return value;
+            }
+        };
+    }
+}
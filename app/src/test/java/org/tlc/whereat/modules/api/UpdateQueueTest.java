@@ -0,0 +1,321 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.api;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import com.squareup.okhttp.mockwebserver.SocketPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.model.LocationDelta;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
+import org.tlc.whereat.support.DeltaSyncDispatcher;
+import org.tlc.whereat.support.FakeLocationDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import retrofit.RestAdapter;
+import rx.schedulers.Schedulers;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class UpdateQueueTest {
+
+    MockWebServer server;
+    FakeLocationDao dao;
+    UpdateQueue queue;
+    List<List<UserLocation>> responses;
+    List<LocationDelta> deltas;
+    volatile boolean online;
+
+    @Before
+    public void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        // run requests & callbacks on the calling thread, so each drain completes before offer() returns
+        WhereatApi api = new RestAdapter.Builder()
+            .setEndpoint(server.getUrl("/").toString())
+            .setExecutors(Runnable::run, Runnable::run)
+            .build()
+            .create(WhereatApi.class);
+
+        dao = new FakeLocationDao(RuntimeEnvironment.application).setScheduler(Schedulers.immediate());
+        dao.connect();
+        responses = new ArrayList<>();
+        deltas = new ArrayList<>();
+        queue = new UpdateQueue(dao, api, responses::add);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        dao.clear();
+        dao.disconnect();
+        server.shutdown();
+    }
+
+    @Test
+    public void offer_should_sendUpdateRelayResponseAndDequeue() throws Exception {
+        server.enqueue(ok(API_INIT_RESPONSE));
+
+        queue.offer(updateInitStub());
+
+        RecordedRequest req = server.takeRequest();
+        assertThat(req.getPath()).isEqualTo("/locations/update");
+        assertThat(UserLocationTimestamped.fromJson(req.getBody().readUtf8())).isEqualTo(updateInitStub());
+        assertThat(responses).containsExactly(Arrays.asList(s17UserLocationStub(), n17UserLocationStub()));
+        assertThat(dao.countQueued()).isEqualTo(0L);
+        assertThat(queue.isDraining()).isFalse();
+    }
+
+    @Test
+    public void offer_withManyPeers_should_relayTheResponseInChunksAsItStreams(){
+        List<UserLocation> peers = peerLocationsStub(2 * UpdateQueue.CHUNK_SIZE + 20);
+        server.enqueue(ok(UserLocation.toJsonList(peers)));
+
+        queue.offer(updateInitStub());
+
+        assertThat(responses).extracting(List::size).containsExactly(UpdateQueue.CHUNK_SIZE, UpdateQueue.CHUNK_SIZE, 20);
+        assertThat(flatten(responses)).isEqualTo(peers);
+        assertThat(dao.countQueued()).isEqualTo(0L);
+    }
+
+    @Test
+    public void offer_whenResponseIsCutShort_should_keepUpdateQueued(){
+        String json = UserLocation.toJsonList(peerLocationsStub(UpdateQueue.CHUNK_SIZE + 5));
+        server.enqueue(ok(json.substring(0, json.length() - 1) + ",{\"id\":"));
+
+        queue.offer(updateInitStub());
+
+        assertThat(responses).hasSize(1); // the full chunk decoded before the body broke off is relayed
+        assertThat(dao.countQueued()).isEqualTo(1L);
+        assertThat(queue.isDraining()).isFalse();
+    }
+
+    @Test
+    public void offer_whenServerErrors_should_keepUpdateQueuedUntilNextDrain(){
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(ok(API_REFRESH_RESPONSE));
+
+        queue.offer(updateRefreshStub());
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(responses).isEmpty();
+        assertThat(dao.countQueued()).isEqualTo(1L);
+        assertThat(queue.isDraining()).isFalse();
+
+        queue.drain();
+
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(responses).containsExactly(Arrays.asList(n17UserLocationStub()));
+        assertThat(dao.countQueued()).isEqualTo(0L);
+    }
+
+    @Test
+    public void offer_whenOffline_should_coalesceToNewestFixSinceOldestPing() throws Exception {
+        List<RecordedRequest> delivered = new ArrayList<>();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest req) {
+                if (!online) return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+                delivered.add(req);
+                return ok(API_INIT_RESPONSE);
+            }
+        });
+
+        queue.offer(fix(0, -1L));
+        queue.offer(fix(1, 0L));
+        queue.offer(fix(2, 1L));
+
+        assertThat(responses).isEmpty();
+        assertThat(dao.countQueued()).isEqualTo(1L);
+        assertThat(dao.nextQueued()).isEqualTo(fix(2, -1L));
+
+        online = true;
+        queue.drain();
+
+        assertThat(delivered).hasSize(1);
+        assertThat(UserLocationTimestamped.fromJson(delivered.get(0).getBody().readUtf8())).isEqualTo(fix(2, -1L));
+        assertThat(responses).hasSize(1);
+        assertThat(dao.countQueued()).isEqualTo(0L);
+    }
+
+    @Test
+    public void drain_should_sendEveryQueuedUserOldestFirst() throws Exception {
+        dao.enqueue(n17LocationTimestampedStub());
+        dao.enqueue(s17LocationTimestampedStub());
+        server.enqueue(ok(API_REFRESH_RESPONSE));
+        server.enqueue(ok(API_REFRESH_RESPONSE));
+
+        queue.drain();
+
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(UserLocationTimestamped.fromJson(server.takeRequest().getBody().readUtf8()))
+            .isEqualTo(s17LocationTimestampedStub());
+        assertThat(UserLocationTimestamped.fromJson(server.takeRequest().getBody().readUtf8()))
+            .isEqualTo(n17LocationTimestampedStub());
+        assertThat(dao.countQueued()).isEqualTo(0L);
+    }
+
+    @Test
+    public void offer_whileARequestIsInFlight_should_onlyQueue(){
+        queue.mInFlight.set(true);
+
+        queue.offer(updateInitStub());
+
+        assertThat(server.getRequestCount()).isEqualTo(0);
+        assertThat(dao.countQueued()).isEqualTo(1L);
+    }
+
+    @Test
+    public void drain_whenOutboxIsEmpty_should_sendNothing(){
+        queue.drain();
+
+        assertThat(server.getRequestCount()).isEqualTo(0);
+        assertThat(queue.isDraining()).isFalse();
+    }
+
+    @Test
+    public void sync_withoutToken_should_receiveEveryLocationAsAddedAndKeepTheToken(){
+        DeltaSyncDispatcher stub = new DeltaSyncDispatcher().put(n17UserLocationStub());
+        server.setDispatcher(stub);
+        queue.enableDeltaSync(deltas::add);
+
+        queue.offer(fix(0, -1L));
+
+        assertThat(stub.requests().get(0).getToken()).isNull();
+        assertThat(deltas).hasSize(1);
+        assertThat(deltas.get(0).getAdded()).containsOnly(n17UserLocationStub(), fix(0, -1L).getUserLocation());
+        assertThat(queue.syncToken()).isEqualTo(deltas.get(0).getToken());
+        assertThat(responses).isEmpty();
+        assertThat(dao.countQueued()).isEqualTo(0L);
+    }
+
+    @Test
+    public void sync_withToken_should_onlyReceiveWhatChanged(){
+        UserLocation peer = s17UserLocationStub("peer");
+        DeltaSyncDispatcher stub = new DeltaSyncDispatcher().put(n17UserLocationStub()).put(peer);
+        server.setDispatcher(stub);
+        queue.enableDeltaSync(deltas::add);
+        queue.offer(fix(0, -1L));
+        String token = queue.syncToken();
+
+        stub.put(n17UserLocationStubMoved()).remove(peer.getId());
+        queue.offer(fix(1, 0L));
+
+        assertThat(stub.requests().get(1).getToken()).isEqualTo(token);
+        LocationDelta delta = deltas.get(1);
+        assertThat(delta.getAdded()).isEmpty();
+        assertThat(delta.getMoved()).containsOnly(n17UserLocationStubMoved(), fix(1, 0L).getUserLocation());
+        assertThat(delta.getRemoved()).containsExactly(peer.getId());
+        assertThat(queue.syncToken()).isNotEqualTo(token);
+    }
+
+    @Test
+    public void sync_whenHandlingFails_should_keepTheOldTokenAndTheUpdate(){
+        DeltaSyncDispatcher stub = new DeltaSyncDispatcher();
+        server.setDispatcher(stub);
+        queue.enableDeltaSync(delta -> { throw new IllegalStateException(); });
+
+        queue.offer(fix(0, -1L));
+
+        assertThat(queue.syncToken()).isNull();
+        assertThat(dao.countQueued()).isEqualTo(1L);
+        assertThat(queue.isDraining()).isFalse();
+    }
+
+    @Test
+    public void resetSync_should_requestEverythingAgain(){
+        DeltaSyncDispatcher stub = new DeltaSyncDispatcher();
+        server.setDispatcher(stub);
+        queue.enableDeltaSync(deltas::add);
+        queue.offer(fix(0, -1L));
+
+        queue.resetSync();
+        queue.offer(fix(1, 0L));
+
+        assertThat(stub.requests().get(1).getToken()).isNull();
+        assertThat(deltas.get(1).getAdded()).containsOnly(fix(1, 0L).getUserLocation());
+    }
+
+    @Test
+    public void disableDeltaSync_should_sendFullUpdatesAgain() throws Exception {
+        LocationDelta delta = LocationDelta.of(
+            "1", Arrays.asList(n17UserLocationStub()), new ArrayList<>(), new ArrayList<>());
+        server.enqueue(ok(delta.toJson()));
+        server.enqueue(ok(API_INIT_RESPONSE));
+        queue.enableDeltaSync(deltas::add);
+        queue.offer(fix(0, -1L));
+
+        queue.disableDeltaSync();
+        queue.offer(fix(1, 0L));
+
+        assertThat(server.takeRequest().getPath()).isEqualTo("/locations/sync");
+        assertThat(server.takeRequest().getPath()).isEqualTo("/locations/update");
+        assertThat(queue.isDeltaSync()).isFalse();
+        assertThat(queue.syncToken()).isNull();
+        assertThat(responses).containsExactly(Arrays.asList(s17UserLocationStub(), n17UserLocationStub()));
+    }
+
+    @Test
+    public void sync_whenServerLacksSyncEndpoint_should_fallBackToFullUpdates(){
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(ok(API_INIT_RESPONSE));
+        queue.enableDeltaSync(deltas::add);
+
+        queue.offer(updateInitStub());
+
+        assertThat(queue.isDeltaSync()).isFalse();
+        assertThat(deltas).isEmpty();
+        assertThat(responses).containsExactly(Arrays.asList(s17UserLocationStub(), n17UserLocationStub()));
+        assertThat(dao.countQueued()).isEqualTo(0L);
+    }
+
+    // HELPERS
+
+    static List<UserLocation> flatten(List<List<UserLocation>> chunks){
+        List<UserLocation> all = new ArrayList<>();
+        for (List<UserLocation> chunk : chunks) all.addAll(chunk);
+        return all;
+    }
+
+    static MockResponse ok(String body){
+        return new MockResponse().setResponseCode(200).setBody(body);
+    }
+
+    static UserLocationTimestamped fix(int n, long lastPing){
+        return new UserLocationTimestamped(lastPing,
+            UserLocation.create(S17_UUID, S17_LAT + n * 0.001, S17_LON, S17_MILLIS + n * 1000L));
+    }
+}
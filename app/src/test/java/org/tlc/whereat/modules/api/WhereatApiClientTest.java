@@ -18,14 +18,27 @@
 package org.tlc.whereat.modules.api;
 
 
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
 import com.squareup.okhttp.mockwebserver.MockResponse;
 import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
 
 import java.util.Arrays;
+import java.util.List;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import retrofit.RetrofitError;
 
 import static org.tlc.whereat.support.LocationHelpers.*;
 import static org.tlc.whereat.support.ApiHelpers.*;
@@ -84,4 +97,139 @@ public class WhereatApiClientTest {
             mClient.remove(s17UserLocationStub()).toBlocking().first())
             .isEqualTo(removeMsgStub());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void update_whenServerIsFlaky_should_retryUntilItSucceeds(){
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(200).setBody(API_REFRESH_RESPONSE));
+        int before = mServer.getRequestCount();
+
+        assertThat(
+            resilientClient(new CircuitBreaker()).update(updateRefreshStub()).toBlocking().first())
+            .isEqualTo(Arrays.asList(n17UserLocationStub()));
+        assertThat(mServer.getRequestCount() - before).isEqualTo(2);
+    }
+
+    @Test
+    public void remove_whenRequestIsRejected_should_failWithoutRetrying(){
+        mServer.enqueue(new MockResponse().setResponseCode(400));
+        int before = mServer.getRequestCount();
+
+        Throwable error = resilientClient(new CircuitBreaker()).remove(s17UserLocationStub())
+            .materialize().toBlocking().first().getThrowable();
+
+        assertThat(error).isInstanceOf(RetrofitError.class);
+        assertThat(mServer.getRequestCount() - before).isEqualTo(1);
+    }
+
+    @Test
+    public void update_whenServerKeepsFailing_should_stopCallingOnceBreakerOpens(){
+        for (int i = 0; i < 2; i++) mServer.enqueue(new MockResponse().setResponseCode(500));
+        CircuitBreaker breaker = new CircuitBreaker(2, 60000L);
+        WhereatApiClient client = resilientClient(breaker);
+        int before = mServer.getRequestCount();
+
+        Throwable error = client.update(updateRefreshStub()).materialize().toBlocking().first().getThrowable();
+
+        assertThat(error).isInstanceOf(CircuitBreaker.OpenException.class);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(mServer.getRequestCount() - before).isEqualTo(2);
+    }
+
+    @Test
+    public void sharedHttpClient_should_beTunedAndShared(){
+        OkHttpClient http = WhereatApiClient.sharedHttpClient();
+
+        assertThat(http).isSameAs(WhereatApiClient.sharedHttpClient());
+        assertThat(http.getConnectTimeout()).isEqualTo(WhereatApiClient.CONNECT_TIMEOUT);
+        assertThat(http.getReadTimeout()).isEqualTo(WhereatApiClient.READ_TIMEOUT);
+        assertThat(http.getWriteTimeout()).isEqualTo(WhereatApiClient.WRITE_TIMEOUT);
+        assertThat(http.getProtocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        assertThat(http.interceptors()).hasSize(1).hasOnlyElementsOfType(GzipRequestInterceptor.class);
+    }
+
+    @Test
+    public void builder_should_shareOneConnectionPoolAcrossClients(){
+        WhereatApiClient c1 = new WhereatApiClient.Builder().setRoot(mServerRoot).build();
+        WhereatApiClient c2 = new WhereatApiClient.Builder().setRoot(mServerRoot).build();
+
+        assertThat(c1.mHttpClient).isSameAs(c2.mHttpClient);
+        assertThat(c1.mHttpClient.getConnectionPool()).isSameAs(c2.mHttpClient.getConnectionPool());
+    }
+
+    @Test
+    public void builder_should_sendRequestsThroughTheGivenHttpClient() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(API_REFRESH_RESPONSE));
+        server.start();
+        OkHttpClient http = new OkHttpClient();
+        http.networkInterceptors().add(chain ->
+            chain.proceed(chain.request().newBuilder().header("X-Test", "injected").build()));
+        WhereatApiClient client = new WhereatApiClient.Builder()
+            .setRoot(server.getUrl("/").toString())
+            .setHttpClient(http)
+            .build();
+
+        client.update(updateRefreshStub()).toBlocking().first();
+
+        assertThat(server.takeRequest().getHeader("X-Test")).isEqualTo("injected");
+        server.shutdown();
+    }
+
+    @Test
+    public void update_withManyPeers_should_acceptAGzippedResponse() throws Exception {
+        List<UserLocation> peers = peerLocationsStub(500);
+        byte[] json = UserLocation.toJsonList(peers).getBytes("UTF-8");
+        Buffer gzipped = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(gzipped));
+        sink.write(json).close();
+        long compressed = gzipped.size();
+
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse()
+            .setResponseCode(200)
+            .setHeader("Content-Encoding", "gzip")
+            .setBody(gzipped));
+        server.start();
+        WhereatApiClient client = new WhereatApiClient.Builder().setRoot(server.getUrl("/").toString()).build();
+
+        assertThat(client.update(updateRefreshStub()).toBlocking().first()).isEqualTo(peers);
+        assertThat(server.takeRequest().getHeader("Accept-Encoding")).isEqualTo("gzip");
+        assertThat(compressed).isLessThan(json.length / 2);
+        server.shutdown();
+    }
+
+    @Test
+    public void update_withBinaryCodec_should_exchangeLocationsInBinary() throws Exception {
+        List<UserLocation> uls = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse()
+            .setResponseCode(200)
+            .setHeader("Content-Type", LocationCodec.MIME_TYPE)
+            .setBody(new Buffer().write(LocationCodec.encode(uls))));
+        server.start();
+        WhereatApiClient client = new WhereatApiClient.Builder()
+            .setRoot(server.getUrl("/").toString())
+            .setBinaryCodec(true)
+            .build();
+
+        assertThat(client.update(updateRefreshStub()).toBlocking().first()).isEqualTo(uls);
+
+        RecordedRequest req = server.takeRequest();
+        assertThat(req.getHeader("Accept")).isEqualTo(NegotiatingConverter.ACCEPT);
+        assertThat(req.getHeader("Content-Type")).isEqualTo(LocationCodec.MIME_TYPE);
+        assertThat(LocationCodec.decode(req.getBody().readByteArray(), UserLocationTimestamped.class))
+            .isEqualTo(updateRefreshStub());
+        server.shutdown();
+    }
+
+    // HELPERS
+
+    static WhereatApiClient resilientClient(CircuitBreaker breaker){
+        return new WhereatApiClient.Builder()
+            .setRoot(mServerRoot)
+            .setRetryPolicy(new RetryPolicy(3, 1L, 1L))
+            .setCircuitBreaker(breaker)
+            .build();
+    }
+}
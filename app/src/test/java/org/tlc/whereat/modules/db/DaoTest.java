@@ -0,0 +1,226 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.model.UserLocation;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class DaoTest {
+
+    static final String MIGRATION_DB_NAME = "whereat-migration-test.db";
+    static final String SELECT_SINCE = "select * from " + Dao.TABLE_LOCATIONS + " where " + Dao.COLUMN_TIME + " > ?";
+    static final String DELETE_BEFORE = "delete from " + Dao.TABLE_LOCATIONS + " where " + Dao.COLUMN_TIME + " < ?";
+    static final String SELECT_TRAIL = "select * from " + Dao.TABLE_HISTORY + " where " + Dao.COLUMN_USER_ID + " = ? order by " + Dao.COLUMN_TIME;
+    static final String SELECT_QUEUED = "select * from " + Dao.TABLE_OUTBOX + " where " + Dao.COLUMN_USER_ID + " = ?";
+    static final String DELETE_HISTORY_BEFORE = "delete from " + Dao.TABLE_HISTORY + " where " + Dao.COLUMN_TIME + " < ?";
+
+    Context ctx = RuntimeEnvironment.application;
+    Dao dao;
+
+    @Before
+    public void setup(){
+        ctx.deleteDatabase(MIGRATION_DB_NAME);
+    }
+
+    @After
+    public void teardown(){
+        if (dao != null) dao.close();
+        ctx.deleteDatabase(MIGRATION_DB_NAME);
+    }
+
+    @Test
+    public void patches_should_coverEveryVersion(){
+        assertThat(Dao.PATCHES).hasSize(Dao.DB_VERSION);
+    }
+
+    @Test
+    public void onCreate_should_applyEveryPatch(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME);
+        SQLiteDatabase db = dao.getWritableDatabase();
+
+        assertThat(db.getVersion()).isEqualTo(Dao.DB_VERSION);
+        assertThat(queryPlan(db, SELECT_SINCE)).contains(Dao.INDEX_LOCATIONS_TIME);
+    }
+
+    @Test
+    public void onUpgrade_fromPopulatedV3_should_keepRecordsAndIndexTime(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME, 3);
+        SQLiteDatabase v3 = dao.getWritableDatabase();
+        insert(v3, s17UserLocationStub());
+        insert(v3, n17UserLocationStub());
+
+        assertThat(queryPlan(v3, SELECT_SINCE)).doesNotContain(Dao.INDEX_LOCATIONS_TIME);
+        dao.close();
+
+        dao = new Dao(ctx, MIGRATION_DB_NAME, Dao.DB_VERSION);
+        SQLiteDatabase v4 = dao.getWritableDatabase();
+
+        assertThat(v4.getVersion()).isEqualTo(Dao.DB_VERSION);
+        assertThat(DatabaseUtils.queryNumEntries(v4, Dao.TABLE_LOCATIONS)).isEqualTo(2L);
+        assertThat(queryPlan(v4, SELECT_SINCE)).contains(Dao.INDEX_LOCATIONS_TIME);
+        assertThat(queryPlan(v4, DELETE_BEFORE)).contains(Dao.INDEX_LOCATIONS_TIME);
+    }
+
+    @Test
+    public void onDowngrade_toV3_should_keepRecordsAndDropIndex(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME, Dao.DB_VERSION);
+        insert(dao.getWritableDatabase(), s17UserLocationStub());
+        dao.close();
+
+        dao = new Dao(ctx, MIGRATION_DB_NAME, 3);
+        SQLiteDatabase v3 = dao.getWritableDatabase();
+
+        assertThat(v3.getVersion()).isEqualTo(3);
+        assertThat(DatabaseUtils.queryNumEntries(v3, Dao.TABLE_LOCATIONS)).isEqualTo(1L);
+        assertThat(queryPlan(v3, SELECT_SINCE)).doesNotContain(Dao.INDEX_LOCATIONS_TIME);
+    }
+
+    @Test
+    public void onUpgrade_fromV4_should_addIndexedHistoryTable(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME, 4);
+        insert(dao.getWritableDatabase(), s17UserLocationStub());
+        dao.close();
+
+        dao = new Dao(ctx, MIGRATION_DB_NAME, Dao.DB_VERSION);
+        SQLiteDatabase v5 = dao.getWritableDatabase();
+
+        assertThat(DatabaseUtils.queryNumEntries(v5, Dao.TABLE_LOCATIONS)).isEqualTo(1L);
+        assertThat(DatabaseUtils.queryNumEntries(v5, Dao.TABLE_HISTORY)).isEqualTo(0L);
+        assertThat(queryPlan(v5, SELECT_TRAIL)).contains(Dao.INDEX_HISTORY_USER_TIME);
+        assertThat(queryPlan(v5, DELETE_HISTORY_BEFORE)).contains(Dao.INDEX_HISTORY_TIME);
+    }
+
+    @Test
+    public void onDowngrade_toV4_should_dropHistoryTable(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME, Dao.DB_VERSION);
+        dao.getWritableDatabase();
+        dao.close();
+
+        dao = new Dao(ctx, MIGRATION_DB_NAME, 4);
+        SQLiteDatabase v4 = dao.getWritableDatabase();
+
+        assertThat(DatabaseUtils.queryNumEntries(v4, "sqlite_master", "name = ?", new String[]{ Dao.TABLE_HISTORY }))
+            .isEqualTo(0L);
+    }
+
+    @Test
+    public void onUpgrade_fromV5_should_addOutboxKeyedByUser(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME, 5);
+        insert(dao.getWritableDatabase(), s17UserLocationStub());
+        dao.close();
+
+        dao = new Dao(ctx, MIGRATION_DB_NAME, Dao.DB_VERSION);
+        SQLiteDatabase v6 = dao.getWritableDatabase();
+
+        assertThat(DatabaseUtils.queryNumEntries(v6, Dao.TABLE_LOCATIONS)).isEqualTo(1L);
+        assertThat(DatabaseUtils.queryNumEntries(v6, Dao.TABLE_OUTBOX)).isEqualTo(0L);
+        assertThat(queryPlan(v6, SELECT_QUEUED)).contains("sqlite_autoindex_" + Dao.TABLE_OUTBOX);
+    }
+
+    @Test
+    public void onDowngrade_toV5_should_dropOutbox(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME, Dao.DB_VERSION);
+        dao.getWritableDatabase();
+        dao.close();
+
+        dao = new Dao(ctx, MIGRATION_DB_NAME, 5);
+        SQLiteDatabase v5 = dao.getWritableDatabase();
+
+        assertThat(DatabaseUtils.queryNumEntries(v5, "sqlite_master", "name = ?", new String[]{ Dao.TABLE_OUTBOX }))
+            .isEqualTo(0L);
+        assertThat(DatabaseUtils.queryNumEntries(v5, "sqlite_master", "name = ?", new String[]{ Dao.TABLE_HISTORY }))
+            .isEqualTo(1L);
+    }
+
+    @Test
+    public void getInstance_should_shareOneHelperAcrossTheProcess(){
+        assertThat(Dao.getInstance(ctx)).isSameAs(Dao.getInstance(ctx));
+    }
+
+    @Test
+    public void acquire_should_openOneWriteAheadLoggedConnection(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME);
+        SQLiteDatabase db1 = dao.acquire();
+        SQLiteDatabase db2 = dao.acquire();
+
+        assertThat(db1).isSameAs(db2);
+        assertThat(db1.isWriteAheadLoggingEnabled()).isTrue();
+        assertThat(dao.refs()).isEqualTo(2);
+    }
+
+    @Test
+    public void release_should_onlyCloseConnectionWhenLastUserReleasesIt(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME);
+        SQLiteDatabase db = dao.acquire();
+        dao.acquire();
+
+        dao.release();
+        assertThat(dao.refs()).isEqualTo(1);
+        assertThat(db.isOpen()).isTrue();
+
+        dao.release();
+        assertThat(dao.refs()).isEqualTo(0);
+        assertThat(db.isOpen()).isFalse();
+    }
+
+    @Test
+    public void release_whenNotAcquired_should_notGoNegative(){
+        dao = new Dao(ctx, MIGRATION_DB_NAME);
+        dao.release();
+
+        assertThat(dao.refs()).isEqualTo(0);
+    }
+
+    // HELPERS
+
+    static void insert(SQLiteDatabase db, UserLocation ul){
+        ContentValues vals = new ContentValues();
+        vals.put(Dao.COLUMN_ID, ul.getId());
+        vals.put(Dao.COLUMN_LAT, ul.getLatitude());
+        vals.put(Dao.COLUMN_LON, ul.getLongitude());
+        vals.put(Dao.COLUMN_TIME, ul.getTime());
+        db.insert(Dao.TABLE_LOCATIONS, null, vals);
+    }
+
+    static String queryPlan(SQLiteDatabase db, String sql){
+        Cursor c = db.rawQuery("explain query plan " + sql, new String[]{ "0" });
+        StringBuilder plan = new StringBuilder();
+        while (c.moveToNext()) plan.append(c.getString(c.getColumnIndex("detail"))).append('\n');
+        c.close();
+        return plan.toString();
+    }
+}
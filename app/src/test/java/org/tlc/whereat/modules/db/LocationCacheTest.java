@@ -0,0 +1,167 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.db;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.support.SampleTimes;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class LocationCacheTest {
+
+    LocationCache cache;
+    UserLocation s17 = s17UserLocationStub();
+    UserLocation s17_ = s17UserLocationStubMoved();
+    UserLocation n17 = n17UserLocationStub();
+
+    @Before
+    public void setup(){
+        cache = new LocationCache(2);
+    }
+
+    @Test
+    public void getInstance_should_returnASharedCache(){
+        assertThat(LocationCache.getInstance()).isSameAs(LocationCache.getInstance());
+        assertThat(LocationCache.getInstance().capacity()).isEqualTo(LocationCache.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void newCache_should_beEmptyAndIncomplete(){
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.isComplete()).isFalse();
+    }
+
+    @Test
+    public void get_should_countHitsAndMisses(){
+        cache.put(s17);
+
+        assertThat(cache.get(s17.getId())).isEqualTo(s17);
+        assertThat(cache.get(n17.getId())).isNull();
+        assertThat(cache.get(s17.getId())).isEqualTo(s17);
+
+        assertThat(cache.hits()).isEqualTo(2L);
+        assertThat(cache.misses()).isEqualTo(1L);
+    }
+
+    @Test
+    public void put_should_replaceTheLatestLocationForAnId(){
+        cache.put(s17);
+        cache.put(s17_);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(s17.getId())).isEqualTo(s17_);
+    }
+
+    @Test
+    public void put_overCapacity_should_evictLeastRecentlyUsedAndMarkIncomplete(){
+        cache.clear();
+        cache.put(s17);
+        cache.put(n17);
+        cache.get(s17.getId());
+        cache.put(s17UserLocationStub("other"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(n17.getId())).isNull();
+        assertThat(cache.get(s17.getId())).isNotNull();
+        assertThat(cache.evictions()).isEqualTo(1L);
+        assertThat(cache.isComplete()).isFalse();
+    }
+
+    @Test
+    public void warm_should_markCompleteOnlyIfEveryRowFits(){
+        cache.warm(Arrays.asList(s17, n17));
+        assertThat(cache.isComplete()).isTrue();
+
+        cache.warm(Arrays.asList(s17, n17, s17UserLocationStub("other")));
+        assertThat(cache.isComplete()).isFalse();
+    }
+
+    @Test
+    public void markComplete_should_failIfAnythingWasEvictedDuringTheStream(){
+        long before = cache.evictions();
+        cache.put(s17);
+        cache.markComplete(before);
+        assertThat(cache.isComplete()).isTrue();
+
+        cache.invalidate();
+        before = cache.evictions();
+        cache.putAll(Arrays.asList(s17, n17, s17UserLocationStub("other")));
+        cache.markComplete(before);
+        assertThat(cache.isComplete()).isFalse();
+    }
+
+    @Test
+    public void getAll_should_returnLocationsOldestFirst(){
+        cache.put(n17);
+        cache.put(s17);
+
+        assertThat(cache.getAll()).containsExactly(s17, n17);
+        assertThat(cache.getAllSince(SampleTimes.S17)).containsExactly(n17);
+    }
+
+    @Test
+    public void forgetSince_should_removeExpiredLocations(){
+        cache.putAll(Arrays.asList(s17, n17));
+        cache.forgetSince(SampleTimes.N17);
+
+        assertThat(cache.getAll()).containsExactly(n17);
+    }
+
+    @Test
+    public void forgetSince_should_useEachLocationsLatestTime(){
+        cache.put(s17);
+        cache.put(s17_);
+        cache.forgetSince(s17_.getTime());
+
+        assertThat(cache.getAll()).containsExactly(s17_);
+    }
+
+    @Test
+    public void forgetSince_should_notResurrectEvictedLocations(){
+        cache.putAll(Arrays.asList(s17, n17, s17UserLocationStub("other")));
+        cache.forgetSince(Long.MAX_VALUE);
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.mExpiry.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void clear_should_leaveACompleteEmptyCache(){
+        cache.putAll(Arrays.asList(s17, n17));
+        cache.clear();
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.isComplete()).isTrue();
+    }
+
+    @Test
+    public void invalidate_should_resetContentsAndCounters(){
+        cache.put(s17);
+        cache.get(s17.getId());
+        cache.invalidate();
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.isComplete()).isFalse();
+        assertThat(cache.hits()).isEqualTo(0L);
+    }
+}
@@ -17,7 +17,9 @@
 
 package org.tlc.whereat.modules.db;
 
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import org.junit.After;
 import org.junit.Before;
@@ -29,11 +31,18 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.model.UserLocationTimestamped;
 import org.tlc.whereat.support.FakeLocationDao;
 import org.tlc.whereat.support.SampleTimes;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import rx.Observable;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+
 
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
@@ -57,7 +66,7 @@ public class LocationDaoTest {
         public void setup(){
             mMockDao = mock(Dao.class);
             mMockDb = mock(SQLiteDatabase.class);
-            when(mMockDao.getWritableDatabase()).thenReturn(mMockDb);
+            when(mMockDao.acquire()).thenReturn(mMockDb);
 
             mLocDao = new FakeLocationDao(RuntimeEnvironment.application)
                 .setDao(mMockDao);
@@ -77,18 +86,35 @@ public class LocationDaoTest {
             assertThat(mLocDao.mConnected).isFalse();
             mLocDao.connect();
 
-            verify(mMockDao, times(1)).getWritableDatabase();
+            verify(mMockDao, times(1)).acquire();
             assertThat(mLocDao.getDb()).isEqualTo(mMockDb);
             assertThat(mLocDao.mConnected).isTrue();
         }
 
         @Test
-        public void disconnect_should_disconnectFromDatabase(){
+        public void connect_should_onlyAcquireTheSharedConnectionOnce(){
+            mLocDao.connect();
+            mLocDao.connect();
+
+            verify(mMockDao, times(1)).acquire();
+        }
+
+        @Test
+        public void disconnect_should_releaseTheSharedConnection(){
             mLocDao.setDb(mMockDb);
+            mLocDao.mConnected = true;
+            mLocDao.disconnect();
+
+            verify(mMockDao, times(1)).release();
+            verify(mMockDb, never()).close();
+            assertThat(mLocDao.mConnected).isFalse();
+        }
+
+        @Test
+        public void disconnect_whenNotConnected_should_doNothing(){
             mLocDao.disconnect();
 
-            verify(mMockDao, times(1)).close();
-            verify(mMockDb, times(1)).close();
+            verify(mMockDao, never()).release();
         }
 
     }
@@ -153,6 +179,29 @@ public class LocationDaoTest {
             assertTrue(areEqual(ul, retrieved));
         }
 
+        @Test
+        public void saveAll_should_saveManyLocations(){
+            UserLocation s17 = s17UserLocationStub();
+            UserLocation n17 = n17UserLocationStub();
+
+            int res = mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            assertThat(res).isEqualTo(2);
+            assertThat(mLocDao.count()).isEqualTo(2);
+            assertTrue(mLocDao.get(S17_UUID).equals(s17));
+            assertTrue(mLocDao.get(N17_UUID).equals(n17));
+        }
+
+        @Test
+        public void saveAll_should_overWriteOldLocations(){
+            mLocDao.save(s17UserLocationStub());
+
+            mLocDao.saveAll(Arrays.asList(s17UserLocationStubMoved(), n17UserLocationStub()));
+
+            assertThat(mLocDao.count()).isEqualTo(2);
+            assertTrue(mLocDao.get(S17_UUID).equals(s17UserLocationStubMoved()));
+        }
+
         @Test
         public void count_should_countHowManyLocationsAreInTheDb(){
             UserLocation s17 = s17UserLocationStub();
@@ -217,6 +266,23 @@ public class LocationDaoTest {
             assertThat(mLocDao.count()).isEqualTo(1);
         }
 
+        @Test
+        public void deleteAll_should_deleteEachListedRecord(){
+            int deleteCount = mLocDao.deleteAll(Arrays.asList(s17.getId(), "unknown"));
+
+            assertThat(deleteCount).isEqualTo(1);
+            assertThat(mLocDao.count()).isEqualTo(1);
+            assertThat(mLocDao.get(n17.getId())).isNotNull();
+        }
+
+        @Test
+        public void delete_should_notBeInjectableThroughTheId(){
+            int deleteCount = mLocDao.delete("x' or '1' = '1");
+
+            assertThat(deleteCount).isEqualTo(0);
+            assertThat(mLocDao.count()).isEqualTo(2);
+        }
+
         @Test
         public void forgetSince_should_deleteRecordsOlderThanAnExpiryDate(){
             assertThat(mLocDao.count()).isEqualTo(2);
@@ -241,24 +307,623 @@ public class LocationDaoTest {
         }
     }
 
+    @RunWith(RobolectricGradleTestRunner.class)
+    @Config(constants = BuildConfig.class, sdk = 21)
+
+    public static class CompiledStatements {
+
+        private FakeLocationDao mLocDao;
+        private Dao mMockDao;
+        private SQLiteDatabase mMockDb;
+        private SQLiteStatement mMockStmt;
+        private List<UserLocation> locs = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+
+        @Before
+        public void setup(){
+            mMockDao = mock(Dao.class);
+            mMockDb = mock(SQLiteDatabase.class);
+            mMockStmt = mock(SQLiteStatement.class);
+            when(mMockDao.acquire()).thenReturn(mMockDb);
+            when(mMockDb.compileStatement(anyString())).thenReturn(mMockStmt);
+
+            mLocDao = new FakeLocationDao(RuntimeEnvironment.application).setDao(mMockDao);
+            mLocDao.connect();
+        }
+
+        @Test
+        public void connect_should_compileEachStatementOnce(){
+            verify(mMockDb, times(1)).compileStatement(LocationDao.INSERT_OR_REPLACE);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.DELETE_BY_ID);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.DELETE_OLDER_THAN);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.COUNT);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.APPEND_HISTORY);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.DELETE_HISTORY_OLDER_THAN);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.TRIM_HISTORY);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.ENQUEUE);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.DEQUEUE);
+            verify(mMockDb, times(1)).compileStatement(LocationDao.DELETE_QUEUED_OLDER_THAN);
+        }
+
+        @Test
+        public void disconnect_should_closeCompiledStatements(){
+            mLocDao.disconnect();
+
+            verify(mMockStmt, times(10)).close();
+            assertThat(mLocDao.isConnected()).isFalse();
+        }
+
+        @Test
+        public void save_should_bindArgumentsToCompiledStatement(){
+            mLocDao.save(s17UserLocationStub());
+            mLocDao.save(n17UserLocationStub());
+
+            verify(mMockDb, times(1)).compileStatement(LocationDao.INSERT_OR_REPLACE);
+            verify(mMockStmt).bindString(1, S17_UUID);
+            verify(mMockStmt).bindString(1, N17_UUID);
+            verify(mMockStmt, times(2)).executeInsert();
+            verify(mMockDb, never()).replace(any(), any(), any());
+        }
+
+        @Test
+        public void saveAll_should_writeOneServerResponseInOneTransaction(){
+            mLocDao.saveAll(locs);
+
+            verify(mMockDb, times(1)).beginTransaction();
+            verify(mMockDb, times(1)).setTransactionSuccessful();
+            verify(mMockDb, times(1)).endTransaction();
+            verify(mMockStmt, times(2)).executeInsert();
+        }
+
+        @Test
+        public void saveAll_should_reuseTheConnectionsCompiledStatement(){
+            mLocDao.saveAll(locs);
+            mLocDao.saveAll(locs);
+
+            verify(mMockDb, times(1)).compileStatement(LocationDao.INSERT_OR_REPLACE);
+            verify(mMockStmt, times(4)).executeInsert();
+        }
+
+        @Test
+        public void saveAll_should_rollBackWhenAWriteFails(){
+            when(mMockStmt.executeInsert()).thenThrow(new RuntimeException());
+
+            try { mLocDao.saveAll(locs); } catch (RuntimeException ignored) {}
+
+            verify(mMockDb, never()).setTransactionSuccessful();
+            verify(mMockDb, times(1)).endTransaction();
+        }
+
+        @Test
+        public void enqueue_should_bindLocationAndLastPingToCompiledStatement(){
+            mLocDao.enqueue(s17LocationTimestampedStub());
+            mLocDao.enqueue(n17LocationTimestampedStub());
+
+            verify(mMockDb, times(1)).compileStatement(LocationDao.ENQUEUE);
+            verify(mMockStmt).bindLong(5, S17_MILLIS);
+            verify(mMockStmt).bindLong(5, S17_MILLIS - 1L);
+            verify(mMockStmt, times(2)).executeInsert();
+        }
+
+        @Test
+        public void save_withHistoryDisabled_should_notAppendToHistory(){
+            mLocDao.save(s17UserLocationStub());
+
+            verify(mMockStmt, times(1)).executeInsert();
+            verify(mMockDb, never()).beginTransaction();
+        }
+
+        @Test
+        public void save_withHistoryEnabled_should_insertAndAppendInOneTransaction(){
+            mLocDao.setHistoryEnabled(true).save(s17UserLocationStub());
+
+            verify(mMockDb, times(1)).beginTransaction();
+            verify(mMockStmt, times(3)).bindString(1, S17_UUID); // insert, append & trim
+            verify(mMockStmt, times(2)).executeInsert();
+            verify(mMockStmt).bindLong(2, LocationDao.HISTORY_CAP - 1);
+            verify(mMockStmt, times(1)).executeUpdateDelete();
+            verify(mMockDb, times(1)).setTransactionSuccessful();
+            verify(mMockDb, times(1)).endTransaction();
+        }
+
+        @Test
+        public void saveAll_withHistoryEnabled_should_appendEveryLocation(){
+            mLocDao.setHistoryEnabled(true).saveAll(Arrays.asList(locs.get(0), locs.get(1), locs.get(0)));
+
+            verify(mMockDb, times(1)).beginTransaction();
+            verify(mMockStmt, times(6)).executeInsert();
+            verify(mMockStmt, times(2)).executeUpdateDelete(); // one trim per user
+        }
+
+        @Test
+        public void forgetSince_should_bindTimeToCompiledStatement(){
+            SQLiteStatement forgetStmt = mock(SQLiteStatement.class);
+            when(mMockDb.compileStatement(LocationDao.DELETE_OLDER_THAN)).thenReturn(forgetStmt);
+            mLocDao.disconnect();
+            mLocDao.connect();
+
+            mLocDao.forgetSince(SampleTimes.S17);
+            mLocDao.forgetSince(SampleTimes.N17);
+
+            verify(forgetStmt).bindLong(1, SampleTimes.S17);
+            verify(forgetStmt).bindLong(1, SampleTimes.N17);
+            verify(forgetStmt, times(2)).executeUpdateDelete();
+        }
+
+        @Test
+        public void forgetSince_should_pruneHistoryAndOutboxInTheSameTransaction(){
+            mLocDao.forgetSince(SampleTimes.S17);
+
+            verify(mMockDb, times(1)).beginTransaction();
+            verify(mMockStmt, times(3)).bindLong(1, SampleTimes.S17);
+            verify(mMockStmt, never()).bindLong(2, LocationDao.HISTORY_CAP - 1); // trails are trimmed on write
+            verify(mMockStmt, times(3)).executeUpdateDelete();
+            verify(mMockDb, times(1)).setTransactionSuccessful();
+            verify(mMockDb, times(1)).endTransaction();
+        }
+    }
+
+    @RunWith(RobolectricGradleTestRunner.class)
+    @Config(constants = BuildConfig.class, sdk = 21)
+
+    public static class History {
+
+        private FakeLocationDao mLocDao;
+        private UserLocation s17 = s17UserLocationStub();
+        private UserLocation s17_ = s17UserLocationStubMoved();
+        private UserLocation n17 = n17UserLocationStub();
+
+        @Before
+        public void setup(){
+            mLocDao = new FakeLocationDao(RuntimeEnvironment.application);
+            mLocDao.connect();
+            mLocDao.setHistoryEnabled(true);
+        }
+
+        @After
+        public void teardown(){
+            mLocDao.clear();
+            mLocDao.disconnect();
+        }
+
+        @Test
+        public void historyMode_should_beDisabledByDefault(){
+            assertThat(new LocationDao(RuntimeEnvironment.application).isHistoryEnabled()).isFalse();
+        }
+
+        @Test
+        public void save_should_appendEveryFixToTheUsersTrail(){
+            mLocDao.save(s17);
+            mLocDao.saveAll(Arrays.asList(s17_, n17));
+
+            List<UserLocation> trail = mLocDao.getTrail(s17.getId());
+
+            assertThat(mLocDao.count()).isEqualTo(2L);
+            assertThat(trail).hasSize(2);
+            assertTrue(areEqual(trail.get(0), s17));
+            assertTrue(areEqual(trail.get(1), s17_));
+            assertThat(mLocDao.getTrail(n17.getId())).hasSize(1);
+        }
+
+        @Test
+        public void save_whenHistoryDisabled_should_notGrowTheTrail(){
+            mLocDao.setHistoryEnabled(false);
+            mLocDao.save(s17);
+
+            assertThat(mLocDao.getTrail(s17.getId())).isEmpty();
+        }
+
+        @Test
+        public void saveAll_should_capEachTrailAtTheMostRecentPoints(){
+            List<UserLocation> fixes = new ArrayList<>();
+            for (int i = 0; i < LocationDao.HISTORY_CAP + 10; i++) {
+                fixes.add(UserLocation.create(s17.getId(), s17.getLatitude(), s17.getLongitude(), SampleTimes.S17 + i));
+            }
+            mLocDao.saveAll(fixes);
+            mLocDao.save(n17);
+
+            List<UserLocation> trail = mLocDao.getTrail(s17.getId());
+            assertThat(trail).hasSize(LocationDao.HISTORY_CAP);
+            assertThat(trail.get(0).getTime()).isEqualTo(SampleTimes.S17 + 10);
+            assertThat(mLocDao.getTrail(n17.getId())).hasSize(1);
+        }
+
+        @Test
+        public void save_should_dropTheOldestPointOnceATrailIsFull(){
+            for (int i = 0; i < LocationDao.HISTORY_CAP; i++) {
+                mLocDao.save(UserLocation.create(s17.getId(), s17.getLatitude(), s17.getLongitude(), SampleTimes.S17 + i));
+            }
+            mLocDao.save(n17);
+            mLocDao.save(UserLocation.create(s17.getId(), s17.getLatitude(), s17.getLongitude(), SampleTimes.S17 + LocationDao.HISTORY_CAP));
+
+            List<UserLocation> trail = mLocDao.getTrail(s17.getId());
+            assertThat(trail).hasSize(LocationDao.HISTORY_CAP);
+            assertThat(trail.get(0).getTime()).isEqualTo(SampleTimes.S17 + 1);
+            assertThat(mLocDao.getTrail(n17.getId())).hasSize(1);
+        }
+
+        @Test
+        public void forgetSince_should_dropPointsOutsideTheTimeWindow(){
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            mLocDao.forgetSince(SampleTimes.N17);
+
+            assertThat(mLocDao.getTrail(s17.getId())).isEmpty();
+            assertThat(mLocDao.getTrail(n17.getId())).hasSize(1);
+        }
+
+        @Test
+        public void clear_should_clearHistory(){
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            mLocDao.clear();
+
+            assertThat(mLocDao.getTrail(s17.getId())).isEmpty();
+            assertThat(mLocDao.getTrail(n17.getId())).isEmpty();
+        }
+    }
+
+    @RunWith(RobolectricGradleTestRunner.class)
+    @Config(constants = BuildConfig.class, sdk = 21)
+
+    public static class Outbox {
+
+        private FakeLocationDao mLocDao;
+
+        @Before
+        public void setup(){
+            mLocDao = new FakeLocationDao(RuntimeEnvironment.application)
+                .setScheduler(Schedulers.immediate());
+            mLocDao.connect();
+        }
+
+        @After
+        public void teardown(){
+            mLocDao.clear();
+            mLocDao.disconnect();
+        }
+
+        @Test
+        public void nextQueued_whenEmpty_should_returnNothing(){
+            assertThat(mLocDao.nextQueued()).isNull();
+            assertThat(mLocDao.nextQueuedAsync().toList().toBlocking().single()).isEmpty();
+        }
+
+        @Test
+        public void enqueue_then_nextQueued_should_roundTripAnUpdate(){
+            mLocDao.enqueue(s17LocationTimestampedStub());
+
+            assertThat(mLocDao.nextQueued()).isEqualTo(s17LocationTimestampedStub());
+            assertThat(mLocDao.nextQueuedAsync().toBlocking().single()).isEqualTo(s17LocationTimestampedStub());
+            assertThat(mLocDao.countQueued()).isEqualTo(1L);
+        }
+
+        @Test
+        public void enqueue_should_coalesceToNewestFixAndOldestLastPing(){
+            mLocDao.enqueue(new UserLocationTimestamped(10L, s17UserLocationStub()));
+            mLocDao.enqueue(new UserLocationTimestamped(20L, s17UserLocationStubMoved()));
+            mLocDao.enqueue(n17LocationTimestampedStub());
+
+            assertThat(mLocDao.countQueued()).isEqualTo(2L);
+            assertThat(mLocDao.nextQueued()).isEqualTo(new UserLocationTimestamped(10L, s17UserLocationStubMoved()));
+        }
+
+        @Test
+        public void nextQueued_should_returnOldestFixFirst(){
+            mLocDao.enqueue(n17LocationTimestampedStub());
+            mLocDao.enqueue(s17LocationTimestampedStub());
+
+            assertThat(mLocDao.nextQueued()).isEqualTo(s17LocationTimestampedStub());
+        }
+
+        @Test
+        public void dequeue_should_removeOnlyTheUpdateThatWasSent(){
+            UserLocationTimestamped sent = new UserLocationTimestamped(10L, s17UserLocationStub());
+            mLocDao.enqueue(sent);
+            mLocDao.enqueue(new UserLocationTimestamped(20L, s17UserLocationStubMoved()));
+
+            assertThat(mLocDao.dequeueAsync(sent).toBlocking().single()).isEqualTo(0);
+            assertThat(mLocDao.countQueued()).isEqualTo(1L);
+
+            assertThat(mLocDao.dequeue(mLocDao.nextQueued())).isEqualTo(1);
+            assertThat(mLocDao.countQueued()).isEqualTo(0L);
+        }
+
+        @Test
+        public void forgetSince_should_dropExpiredUpdates(){
+            mLocDao.enqueue(s17LocationTimestampedStub());
+            mLocDao.enqueue(n17LocationTimestampedStub());
+
+            mLocDao.forgetSince(SampleTimes.N17);
+
+            assertThat(mLocDao.countQueued()).isEqualTo(1L);
+            assertThat(mLocDao.nextQueued()).isEqualTo(n17LocationTimestampedStub());
+        }
+
+        @Test
+        public void clear_should_emptyTheOutbox(){
+            mLocDao.enqueueAsync(s17LocationTimestampedStub()).toBlocking().single();
+
+            mLocDao.clear();
+
+            assertThat(mLocDao.countQueued()).isEqualTo(0L);
+        }
+    }
+
+    @RunWith(RobolectricGradleTestRunner.class)
+    @Config(constants = BuildConfig.class, sdk = 21)
+
+    public static class Caching {
+
+        private FakeLocationDao mLocDao;
+        private LocationCache mCache;
+        private UserLocation s17 = s17UserLocationStub();
+        private UserLocation n17 = n17UserLocationStub();
+
+        @Before
+        public void setup(){
+            mLocDao = new FakeLocationDao(RuntimeEnvironment.application)
+                .setScheduler(Schedulers.immediate());
+            mLocDao.connect();
+            mCache = mLocDao.getCache();
+        }
+
+        @After
+        public void teardown(){
+            mLocDao.clear();
+            mLocDao.disconnect();
+        }
+
+        @Test
+        public void save_should_writeThroughToTheCache(){
+            mLocDao.save(s17);
+            mLocDao.saveAll(Arrays.asList(n17));
+
+            assertThat(mCache.size()).isEqualTo(2);
+            assertTrue(areEqual(mLocDao.get(s17.getId()), s17));
+            assertTrue(areEqual(mLocDao.get(n17.getId()), n17));
+            assertThat(mCache.hits()).isEqualTo(2L);
+            assertThat(mCache.misses()).isEqualTo(0L);
+        }
+
+        @Test
+        public void get_onColdStart_should_readFromDbOnceThenFromMemory(){
+            mLocDao.save(s17);
+            mCache.invalidate();
+
+            assertTrue(areEqual(mLocDao.get(s17.getId()), s17));
+            assertTrue(areEqual(mLocDao.get(s17.getId()), s17));
+
+            assertThat(mCache.misses()).isEqualTo(1L);
+            assertThat(mCache.hits()).isEqualTo(1L);
+        }
+
+        @Test
+        public void getAll_onColdStart_should_warmTheCache(){
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+            mCache.invalidate();
+            assertThat(mCache.isComplete()).isFalse();
+
+            assertThat(mLocDao.getAll()).hasSize(2);
+
+            assertThat(mCache.isComplete()).isTrue();
+            assertThat(mCache.size()).isEqualTo(2);
+        }
+
+        @Test
+        public void streamAll_onColdStart_should_warmTheCache(){
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+            mCache.invalidate();
+
+            mLocDao.streamAll().toList().toBlocking().single();
+
+            assertThat(mCache.isComplete()).isTrue();
+            assertThat(mLocDao.streamAllSince(SampleTimes.S17).toList().toBlocking().single()).hasSize(1);
+        }
+
+        @Test
+        public void reads_whenCacheIsComplete_should_notTouchTheDb(){
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+            mLocDao.getAll();
+            SQLiteDatabase db = mLocDao.getDb();
+            SQLiteDatabase mockDb = mock(SQLiteDatabase.class);
+            mLocDao.setDb(mockDb);
+
+            assertThat(mLocDao.getAll()).hasSize(2);
+            assertThat(mLocDao.getAllSince(SampleTimes.S17)).hasSize(1);
+            assertThat(mLocDao.streamAll().toList().toBlocking().single()).hasSize(2);
+            assertThat(mLocDao.streamAllSince(SampleTimes.S17).toList().toBlocking().single()).hasSize(1);
+
+            verifyZeroInteractions(mockDb);
+            mLocDao.setDb(db);
+        }
+
+        @Test
+        public void reads_afterAnEviction_should_fallBackToTheDb(){
+            mLocDao.setCache(new LocationCache(1));
+            mLocDao.getAll();
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            assertThat(mLocDao.getCache().isComplete()).isFalse();
+            assertThat(mLocDao.getAll()).hasSize(2);
+            assertThat(mLocDao.getCache().isComplete()).isFalse();
+        }
+
+        @Test
+        public void deletes_should_evictFromTheCache(){
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            mLocDao.delete(s17.getId());
+            assertThat(mCache.size()).isEqualTo(1);
+
+            mLocDao.forgetSince(SampleTimes.N17 + 1);
+            assertThat(mCache.size()).isEqualTo(0);
+        }
+    }
+
+    @RunWith(RobolectricGradleTestRunner.class)
+    @Config(constants = BuildConfig.class, sdk = 21)
+
+    public static class AsyncMethods {
+
+        private FakeLocationDao mLocDao;
+        private UserLocation s17 = s17UserLocationStub();
+        private UserLocation n17 = n17UserLocationStub();
+
+        @Before
+        public void setup(){
+            mLocDao = new FakeLocationDao(RuntimeEnvironment.application)
+                .setScheduler(Schedulers.immediate());
+        }
+
+        @After
+        public void teardown(){
+            if (mLocDao.isConnected()) mLocDao.clear();
+            mLocDao.disconnect();
+        }
+
+        @Test
+        public void connectAsync_should_connectAndEmitTheDao(){
+            LocationDao dao = mLocDao.connectAsync().toBlocking().single();
+
+            assertThat(dao).isEqualTo(mLocDao);
+            assertThat(mLocDao.isConnected()).isTrue();
+        }
+
+        @Test
+        public void asyncMethods_should_notTouchTheDatabaseUntilSubscribed(){
+            mLocDao.connect();
+            mLocDao.saveAsync(s17);
+
+            assertThat(mLocDao.count()).isEqualTo(0L);
+        }
+
+        @Test
+        public void saveAllAsync_then_getAllAsync_should_roundTripLocations(){
+            mLocDao.connect();
+            mLocDao.saveAllAsync(Arrays.asList(s17, n17)).toBlocking().single();
+
+            List<UserLocation> all = mLocDao.getAllAsync().toBlocking().single();
+
+            assertThat(all.size()).isEqualTo(2);
+            assertTrue(areEqual(all.get(0), s17));
+            assertTrue(areEqual(all.get(1), n17));
+        }
+
+        @Test
+        public void getAsync_should_emitOneLocation(){
+            mLocDao.connect();
+            mLocDao.save(s17);
+
+            assertTrue(areEqual(mLocDao.getAsync(s17.getId()).toBlocking().single(), s17));
+        }
+
+        @Test
+        public void forgetSinceAsync_should_deleteOldLocations(){
+            mLocDao.connect();
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            mLocDao.forgetSinceAsync(SampleTimes.N17).toBlocking().single();
+
+            assertThat(mLocDao.count()).isEqualTo(1L);
+            assertTrue(areEqual(mLocDao.getAll().get(0), n17));
+        }
+
+        @Test
+        public void clearAsync_should_deleteAllLocations(){
+            mLocDao.connect();
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            mLocDao.clearAsync().toBlocking().single();
+
+            assertThat(mLocDao.count()).isEqualTo(0L);
+        }
+
+        @Test
+        public void fire_should_logErrorsRatherThanThrowThem(){
+            mLocDao.connect();
+            mLocDao.disconnect(); // closes the compiled statements
+
+            LocationDao.fire(mLocDao.saveAsync(s17), "saving location");
+
+            assertThat(mLocDao.isConnected()).isFalse();
+        }
+
+        @Test
+        public void streamAll_should_emitEveryLocationThenCloseTheCursor(){
+            mLocDao.connect();
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            List<UserLocation> all = mLocDao.streamAll().toList().toBlocking().single();
+
+            assertThat(all.size()).isEqualTo(2);
+            assertTrue(areEqual(all.get(0), s17));
+            assertTrue(areEqual(all.get(1), n17));
+        }
+
+        @Test
+        public void streamAllSince_should_onlyEmitNewerLocations(){
+            mLocDao.connect();
+            mLocDao.saveAll(Arrays.asList(s17, n17));
+
+            List<UserLocation> since = mLocDao.streamAllSince(SampleTimes.S17).toList().toBlocking().single();
+
+            assertThat(since.size()).isEqualTo(1);
+            assertTrue(areEqual(since.get(0), n17));
+        }
+
+        @Test
+        public void stream_should_onlyReadRequestedRowsAndCloseCursorOnUnsubscribe(){
+            Cursor c = mock(Cursor.class);
+            when(c.moveToFirst()).thenReturn(true);
+            when(c.moveToNext()).thenReturn(true);
+            when(c.getString(0)).thenReturn(s17.getId());
+
+            List<UserLocation> received = new ArrayList<>();
+            Subscriber<UserLocation> sub = new Subscriber<UserLocation>() {
+                @Override public void onStart() { request(1); }
+                @Override public void onCompleted() {}
+                @Override public void onError(Throwable e) {}
+                @Override public void onNext(UserLocation ul) { received.add(ul); }
+            };
+
+            mLocDao.stream(() -> c).subscribe(sub);
+
+            assertThat(received).hasSize(1);
+            verify(c, times(1)).moveToNext();
+            verify(c, never()).close();
+
+            sub.unsubscribe();
+            verify(c, times(1)).close();
+        }
+
+        @Test
+        public void defaultScheduler_should_runOnTheDatabaseThread(){
+            LocationDao dao = new LocationDao(RuntimeEnvironment.application);
+
+            String thread = Observable.defer(() -> Observable.just(Thread.currentThread().getName()))
+                .subscribeOn(dao.mScheduler)
+                .toBlocking()
+                .single();
+
+            assertThat(thread).isEqualTo(LocationDao.IO_THREAD_NAME);
+        }
+    }
+
     public static class Helpers {
 
         @Test
-        public void timeGreaterThan_should_generateCorrectSqlQuery(){
-            assertThat(LocationDao.timeGreaterThan(SampleTimes.S17))
-                .isEqualTo("time > " + SampleTimes.S17_STR);
+        public void timeGreaterThan_should_bindTimeAsAnArgument(){
+            assertThat(LocationDao.TIME_GREATER_THAN).isEqualTo("time > ?");
         }
 
         @Test
-        public void timeLessThan_should_generateCorrectSqlQuery(){
-            assertThat(LocationDao.timeLessThan(SampleTimes.S17))
-                .isEqualTo("time < " + SampleTimes.S17_STR);
+        public void timeLessThan_should_bindTimeAsAnArgument(){
+            assertThat(LocationDao.TIME_LESS_THAN).isEqualTo("time < ?");
         }
 
         @Test
-        public void idEquals_should_generateCorrectSqlQuery(){
-            assertThat(LocationDao.idEquals("1"))
-                .isEqualTo("_id = '1'");
+        public void idEquals_should_bindIdAsAnArgument(){
+            assertThat(LocationDao.ID_EQUALS).isEqualTo("_id = ?");
         }
     }
 
@@ -0,0 +1,196 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.location;
+
+import com.google.android.gms.location.LocationRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tlc.whereat.model.UserLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class AdaptivePollPolicyTest {
+
+    static final int BASE = 30000;
+    static final double LAT_DEG_PER_100M = 100 / 111195.0;
+    static final double JITTER_DEG = 5 / 111195.0;
+    static final double COARSE_JITTER_DEG = 40 / 111195.0;
+    static final float COARSE_ACCURACY = 100f; // typical of PRIORITY_BALANCED_POWER_ACCURACY
+
+    AdaptivePollPolicy policy;
+
+    @Before
+    public void setup(){
+        policy = new AdaptivePollPolicy(BASE);
+    }
+
+    // synthetic trace: a walk north (100m per fix), then a desk (fixes jittering by ~5m)
+
+    static List<UserLocation> walk(int fixes, double startLat){
+        List<UserLocation> trace = new ArrayList<>();
+        for (int i = 0; i < fixes; i++) trace.add(fix(startLat + i * LAT_DEG_PER_100M, i));
+        return trace;
+    }
+
+    static List<UserLocation> desk(int fixes, double lat){
+        return jitter(fixes, lat, JITTER_DEG);
+    }
+
+    static List<UserLocation> jitter(int fixes, double lat, double jitterDeg){
+        List<UserLocation> trace = new ArrayList<>();
+        for (int i = 0; i < fixes; i++) trace.add(fix(lat + (i % 2 == 0 ? jitterDeg : -jitterDeg), i));
+        return trace;
+    }
+
+    static UserLocation fix(double lat, long t){
+        return UserLocation.create(S17_UUID, lat, S17_LON, S17_MILLIS + t * BASE);
+    }
+
+    static List<Integer> feed(AdaptivePollPolicy policy, List<UserLocation> trace){
+        return feed(policy, trace, 0f);
+    }
+
+    static List<Integer> feed(AdaptivePollPolicy policy, List<UserLocation> trace, float accuracy){
+        List<Integer> intervals = new ArrayList<>();
+        for (UserLocation ul : trace) {
+            policy.onFix(ul, accuracy);
+            intervals.add(policy.interval());
+        }
+        return intervals;
+    }
+
+    @Test
+    public void newPolicy_should_pollAtBaseIntervalWithHighAccuracy(){
+        assertThat(policy.interval()).isEqualTo(BASE);
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_HIGH_ACCURACY);
+        assertThat(policy.isStill()).isFalse();
+    }
+
+    @Test
+    public void whileMoving_should_keepBaseIntervalAndHighAccuracy(){
+        List<Integer> intervals = feed(policy, walk(20, S17_LAT));
+
+        for (int i : intervals) assertThat(i).isEqualTo(BASE);
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_HIGH_ACCURACY);
+    }
+
+    @Test
+    public void whileStill_should_widenIntervalUpToMaxAndDropPriority(){
+        List<Integer> intervals = feed(policy, desk(1 + 4 * AdaptivePollPolicy.STILL_FIXES, S17_LAT));
+
+        // first fix anchors; every STILL_FIXES fixes within the threshold doubles the interval
+        assertThat(intervals.get(AdaptivePollPolicy.STILL_FIXES - 1)).isEqualTo(BASE);
+        assertThat(intervals.get(AdaptivePollPolicy.STILL_FIXES)).isEqualTo(2 * BASE);
+        assertThat(intervals.get(2 * AdaptivePollPolicy.STILL_FIXES)).isEqualTo(4 * BASE);
+        assertThat(intervals.get(3 * AdaptivePollPolicy.STILL_FIXES)).isEqualTo(8 * BASE);
+        assertThat(intervals.get(4 * AdaptivePollPolicy.STILL_FIXES)).isEqualTo(AdaptivePollPolicy.MAX_BACKOFF * BASE);
+
+        assertThat(policy.isStill()).isTrue();
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+    }
+
+    @Test
+    public void whenMovementResumes_should_tightenImmediately(){
+        List<UserLocation> trace = desk(10, S17_LAT);
+        trace.addAll(walk(3, S17_LAT + LAT_DEG_PER_100M));
+
+        List<Integer> intervals = feed(policy, trace);
+
+        assertThat(intervals.get(9)).isGreaterThan(BASE);
+        assertThat(intervals.get(10)).isEqualTo(BASE);
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_HIGH_ACCURACY);
+    }
+
+    @Test
+    public void slowDrift_should_eventuallyCountAsMovement(){
+        // 10m per fix never exceeds the threshold fix-to-fix, but does relative to the anchor
+        List<UserLocation> trace = new ArrayList<>();
+        for (int i = 0; i < 12; i++) trace.add(fix(S17_LAT + i * LAT_DEG_PER_100M / 10, i));
+
+        feed(policy, trace);
+
+        assertThat(policy.interval()).isEqualTo(BASE);
+    }
+
+    @Test
+    public void coarseJitter_should_notCountAsMovement(){
+        // once throttled, fixes are coarse: ~80m apart fix-to-fix, but within their 100m accuracy
+        feed(policy, desk(1 + AdaptivePollPolicy.STILL_FIXES, S17_LAT));
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+
+        List<Integer> intervals = feed(policy, jitter(4 * AdaptivePollPolicy.STILL_FIXES, S17_LAT, COARSE_JITTER_DEG), COARSE_ACCURACY);
+
+        for (int i : intervals) assertThat(i).isGreaterThan(BASE);
+        assertThat(policy.interval()).isEqualTo(AdaptivePollPolicy.MAX_BACKOFF * BASE);
+        assertThat(policy.isStill()).isTrue();
+    }
+
+    @Test
+    public void coarseFixes_should_stillDetectRealMovement(){
+        feed(policy, desk(1 + AdaptivePollPolicy.STILL_FIXES, S17_LAT));
+        feed(policy, walk(3, S17_LAT + LAT_DEG_PER_100M), COARSE_ACCURACY);
+
+        assertThat(policy.interval()).isEqualTo(BASE);
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_HIGH_ACCURACY);
+    }
+
+    @Test
+    public void onFix_should_reportOnlyWhenTheRequestMustChange(){
+        List<Boolean> changes = new ArrayList<>();
+        for (UserLocation ul : desk(1 + AdaptivePollPolicy.STILL_FIXES, S17_LAT)) changes.add(policy.onFix(ul, 0f));
+
+        assertThat(changes).containsExactly(false, false, false, true);
+        assertThat(policy.onFix(fix(S17_LAT + LAT_DEG_PER_100M, 99), 0f)).isTrue();
+        assertThat(policy.onFix(fix(S17_LAT + 2 * LAT_DEG_PER_100M, 100), 0f)).isFalse();
+    }
+
+    @Test
+    public void lowBattery_should_throttleEvenWhileMoving(){
+        assertThat(policy.setLowBattery(true)).isTrue();
+        feed(policy, walk(5, S17_LAT));
+
+        assertThat(policy.interval()).isEqualTo(AdaptivePollPolicy.LOW_BATTERY_BACKOFF * BASE);
+        assertThat(policy.priority()).isEqualTo(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+
+        assertThat(policy.setLowBattery(true)).isFalse();
+        assertThat(policy.setLowBattery(false)).isTrue();
+        assertThat(policy.interval()).isEqualTo(BASE);
+    }
+
+    @Test
+    public void reset_should_forgetMovementHistory(){
+        feed(policy, desk(10, S17_LAT));
+        policy.reset();
+
+        assertThat(policy.interval()).isEqualTo(BASE);
+        assertThat(policy.isStill()).isFalse();
+    }
+
+    @Test
+    public void setBaseInterval_should_scaleCurrentInterval(){
+        feed(policy, desk(1 + AdaptivePollPolicy.STILL_FIXES, S17_LAT));
+        policy.setBaseInterval(5000);
+
+        assertThat(policy.interval()).isEqualTo(10000);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tlc.whereat.model.UserLocation;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class PublishFilterTest {
+
+    static final int MIN_DISTANCE = 10;
+    static final double LAT_DEG_PER_M = 1 / 111195.0;
+
+    PublishFilter filter;
+    UserLocation s17 = s17UserLocationStub();
+
+    @Before
+    public void setup(){
+        filter = new PublishFilter(MIN_DISTANCE);
+    }
+
+    static UserLocation fix(double metersNorth, long millisLater){
+        return UserLocation.create(S17_UUID, S17_LAT + metersNorth * LAT_DEG_PER_M, S17_LON, S17_MILLIS + millisLater);
+    }
+
+    @Test
+    public void accept_should_alwaysPublishTheFirstFix(){
+        assertThat(filter.accept(s17, 0f)).isTrue();
+    }
+
+    @Test
+    public void accept_should_suppressFixesWithinMinDistance(){
+        filter.accept(s17, 0f);
+
+        assertThat(filter.accept(fix(5, 1000L), 0f)).isFalse();
+        assertThat(filter.accept(fix(9, 2000L), 0f)).isFalse();
+    }
+
+    @Test
+    public void accept_should_suppressFixesWithinTheirAccuracyRadius(){
+        filter.accept(s17, 0f);
+
+        assertThat(filter.accept(fix(20, 1000L), 30f)).isFalse();
+        assertThat(filter.accept(fix(20, 2000L), 15f)).isTrue();
+    }
+
+    @Test
+    public void accept_should_measureFromTheLastPublishedFix(){
+        filter.accept(s17, 0f);
+
+        assertThat(filter.accept(fix(6, 1000L), 0f)).isFalse();
+        assertThat(filter.accept(fix(12, 2000L), 0f)).isTrue();
+        assertThat(filter.accept(fix(18, 3000L), 0f)).isFalse();
+        assertThat(filter.accept(fix(24, 4000L), 0f)).isTrue();
+    }
+
+    @Test
+    public void accept_should_publishAKeepAliveWhenStillForTooLong(){
+        filter.accept(s17, 0f);
+
+        assertThat(filter.accept(fix(1, PublishFilter.KEEP_ALIVE - 1), 0f)).isFalse();
+        assertThat(filter.accept(fix(1, PublishFilter.KEEP_ALIVE), 0f)).isTrue();
+        assertThat(filter.accept(fix(1, PublishFilter.KEEP_ALIVE + 1), 0f)).isFalse();
+    }
+
+    @Test
+    public void accept_whenMinDistanceIsZero_should_publishEverything(){
+        filter.setMinDistance(0);
+        filter.accept(s17, 0f);
+
+        assertThat(filter.isEnabled()).isFalse();
+        assertThat(filter.accept(s17, 0f)).isTrue();
+        assertThat(filter.accept(fix(1, 1000L), 50f)).isTrue();
+    }
+
+    @Test
+    public void reset_should_publishTheNextFix(){
+        filter.accept(s17, 0f);
+        filter.reset();
+
+        assertThat(filter.accept(fix(1, 1000L), 0f)).isTrue();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tlc.whereat.modules.map.ClusterGrid.Item;
+import org.tlc.whereat.modules.map.ClusterGrid.Viewport;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.modules.map.ClusterGrid.key;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class ClusterGridTest {
+
+    // s17 and near share a cell up to (at least) zoom 18, block splits from them from zoom 15,
+    // and far is in another cell from zoom 10
+
+    LatLon s17 = new LatLon(S17_LAT, S17_LON);
+    LatLon near = new LatLon(S17_LAT + 1e-5, S17_LON - 1e-5);
+    LatLon block = new LatLon(S17_LAT + 0.001, S17_LON + 0.001);
+    LatLon far = new LatLon(S17_LAT + 0.1, S17_LON + 0.1);
+
+    ClusterGrid grid;
+
+    @Before
+    public void setup(){
+        grid = new ClusterGrid();
+        grid.setZoom(12);
+    }
+
+    @Test
+    public void add_should_groupNearbyItemsInOneCell(){
+        grid.add(s17, "s17");
+        grid.add(near, "near");
+        grid.add(far, "far");
+
+        assertThat(grid.size()).isEqualTo(3);
+        assertThat(grid.cells()).hasSize(2);
+        assertThat(grid.cell(key(s17, 12)).size()).isEqualTo(2);
+        assertThat(grid.cell(key(far, 12)).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void cellPosition_should_beTheLoneItemsOrTheClustersCentroid(){
+        grid.add(s17, "s17");
+        assertThat(grid.cell(key(s17, 12)).position()).isEqualTo(s17);
+
+        grid.add(block, "block");
+        LatLon c = grid.cell(key(s17, 12)).position();
+        assertThat(c.getLat()).isCloseTo(S17_LAT + 0.0005, within(1e-9));
+        assertThat(c.getLon()).isCloseTo(S17_LON + 0.0005, within(1e-9));
+    }
+
+    @Test
+    public void drainDirty_should_returnCellsChangedSinceLastDrain(){
+        grid.add(s17, "s17");
+        grid.add(near, "near");
+
+        assertThat(grid.drainDirty()).containsExactly(key(s17, 12));
+        assertThat(grid.drainDirty()).isEmpty();
+    }
+
+    @Test
+    public void move_withinACell_should_dirtyOnlyThatCell(){
+        Item i = grid.add(s17, "s17");
+        grid.add(far, "far");
+        grid.drainDirty();
+
+        grid.move(i, near);
+
+        assertThat(grid.drainDirty()).containsExactly(key(s17, 12));
+        assertThat(grid.cell(key(s17, 12)).position()).isEqualTo(near);
+    }
+
+    @Test
+    public void move_acrossCells_should_dirtyBothCells(){
+        Item i = grid.add(s17, "s17");
+        grid.drainDirty();
+
+        grid.move(i, far);
+
+        assertThat(grid.drainDirty()).containsOnly(key(s17, 12), key(far, 12));
+        assertThat(grid.cell(key(s17, 12))).isNull();
+        assertThat(grid.cell(key(far, 12)).first()).isSameAs(i);
+    }
+
+    @Test
+    public void remove_should_dropEmptiedCells(){
+        Item i = grid.add(s17, "s17");
+        grid.drainDirty();
+
+        grid.remove(i);
+        grid.remove(i);
+
+        assertThat(grid.size()).isEqualTo(0);
+        assertThat(grid.cells()).isEmpty();
+        assertThat(grid.drainDirty()).containsExactly(key(s17, 12));
+    }
+
+    @Test
+    public void setZoom_should_regroupItemsOnlyWhenZoomChanges(){
+        grid.add(s17, "s17");
+        grid.add(block, "block");
+        assertThat(grid.cells()).hasSize(1);
+
+        assertThat(grid.setZoom(12)).isFalse();
+        assertThat(grid.setZoom(15)).isTrue();
+        assertThat(grid.cells()).hasSize(2);
+        assertThat(grid.drainDirty()).isEmpty();
+    }
+
+    @Test
+    public void setZoom_should_clampToSupportedLevels(){
+        grid.setZoom(30);
+        assertThat(grid.zoom()).isEqualTo(ClusterGrid.MAX_ZOOM);
+
+        grid.setZoom(-1);
+        assertThat(grid.zoom()).isEqualTo(0);
+    }
+
+    @Test
+    public void viewport_should_containOnlyCellsWithinBounds(){
+        Viewport v = grid.viewport(new LatLonBounds(
+            new LatLon(S17_LAT - 0.01, S17_LON - 0.01), new LatLon(S17_LAT + 0.01, S17_LON + 0.01)));
+
+        assertThat(v.contains(key(s17, 12))).isTrue();
+        assertThat(v.contains(key(far, 12))).isFalse();
+        assertThat(Viewport.ALL.contains(key(far, 12))).isTrue();
+    }
+
+    @Test
+    public void viewport_should_wrapAroundTheAntimeridian(){
+        grid.setZoom(2);
+        Viewport v = grid.viewport(new LatLonBounds(new LatLon(-10, 170), new LatLon(10, -170)));
+
+        assertThat(v.contains(key(new LatLon(0, 179), 2))).isTrue();
+        assertThat(v.contains(key(new LatLon(0, -179), 2))).isTrue();
+        assertThat(v.contains(key(new LatLon(0, 0), 2))).isFalse();
+    }
+
+    @Test
+    public void key_should_stayOnTheGridAtTheEdgesOfTheWorld(){
+        int last = ClusterGrid.cellsPerSide(3) - 1;
+
+        assertThat(ClusterGrid.column(key(new LatLon(90, 180), 3))).isEqualTo(last);
+        assertThat(ClusterGrid.row(key(new LatLon(90, 180), 3))).isEqualTo(0);
+        assertThat(ClusterGrid.column(key(new LatLon(-90, -180), 3))).isEqualTo(0);
+        assertThat(ClusterGrid.row(key(new LatLon(-90, -180), 3))).isEqualTo(last);
+    }
+
+    @Test
+    public void clear_should_emptyTheGrid(){
+        grid.add(s17, "s17");
+        grid.clear();
+
+        assertThat(grid.size()).isEqualTo(0);
+        assertThat(grid.cells()).isEmpty();
+        assertThat(grid.drainDirty()).isEmpty();
+    }
+}
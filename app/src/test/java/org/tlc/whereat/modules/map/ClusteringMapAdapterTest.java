@@ -0,0 +1,215 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tlc.whereat.model.UserLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class ClusteringMapAdapterTest {
+
+    // see ClusterGridTest for which of these share a cell at which zoom levels
+
+    LatLon s17 = new LatLon(S17_LAT, S17_LON);
+    LatLon near = new LatLon(S17_LAT + 1e-5, S17_LON - 1e-5);
+    LatLon block = new LatLon(S17_LAT + 0.001, S17_LON + 0.001);
+    LatLon far = new LatLon(S17_LAT + 0.1, S17_LON + 0.1);
+    LatLon farNear = new LatLon(S17_LAT + 0.1 + 1e-5, S17_LON + 0.1);
+
+    LatLonBounds aroundS17 = new LatLonBounds(
+        new LatLon(S17_LAT - 0.01, S17_LON - 0.01), new LatLon(S17_LAT + 0.01, S17_LON + 0.01));
+    LatLonBounds aroundFar = new LatLonBounds(
+        new LatLon(S17_LAT + 0.09, S17_LON + 0.09), new LatLon(S17_LAT + 0.11, S17_LON + 0.11));
+
+    FakeMapAdapter fake;
+    ClusteringMapAdapter map;
+
+    @Before
+    public void setup(){
+        fake = new FakeMapAdapter();
+        map = (ClusteringMapAdapter) ClusteringMapAdapter.getInstance(fake, "%d people");
+        map.getMap();
+        fake.moveCamera(12, null);
+    }
+
+    @Test
+    public void getInstance_withoutTitle_should_useDefaultClusterTitle(){
+        ClusteringMapAdapter m = (ClusteringMapAdapter) ClusteringMapAdapter.getInstance(fake, null);
+        assertThat(m.mClusterTitle).isEqualTo(ClusteringMapAdapter.DEFAULT_CLUSTER_TITLE);
+    }
+
+    @Test
+    public void getMap_should_listenForCameraChanges(){
+        assertThat(fake.mListener).isNotNull();
+    }
+
+    @Test
+    public void addMarker_lone_should_drawItWithItsOwnTitle(){
+        assertThat(map.addMarker(s17, "s17")).isInstanceOf(MarkerAdapter.class);
+
+        assertThat(fake.titles()).containsExactly("s17");
+        assertThat(fake.mMarkers.get(0).position).isEqualTo(s17);
+    }
+
+    @Test
+    public void addMarker_nearby_should_drawOneClusterAtTheCentroid(){
+        map.addMarker(s17, "s17");
+        map.addMarker(block, "block");
+
+        assertThat(fake.titles()).containsExactly("2 people");
+        assertThat(fake.mMarkers.get(0).position.getLat()).isCloseTo(S17_LAT + 0.0005, within(1e-9));
+    }
+
+    @Test
+    public void addMarker_should_onlyTouchItsOwnCluster(){
+        map.addMarker(s17, "s17");
+        map.addMarker(far, "far");
+        fake.resetCounts();
+
+        map.addMarker(farNear, "farNear");
+
+        assertThat(fake.titles()).containsOnly("s17", "2 people");
+        assertThat(fake.mAdds).isEqualTo(1);
+        assertThat(fake.mRemoves).isEqualTo(1); // the retitled cluster
+        assertThat(fake.mMoves).isEqualTo(0);
+    }
+
+    @Test
+    public void move_withinACell_should_moveTheRealMarker(){
+        MarkerAdapter m = map.addMarker(s17, "s17");
+        map.addMarker(far, "far");
+        fake.resetCounts();
+
+        assertThat(m.move(near)).isSameAs(m);
+
+        assertThat(fake.mMoves).isEqualTo(1);
+        assertThat(fake.mAdds).isEqualTo(0);
+        assertThat(fake.mRemoves).isEqualTo(0);
+        assertThat(fake.mMarkers.get(0).position).isEqualTo(near);
+    }
+
+    @Test
+    public void move_acrossCells_should_splitTheCluster(){
+        map.addMarker(s17, "s17");
+        MarkerAdapter m = map.addMarker(near, "near");
+        assertThat(fake.titles()).containsExactly("2 people");
+
+        m.move(far);
+
+        assertThat(fake.titles()).containsOnly("s17", "near");
+    }
+
+    @Test
+    public void remove_should_shrinkOrHideTheCluster(){
+        MarkerAdapter m1 = map.addMarker(s17, "s17");
+        MarkerAdapter m2 = map.addMarker(near, "near");
+
+        m1.remove();
+        assertThat(fake.titles()).containsExactly("near");
+
+        m2.remove();
+        assertThat(fake.mMarkers).isEmpty();
+        assertThat(map.mShown).isEmpty();
+    }
+
+    @Test
+    public void zoomingIn_should_splitClusters(){
+        map.addMarker(s17, "s17");
+        map.addMarker(block, "block");
+        assertThat(fake.titles()).containsExactly("2 people");
+
+        fake.moveCamera(15.7f, null);
+        assertThat(fake.titles()).containsOnly("s17", "block");
+
+        fake.moveCamera(10, null);
+        assertThat(fake.titles()).containsExactly("2 people");
+    }
+
+    @Test
+    public void panning_should_onlyDrawVisibleClusters(){
+        fake.moveCamera(12, aroundS17);
+        map.addMarker(s17, "s17");
+        map.addMarker(far, "far");
+
+        assertThat(fake.titles()).containsExactly("s17");
+
+        fake.moveCamera(12, aroundFar);
+        assertThat(fake.titles()).containsExactly("far");
+    }
+
+    @Test
+    public void cameraChange_should_notifyListener(){
+        List<String> calls = new ArrayList<>();
+        assertThat(map.onCameraChange(() -> calls.add("moved"))).isSameAs(map);
+
+        fake.moveCamera(13, null);
+
+        assertThat(calls).containsExactly("moved");
+    }
+
+    @Test
+    public void center_should_delegateAndRefreshClusters(){
+        map.addMarker(s17, "s17");
+        map.addMarker(block, "block");
+        fake.mZoom = 15;
+
+        assertThat(map.center(s17)).isSameAs(map);
+
+        assertThat(fake.mCenter).isEqualTo(s17);
+        assertThat(fake.titles()).containsOnly("s17", "block");
+    }
+
+    @Test
+    public void batch_should_drawEachClusterOnce(){
+        List<UserLocation> peers = peerLocationsStub(500);
+        fake.resetCounts();
+
+        map.batch(() -> { for (UserLocation ul : peers) map.addMarker(ul.asLatLon(), ul.getId()); });
+
+        assertThat(map.mGrid.size()).isEqualTo(500);
+        assertThat(fake.mMarkers).hasSize(2);
+        assertThat(fake.mAdds).isEqualTo(2);
+        assertThat(fake.mRemoves).isEqualTo(0);
+    }
+
+    @Test
+    public void batch_nested_should_waitForTheOutermostBatch(){
+        map.batch(() -> {
+            map.batch(() -> map.addMarker(s17, "s17"));
+            assertThat(fake.mMarkers).isEmpty();
+        });
+
+        assertThat(fake.titles()).containsExactly("s17");
+    }
+
+    @Test
+    public void clear_should_forgetEveryMarker(){
+        map.addMarker(s17, "s17");
+        assertThat(map.clear()).isSameAs(map);
+
+        assertThat(fake.mMarkers).isEmpty();
+        assertThat(map.mGrid.size()).isEqualTo(0);
+        assertThat(map.mShown).isEmpty();
+    }
+}
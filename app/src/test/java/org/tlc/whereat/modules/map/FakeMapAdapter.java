@@ -0,0 +1,110 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory map for pure-JVM tests: keeps the markers currently on it, counts the calls that
+ * would cross into the maps library, and lets tests move the camera.
+ */
+
+class FakeMapAdapter implements MapAdapter {
+
+    float mZoom = 15;
+    LatLonBounds mBounds;
+    LatLon mCenter;
+    Runnable mListener;
+    List<FakeMarker> mMarkers = new ArrayList<>();
+    int mAdds, mMoves, mRemoves;
+
+    class FakeMarker implements MarkerAdapter {
+        LatLon position;
+        String title;
+
+        FakeMarker(LatLon position, String title){
+            this.position = position;
+            this.title = title;
+        }
+
+        public MarkerAdapter move(LatLon latLon){
+            position = latLon;
+            mMoves++;
+            return this;
+        }
+
+        public void remove(){
+            mMarkers.remove(this);
+            mRemoves++;
+        }
+    }
+
+    // MAP ADAPTER
+
+    public MapAdapter getMap(){ return this; }
+    public MapAdapter showUserLocation(){ return this; }
+
+    public MapAdapter clear(){
+        mMarkers.clear();
+        return this;
+    }
+
+    public MapAdapter center(LatLon latLon){
+        mCenter = latLon;
+        return this;
+    }
+
+    public MarkerAdapter addMarker(LatLon latLon, String msg){
+        FakeMarker m = new FakeMarker(latLon, msg);
+        mMarkers.add(m);
+        mAdds++;
+        return m;
+    }
+
+    public MapAdapter batch(Runnable updates){
+        updates.run();
+        return this;
+    }
+
+    public float zoom(){ return mZoom; }
+    public LatLonBounds visibleBounds(){ return mBounds; }
+
+    public MapAdapter onCameraChange(Runnable listener){
+        mListener = listener;
+        return this;
+    }
+
+    // TEST HELPERS
+
+    void moveCamera(float zoom, LatLonBounds bounds){
+        mZoom = zoom;
+        mBounds = bounds;
+        if (mListener != null) mListener.run();
+    }
+
+    List<String> titles(){
+        List<String> ts = new ArrayList<>();
+        for (FakeMarker m : mMarkers) ts.add(m.title);
+        return ts;
+    }
+
+    void resetCounts(){
+        mAdds = mMoves = mRemoves = 0;
+    }
+}
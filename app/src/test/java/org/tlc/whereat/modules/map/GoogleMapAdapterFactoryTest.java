@@ -38,4 +38,11 @@ public class GoogleMapAdapterFactoryTest {
         assertThat(mcf.mCtx).isEqualTo(ctx);
         assertThat(mcf.createMapAdapter()).isInstanceOf(MapAdapter.class);
     }
+
+    @Test
+    public void createMapAdapter_should_clusterMarkers() throws Exception {
+        GoogleMapAdapterFactory mcf = new GoogleMapAdapterFactory(mock(Activity.class));
+
+        assertThat(mcf.createMapAdapter()).isInstanceOf(ClusteringMapAdapter.class);
+    }
 }
\ No newline at end of file
@@ -21,18 +21,26 @@ import android.app.Activity;
 
 import com.google.android.gms.maps.CameraUpdate;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.VisibleRegion;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
+import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.activities.MapActivity;
 import org.tlc.whereat.model.UserLocation;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.tlc.whereat.support.LocationHelpers.*;
@@ -105,4 +113,45 @@ public class GoogleMapAdapterTest {
         verify(gm).addMarker(mo);
     }
 
+    @Test
+    public void batch_should_runUpdatesAndReturnThis(){
+        List<String> runs = new ArrayList<>();
+        mc.getMap();
+
+        assertThat(mc.batch(() -> runs.add("ran"))).isEqualTo(mc);
+        assertThat(runs).containsExactly("ran");
+    }
+
+    @Test
+    public void zoom_should_readCameraPosition(){
+        when(gm.getCameraPosition()).thenReturn(new CameraPosition(new LatLng(0, 0), 12f, 0, 0));
+        mc.getMap();
+
+        assertThat(mc.zoom()).isEqualTo(12f);
+    }
+
+    @Test
+    public void visibleBounds_should_convertVisibleRegion(){
+        LatLng sw = new LatLng(40, -75);
+        LatLng ne = new LatLng(41, -73);
+        doReturn(new VisibleRegion(sw, ne, sw, ne, new LatLngBounds(sw, ne))).when(mc).getVisibleRegion();
+        mc.getMap();
+
+        assertThat(mc.visibleBounds()).isEqualTo(new LatLonBounds(new LatLon(40, -75), new LatLon(41, -73)));
+    }
+
+    @Test
+    public void onCameraChange_should_relayCameraChangesAndReturnThis(){
+        ArgumentCaptor<GoogleMap.OnCameraChangeListener> listener =
+            ArgumentCaptor.forClass(GoogleMap.OnCameraChangeListener.class);
+        List<String> calls = new ArrayList<>();
+        mc.getMap();
+
+        assertThat(mc.onCameraChange(() -> calls.add("moved"))).isEqualTo(mc);
+        verify(gm).setOnCameraChangeListener(listener.capture());
+
+        listener.getValue().onCameraChange(null);
+        assertThat(calls).containsExactly("moved");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.map;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LatLonBoundsTest {
+
+    LatLon sw = new LatLon(40, -75);
+    LatLon ne = new LatLon(41, -73);
+    LatLonBounds b = new LatLonBounds(sw, ne);
+
+    @Test
+    public void getters_should_retrieveCorners(){
+        assertThat(b.getSouthWest()).isEqualTo(sw);
+        assertThat(b.getNorthEast()).isEqualTo(ne);
+    }
+
+    @Test
+    public void equals_should_compareCornersButNotObjIdentity(){
+        assertThat(b).isEqualTo(new LatLonBounds(new LatLon(40, -75), new LatLon(41, -73)));
+        assertThat(b).isNotEqualTo(new LatLonBounds(ne, sw));
+    }
+
+    @Test
+    public void hashCode_should_agreeWithEquals(){
+        LatLonBounds same = new LatLonBounds(new LatLon(40, -75), new LatLon(41, -73));
+
+        assertThat(b.hashCode()).isEqualTo(same.hashCode());
+        assertThat(new HashSet<>(Arrays.asList(b, same))).hasSize(1);
+    }
+}
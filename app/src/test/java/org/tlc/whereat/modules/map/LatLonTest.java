@@ -22,6 +22,9 @@ import com.google.android.gms.maps.model.LatLng;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import static org.assertj.core.api.Assertions.*;
 
 /**
@@ -65,4 +68,10 @@ public class LatLonTest {
     public void equals_should_compareLatAndLonFieldsButNotObjIdentity(){
         assertThat(ll).isEqualTo(new LatLon(ll.getLat(), ll.getLon()));
     }
+
+    @Test
+    public void hashCode_should_agreeWithEquals(){
+        assertThat(ll.hashCode()).isEqualTo(new LatLon(lat, lon).hashCode());
+        assertThat(new HashSet<>(Arrays.asList(ll, new LatLon(lat, lon)))).hasSize(1);
+    }
 }
\ No newline at end of file
@@ -36,6 +36,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
 import static org.tlc.whereat.util.CollectionUtils.last;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -71,6 +74,7 @@ public class MapperTest {
             assertThat(m.mCtx).isEqualTo(ctx);
             assertThat(m.mMapFactory).isInstanceOf(GoogleMapAdapterFactory.class);
             assertThat(m.mMarkers).isEqualTo(new ConcurrentHashMap<>());
+            assertThat(m.mExpiry.size()).isEqualTo(0);
             assertThat(m.mLastPing).isEqualTo(-1L);
             assertThat(m.mRendered).isFalse();
         }
@@ -133,6 +137,8 @@ public class MapperTest {
             doReturn(mc).when(mc).getMap();
             doReturn(mc).when(mc).showUserLocation();
             doReturn(mc).when(mc).center(any(LatLon.class));
+            doAnswer(i -> { ((Runnable) i.getArguments()[0]).run(); return mc; })
+                .when(mc).batch(any(Runnable.class));
 
             s17mrk = mock(MarkerAdapter.class);
             s17_mrk = mock(MarkerAdapter.class);
@@ -219,6 +225,57 @@ public class MapperTest {
             assertThat(m.mMarkers.get(n17.getId())).isEqualTo(Pair.create(n17.getTime(), n17mrk));
         }
 
+        @Test
+        public void renderStream_whenEmpty_should_renderMapCenteredOnLiberty(){
+
+            m.render(Observable.<UserLocation>empty());
+
+            assertThat(m.mMap).isEqualTo(mc);
+            assertThat(m.hasRendered()).isTrue();
+            assertThat(m.mLastPing).isEqualTo(-1L);
+            assertThat(m.mMarkers).isEmpty();
+
+            verify(mc).showUserLocation();
+            verify(mc, times(1)).center(any(LatLon.class));
+            verify(mc).center(Mapper.LIBERTY);
+        }
+
+        @Test
+        public void renderStream_should_renderMapBeforeFirstLocationArrives(){
+            PublishSubject<UserLocation> stream = PublishSubject.create();
+
+            m.render(stream);
+
+            assertThat(m.hasRendered()).isTrue();
+            assertThat(m.mMarkers).isEmpty();
+
+            stream.onNext(s17);
+
+            assertThat(m.mMarkers).hasSize(1);
+            assertThat(m.mLastPing).isEqualTo(s17.getTime());
+            verify(mc, never()).center(s17.asLatLon());
+
+            stream.onNext(n17);
+            stream.onCompleted();
+
+            assertThat(m.mMarkers).hasSize(2);
+            assertThat(m.mLastPing).isEqualTo(n17.getTime());
+            verify(mc).center(n17.asLatLon());
+        }
+
+        @Test
+        public void renderStream_whenStreamFails_should_keepWhatWasPlotted(){
+            PublishSubject<UserLocation> stream = PublishSubject.create();
+
+            m.render(stream);
+            stream.onNext(s17);
+            stream.onError(new IllegalStateException("cursor closed"));
+
+            assertThat(m.mMarkers).hasSize(1);
+            assertThat(m.mLastPing).isEqualTo(s17.getTime());
+            verify(mc, never()).center(s17.asLatLon());
+        }
+
         // #refresh
 
         @Test
@@ -297,6 +354,33 @@ public class MapperTest {
             /*assertThat(m.mMarkers.get(n17.getId())).isEqualTo(Pair.create(n17_.getTime(), n17_mrk));*/
         }
 
+        @Test
+        public void refreshStream_should_plotEachLocationAsItArrives(){
+
+            m.render(locs);
+            m.refresh(Observable.from(movedLocs));
+
+            assertThat(m.mLastPing).isEqualTo(n17_.getTime());
+            assertThat(m.mMarkers).hasSize(2);
+
+            verify(m).rePlot(s17_);
+            verify(m).rePlot(n17_);
+        }
+
+        @Test
+        public void refreshStream_whenStreamFails_should_leaveTheMapAsItWas(){
+
+            m.render(locs);
+            m.refresh(Observable.concat(
+                Observable.just(s17_),
+                Observable.<UserLocation>error(new IllegalStateException("database is locked"))));
+
+            assertThat(m.mMarkers).hasSize(2);
+            assertThat(m.mLastPing).isEqualTo(s17_.getTime());
+            verify(m).rePlot(s17_);
+            verify(n17mrk, never()).move(any(LatLon.class));
+        }
+
         // #record
 
         @Test
@@ -350,6 +434,29 @@ public class MapperTest {
             assertThat(m.mMarkers.get(s17.getId())).isEqualToComparingFieldByField(Pair.create(s17_.getTime(), s17_mrk));
         }
 
+        @Test
+        public void recordAll_should_addAndMoveMarkersForTheWholeBatch(){
+
+            m.render(oneLoc);
+
+            m.recordAll(Arrays.asList(s17_, n17));
+
+            verify(s17mrk).move(s17_.asLatLon());
+
+            assertThat(m.mLastPing).isEqualTo(n17.getTime());
+            assertThat(m.mMarkers).hasSize(2);
+            assertThat(m.mMarkers.get(n17.getId())).isEqualTo(Pair.create(n17.getTime(), n17mrk));
+        }
+
+        @Test
+        public void recordAll_should_applyTheWholeBatchToTheMapAtOnce(){
+
+            m.render(oneLoc); // plots in one batch
+            m.recordAll(Arrays.asList(s17_, n17));
+
+            verify(mc, times(2)).batch(any(Runnable.class));
+        }
+
         // # forgetSince
 
         @Test
@@ -411,6 +518,72 @@ public class MapperTest {
             assertThat(m.mMarkers).containsKey(n17.getId());
         }
 
+        @Test
+        public void forgetSince_should_onlyTouchExpiredMarkers(){
+
+            m.render(locs);
+            m.forgetSince(n17.getTime());
+
+            verify(s17mrk).remove();
+            verify(n17mrk, never()).remove();
+            assertThat(m.mExpiry.size()).isEqualTo(1);
+            assertThat(m.mExpiry.contains(n17.getId())).isTrue();
+        }
+
+        @Test
+        public void forgetSince_should_removeExpiredMarkersInOneBatch(){
+
+            m.render(locs);
+            m.forgetSince(n17.getTime() + 1L);
+
+            verify(mc, times(2)).batch(any(Runnable.class)); // render's, then forgetSince's
+        }
+
+        @Test
+        public void forgetSince_withClustering_should_redrawEachClusterOnce(){
+            FakeMapAdapter fake = new FakeMapAdapter();
+            fake.mZoom = 12; // where the 500 peers fall into 2 clusters
+            doReturn(ClusteringMapAdapter.getInstance(fake, "%d people")).when(m.mMapFactory).createMapAdapter();
+            List<UserLocation> peers = peerLocationsStub(500);
+
+            m.render(peers);
+            fake.resetCounts();
+            m.forgetSince(peers.get(250).getTime()); // expires 250 of the 471 peers in the larger cluster
+
+            assertThat(m.mMarkers).hasSize(250);
+            assertThat(fake.mMarkers).hasSize(2);
+            assertThat(fake.mRemoves).isEqualTo(1); // one redraw of the retitled cluster,
+            assertThat(fake.mAdds).isEqualTo(1);    // rather than one per expired member
+        }
+
+        @Test
+        public void forgetSince_afterMarkerMoved_should_useItsLatestTime(){
+
+            m.render(oneLoc);
+            m.refresh(Arrays.asList(s17_));
+
+            m.forgetSince(s17_.getTime());
+
+            assertThat(m.mMarkers).containsKey(s17.getId());
+            verify(s17mrk, never()).remove();
+            verify(s17_mrk, never()).remove();
+        }
+
+        // #remove
+
+        @Test
+        public void remove_should_removeOnlyThatMarker(){
+
+            m.render(locs);
+            m.remove(s17.getId());
+            m.remove("unknown");
+
+            verify(s17mrk).remove();
+            verify(n17mrk, never()).remove();
+            assertThat(m.mMarkers).containsOnlyKeys(n17.getId());
+            assertThat(m.mExpiry.contains(s17.getId())).isFalse();
+        }
+
         // #clear
 
         @Test
@@ -0,0 +1,101 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.pubsub;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.*;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class BindingsTest {
+
+    Bindings bindings;
+    PublishSubject<Integer> numbers;
+    PublishSubject<String> words;
+    List<Object> got;
+
+    @Before
+    public void setup(){
+        bindings = new Bindings();
+        numbers = PublishSubject.create();
+        words = PublishSubject.create();
+        got = new ArrayList<>();
+    }
+
+    @Test
+    public void bind_should_subscribeEachHandlerToItsStream(){
+        bindings.bind(numbers, got::add).bind(words, got::add);
+
+        numbers.onNext(1);
+        words.onNext("one");
+
+        assertThat(bindings.isBound()).isTrue();
+        assertThat(got).containsExactly(1, "one");
+    }
+
+    @Test
+    public void unbind_should_unsubscribeEverythingAndAllowRebinding(){
+        bindings.bind(numbers, got::add).bind(words, got::add);
+
+        bindings.unbind();
+        numbers.onNext(1);
+
+        assertThat(bindings.isBound()).isFalse();
+        assertThat(numbers.hasObservers()).isFalse();
+        assertThat(words.hasObservers()).isFalse();
+        assertThat(got).isEmpty();
+
+        bindings.bind(numbers, got::add);
+        numbers.onNext(2);
+        assertThat(got).containsExactly(2);
+    }
+
+    @Test
+    public void aThrowingHandler_should_notEndItsSubscription(){
+        bindings.bind(numbers, n -> {
+            if (n == 1) throw new IllegalStateException("boom");
+            got.add(n);
+        });
+
+        numbers.onNext(1);
+        numbers.onNext(2);
+
+        assertThat(got).containsExactly(2);
+        assertThat(numbers.hasObservers()).isTrue();
+    }
+
+    @Test
+    public void aFailingStream_should_beLoggedRatherThanThrown(){
+        bindings.bind(numbers, got::add);
+
+        numbers.onError(new IllegalStateException("boom"));
+
+        assertThat(got).isEmpty();
+    }
+}
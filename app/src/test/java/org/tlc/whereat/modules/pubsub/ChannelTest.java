@@ -0,0 +1,163 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.pubsub;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.model.UserLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Subscriber;
+import rx.Subscription;
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class ChannelTest {
+
+    Channel<UserLocation> channel;
+    List<UserLocation> got1;
+    List<UserLocation> got2;
+
+    @Before
+    public void setup(){
+        channel = new Channel<>();
+        got1 = new ArrayList<>();
+        got2 = new ArrayList<>();
+    }
+
+    @Test
+    public void publish_should_handTheSameObjectToEverySubscriber(){
+        UserLocation s17 = s17UserLocationStub();
+        channel.events().subscribe(got1::add);
+        channel.onMainThread().subscribe(got2::add);
+
+        channel.publish(s17);
+
+        assertThat(got1).hasSize(1);
+        assertThat(got1.get(0)).isSameAs(s17);
+        assertThat(got2.get(0)).isSameAs(s17);
+    }
+
+    @Test
+    public void publish_withoutSubscribers_should_dropTheEvent(){
+        channel.publish(s17UserLocationStub());
+        channel.events().subscribe(got1::add);
+
+        assertThat(channel.hasListeners()).isTrue();
+        assertThat(got1).isEmpty();
+    }
+
+    @Test
+    public void onMainThread_should_deliverOnTheMainLooper(){
+        channel.onMainThread().subscribe(got1::add);
+        ShadowLooper.pauseMainLooper();
+
+        channel.publish(s17UserLocationStub());
+        assertThat(got1).isEmpty();
+
+        ShadowLooper.unPauseMainLooper();
+        assertThat(got1).containsExactly(s17UserLocationStub());
+    }
+
+    @Test
+    public void onMainThread_should_shapeEachSubscriptionSeparately(){
+        TestScheduler timer = new TestScheduler();
+        timer.advanceTimeBy(1, TimeUnit.HOURS); // throttleFirst treats a clock reading 0 as "never"
+        channel.onMainThread(uls -> uls.throttleFirst(1, TimeUnit.SECONDS, timer)).subscribe(got1::add);
+        channel.onMainThread().subscribe(got2::add);
+
+        channel.publish(s17UserLocationStub());
+        channel.publish(s17UserLocationStubMoved());
+        timer.advanceTimeBy(1, TimeUnit.SECONDS);
+        channel.publish(n17UserLocationStub());
+
+        assertThat(got1).containsExactly(s17UserLocationStub(), n17UserLocationStub());
+        assertThat(got2).hasSize(3);
+    }
+
+    @Test
+    public void onMainThread_withShaping_should_postOnlyWhatSurvivesIt(){
+        channel.onMainThread(uls -> uls.filter(ul -> ul.getId().equals(S17_UUID))).subscribe(got1::add);
+        ShadowLooper.pauseMainLooper();
+
+        channel.publish(n17UserLocationStub());
+
+        assertThat(ShadowLooper.getShadowMainLooper().getScheduler().size()).isEqualTo(0);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void events_should_bufferForASlowSubscriber(){
+        SlowSubscriber slow = new SlowSubscriber();
+        channel.events().subscribe(slow);
+
+        channel.publish(s17UserLocationStub());
+        channel.publish(n17UserLocationStub());
+        assertThat(got1).containsExactly(s17UserLocationStub());
+
+        slow.more(1);
+        assertThat(got1).containsExactly(s17UserLocationStub(), n17UserLocationStub());
+    }
+
+    @Test
+    public void unsubscribing_should_removeOnlyThatSubscriber(){
+        Subscription s1 = channel.events().subscribe(got1::add);
+        channel.events().subscribe(got2::add);
+
+        s1.unsubscribe();
+        channel.publish(s17UserLocationStub());
+
+        assertThat(got1).isEmpty();
+        assertThat(got2).hasSize(1);
+    }
+
+    @Test
+    public void unsubscribingEverySubscriber_should_leaveNoListeners(){
+        Subscription s1 = channel.events().subscribe(got1::add);
+        Subscription s2 = channel.onMainThread().subscribe(got2::add);
+        assertThat(channel.hasListeners()).isTrue();
+
+        s1.unsubscribe();
+        s2.unsubscribe();
+
+        assertThat(channel.hasListeners()).isFalse();
+    }
+
+    // takes one event at a time, and only when asked
+    class SlowSubscriber extends Subscriber<UserLocation> {
+
+        @Override public void onStart() { request(1); }
+        @Override public void onNext(UserLocation ul) { got1.add(ul); }
+        @Override public void onCompleted() {}
+        @Override public void onError(Throwable e) { throw new AssertionError(e); }
+
+        void more(long n) { request(n); }
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.pubsub;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ChannelsTest {
+
+    @Test
+    public void channels_should_beSharedUntilReset(){
+        Channel<?> received = Channels.locationsReceived();
+        Channel<?> alerts = Channels.alerts();
+
+        assertThat(Channels.locationsReceived()).isSameAs(received);
+        assertThat(Channels.locationRemoved()).isSameAs(Channels.locationRemoved());
+        assertThat(Channels.locationPublished()).isSameAs(Channels.locationPublished());
+        assertThat(Channels.locationsCleared()).isSameAs(Channels.locationsCleared());
+        assertThat(Channels.locationsForgotten()).isSameAs(Channels.locationsForgotten());
+        assertThat(Channels.googleApiDisconnected()).isSameAs(Channels.googleApiDisconnected());
+        assertThat(Channels.alerts()).isSameAs(alerts);
+
+        Channels.reset();
+        assertThat(Channels.locationsReceived()).isNotSameAs(received);
+        assertThat(Channels.alerts()).isNotSameAs(alerts);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.pubsub;
+
+import android.content.Context;
+import android.content.Intent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.Subscription;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class DispatcherTest {
+
+    static final String ACTION_A = "test.A";
+    static final String ACTION_B = "test.B";
+
+    Context app = RuntimeEnvironment.application;
+
+    @Test
+    public void broadcasts_should_relayMatchingIntentsWhileSubscribed(){
+        List<String> got = new ArrayList<>();
+        Subscription s = Dispatcher.broadcasts(app, ACTION_A, ACTION_B).subscribe(i -> got.add(i.getAction()));
+
+        app.sendBroadcast(new Intent(ACTION_A));
+        app.sendBroadcast(new Intent("test.OTHER"));
+        app.sendBroadcast(new Intent(ACTION_B));
+        s.unsubscribe();
+        app.sendBroadcast(new Intent(ACTION_A));
+
+        assertThat(got).containsExactly(ACTION_A, ACTION_B);
+    }
+
+    @Test
+    public void broadcasts_should_registerOnlyWhileSubscribed(){
+        Subscription s = Dispatcher.broadcasts(app, ACTION_A).subscribe();
+        assertThat(shadowOf(RuntimeEnvironment.application).getReceiversForIntent(new Intent(ACTION_A))).hasSize(1);
+
+        s.unsubscribe();
+        assertThat(shadowOf(RuntimeEnvironment.application).getReceiversForIntent(new Intent(ACTION_A))).isEmpty();
+    }
+}
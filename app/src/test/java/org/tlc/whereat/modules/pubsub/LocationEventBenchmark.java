@@ -0,0 +1,81 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.pubsub;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.v4.content.LocalBroadcastManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.model.UserLocation;
+import org.tlc.whereat.support.Benchmark;
+
+import static org.junit.Assume.assumeTrue;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+/**
+ * Per-event cost of relaying a received location to the map: the old local broadcast (Intent,
+ * extras Bundle, receiver matching) against a Channel. Runs on Robolectric's shadows, so absolute
+ * numbers are only indicative of a device; the gap between the two paths is what matters.
+ */
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class LocationEventBenchmark {
+
+    static final String ACTION = "benchmark.LOCATION_RECEIVED";
+
+    UserLocation s17 = s17UserLocationStub();
+    UserLocation last;
+
+    @Before
+    public void setup(){
+        assumeTrue(Benchmark.ENABLED);
+    }
+
+    @Test
+    public void perEventCost_broadcastVsChannel() throws Exception {
+        LocalBroadcastManager lbm = LocalBroadcastManager.getInstance(RuntimeEnvironment.application);
+        lbm.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent i) {
+                last = i.getExtras().getParcelable(ACTION);
+            }
+        }, new IntentFilter(ACTION));
+
+        Channel<UserLocation> channel = new Channel<>();
+        channel.onMainThread().subscribe(ul -> last = ul);
+
+        Benchmark.run("location event (local broadcast)", 1000, 10000, () -> {
+            lbm.sendBroadcast(new Intent().setAction(ACTION).putExtra(ACTION, s17));
+            return last;
+        });
+        Benchmark.run("location event (channel)", 1000, 10000, () -> {
+            channel.publish(s17);
+            return last;
+        });
+    }
+}
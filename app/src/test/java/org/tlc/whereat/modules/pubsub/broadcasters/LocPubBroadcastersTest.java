@@ -17,22 +17,23 @@
 
 package org.tlc.whereat.modules.pubsub.broadcasters;
 
-
-import android.content.Intent;
-import android.support.v4.content.LocalBroadcastManager;
-
 import com.google.android.gms.common.ConnectionResult;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricGradleTestRunner;
 import org.robolectric.annotation.Config;
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.model.ApiMessage;
 import org.tlc.whereat.model.UserLocation;
-import org.tlc.whereat.services.LocationPublisher;
+import org.tlc.whereat.modules.pubsub.Channel;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.Channels.Alert;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
@@ -49,84 +50,94 @@ public class LocPubBroadcastersTest {
     static ConnectionResult cr = mock(ConnectionResult.class);
 
     LocPubBroadcasters bc;
-    ArgumentCaptor<Intent> intentArg;
 
     @Before
+    @SuppressWarnings("unchecked")
     public void setup(){
-        bc = new LocPubBroadcasters(mock(LocationPublisher.class), mock(LocalBroadcastManager.class));
-        intentArg = ArgumentCaptor.forClass(Intent.class);
+        bc = new LocPubBroadcasters();
+        bc.mPublished = mock(Channel.class);
+        bc.mReceived = mock(Channel.class);
+        bc.mRemoved = mock(Channel.class);
+        bc.mCleared = mock(Channel.class);
+        bc.mDisconnected = mock(Channel.class);
+        bc.mAlerts = mock(Channel.class);
     }
 
     @Test
-    public void pub_should_broadcast_ACTION_LOCATION_PUBLISHED(){
-        bc.pub();
+    public void getInstance_should_publishOnTheSharedChannels(){
+        LocPubBroadcasters lpb = LocPubBroadcasters.getInstance();
+
+        assertThat(lpb.mPublished).isSameAs(Channels.locationPublished());
+        assertThat(lpb.mReceived).isSameAs(Channels.locationsReceived());
+        assertThat(lpb.mRemoved).isSameAs(Channels.locationRemoved());
+        assertThat(lpb.mCleared).isSameAs(Channels.locationsCleared());
+        assertThat(lpb.mDisconnected).isSameAs(Channels.googleApiDisconnected());
+        assertThat(lpb.mAlerts).isSameAs(Channels.alerts());
+    }
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_LOCATION_PUBLISHED);
+    @Test
+    public void pub_should_publishTheSharedLocation(){
+        bc.pub(s17);
+
+        verify(bc.mPublished).publish(s17);
     }
 
     @Test
-    public void clear_should_broadcast_ACTION_LOCATIONS_CLEARED(){
+    public void clear_should_publishTheServersReply(){
         bc.clear(msg);
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_LOCATIONS_CLEARED);
+        verify(bc.mCleared).publish(msg);
     }
 
     @Test
-    public void map_should_broadcast_ACTION_LOCATIONS_RECEIVED(){
+    public void map_should_publishLocationAsABatchOfOne(){
         bc.map(s17);
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_LOCATION_RECEIVED);
-        assertThat((UserLocation)intentArg.getValue().getExtras()
-            .getParcelable(LocPubBroadcasters.ACTION_LOCATION_RECEIVED))
-            .isEqualTo(s17);
+        verify(bc.mReceived).publish(Collections.singletonList(s17));
+    }
+
+    @Test
+    public void mapAll_should_publishTheWholeBatchAsOneEvent(){
+        List<UserLocation> uls = Arrays.asList(s17, n17UserLocationStub());
 
+        bc.mapAll(uls);
+        bc.mapAll(Collections.<UserLocation>emptyList());
+
+        verify(bc.mReceived, times(1)).publish(uls);
+    }
+
+    @Test
+    public void unmap_should_publishId(){
+        bc.unmap(S17_UUID);
+
+        verify(bc.mRemoved).publish(S17_UUID);
     }
 
     @Test
-    public void fail_should_broadcast_ACTION_LOCATION_REQUEST_FAILED(){
+    public void fail_should_raise_LOCATION_REQUEST_FAILED(){
         bc.fail();
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_LOCATION_REQUEST_FAILED);
+        verify(bc.mAlerts).publish(Alert.LOCATION_REQUEST_FAILED);
     }
 
     @Test
-    public void googApiDisconnected_should_broadcast_ACTION_GOOGLE_API_CLIENT_DISCONNECTED(){
+    public void googApiDisconnected_should_publishTheConnectionResult(){
         bc.googApiDisconnected(cr);
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED);
-        assertThat((ConnectionResult)intentArg.getValue().getExtras()
-            .getParcelable(LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED))
-            .isEqualTo(cr);
+        verify(bc.mDisconnected).publish(cr);
     }
 
     @Test
-    public void locServicesDisabled_should_broadcast_ACTION_LOCATION_SERVICES_DISABLED(){
+    public void locServicesDisabled_should_raise_LOCATION_SERVICES_DISABLED(){
         bc.locServicesDisabled();
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_LOCATION_SERVICES_DISABLED);
+        verify(bc.mAlerts).publish(Alert.LOCATION_SERVICES_DISABLED);
     }
 
     @Test
-    public void playServicesDisabled_should_broadcast_ACTION_PLAY_SERVICES_DISABLED(){
+    public void playServicesDisabled_should_raise_PLAY_SERVICES_DISABLED(){
         bc.playServicesDisabled();
 
-        verify(bc.mLbm).sendBroadcast(intentArg.capture());
-        assertThat(intentArg.getValue().getAction())
-            .isEqualTo(LocPubBroadcasters.ACTION_PLAY_SERVICES_DISABLED);
+        verify(bc.mAlerts).publish(Alert.PLAY_SERVICES_DISABLED);
     }
-
-
-
-}
\ No newline at end of file
+}
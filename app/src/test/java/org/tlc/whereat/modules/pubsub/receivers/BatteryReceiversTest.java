@@ -0,0 +1,104 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.pubsub.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.services.LocationPublisher;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class BatteryReceiversTest {
+
+    LocationPublisher ctx;
+    BatteryReceivers rcv;
+    ArgumentCaptor<IntentFilter> ifArg;
+
+    @Before
+    public void setup(){
+        ctx = mock(LocationPublisher.class);
+        ifArg = ArgumentCaptor.forClass(IntentFilter.class);
+        rcv = new BatteryReceivers(ctx);
+    }
+
+    @Test
+    public void register_should_listenForSystemBatteryBroadcasts(){
+        rcv.register();
+
+        verify(ctx).registerReceiver(isA(BroadcastReceiver.class), ifArg.capture());
+        assertThat(ifArg.getValue().hasAction(Intent.ACTION_BATTERY_LOW)).isTrue();
+        assertThat(ifArg.getValue().hasAction(Intent.ACTION_BATTERY_OKAY)).isTrue();
+    }
+
+    @Test
+    public void register_should_seedStateFromStickyBatteryStatus(){
+        doReturn(status(10, 100)).when(ctx).registerReceiver((BroadcastReceiver) isNull(), any(IntentFilter.class));
+
+        rcv.register();
+
+        verify(ctx).onBatteryLow(true);
+    }
+
+    @Test
+    public void unregister_should_unregisterReceiver(){
+        ArgumentCaptor<BroadcastReceiver> brArg = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        rcv.register();
+        verify(ctx, times(2)).registerReceiver(brArg.capture(), any(IntentFilter.class)); // then the sticky read
+
+        rcv.unregister();
+
+        verify(ctx).unregisterReceiver(brArg.getAllValues().get(0));
+        assertThat(rcv.mBindings.isBound()).isFalse();
+    }
+
+    @Test
+    public void batteryReceiver_should_relayLowAndOkayToPublisher(){
+        rcv.onBattery(new Intent(Intent.ACTION_BATTERY_LOW));
+        verify(ctx).onBatteryLow(true);
+
+        rcv.onBattery(new Intent(Intent.ACTION_BATTERY_OKAY));
+        verify(ctx).onBatteryLow(false);
+    }
+
+    @Test
+    public void isLow_should_compareLevelToScale(){
+        assertThat(BatteryReceivers.isLow(status(15, 100))).isTrue();
+        assertThat(BatteryReceivers.isLow(status(16, 100))).isFalse();
+        assertThat(BatteryReceivers.isLow(new Intent(Intent.ACTION_BATTERY_CHANGED))).isFalse();
+    }
+
+    static Intent status(int level, int scale){
+        return new Intent(Intent.ACTION_BATTERY_CHANGED)
+            .putExtra(BatteryManager.EXTRA_LEVEL, level)
+            .putExtra(BatteryManager.EXTRA_SCALE, scale);
+    }
+}
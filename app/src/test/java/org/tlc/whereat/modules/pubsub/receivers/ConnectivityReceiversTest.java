@@ -0,0 +1,108 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.modules.pubsub.receivers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowNetworkInfo;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.services.LocationPublisher;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class ConnectivityReceiversTest {
+
+    Context app = RuntimeEnvironment.application;
+    LocationPublisher ctx;
+    ConnectivityReceivers rcv;
+    ArgumentCaptor<IntentFilter> ifArg;
+
+    @Before
+    public void setup(){
+        ctx = mock(LocationPublisher.class);
+        ifArg = ArgumentCaptor.forClass(IntentFilter.class);
+        rcv = new ConnectivityReceivers(ctx);
+    }
+
+    @Test
+    public void register_should_listenForSystemConnectivityBroadcasts(){
+        rcv.register();
+
+        verify(ctx).registerReceiver(isA(BroadcastReceiver.class), ifArg.capture());
+        assertThat(ifArg.getValue().hasAction(ConnectivityManager.CONNECTIVITY_ACTION)).isTrue();
+    }
+
+    @Test
+    public void unregister_should_unregisterReceiver(){
+        ArgumentCaptor<BroadcastReceiver> brArg = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        rcv.register();
+        verify(ctx).registerReceiver(brArg.capture(), any(IntentFilter.class));
+
+        rcv.unregister();
+
+        verify(ctx).unregisterReceiver(brArg.getValue());
+        assertThat(rcv.mBindings.isBound()).isFalse();
+    }
+
+    @Test
+    public void connectivityReceiver_should_relayConnectionStateToPublisher(){
+        setConnected(true);
+        rcv.onConnectivityChanged();
+        verify(ctx).onConnectivityChanged(true);
+
+        setConnected(false);
+        rcv.onConnectivityChanged();
+        verify(ctx).onConnectivityChanged(false);
+    }
+
+    @Test
+    public void isConnected_withNoActiveNetwork_should_beFalse(){
+        shadowOf(connectivityManager()).setActiveNetworkInfo(null);
+
+        assertThat(ConnectivityReceivers.isConnected(app)).isFalse();
+    }
+
+    // HELPERS
+
+    ConnectivityManager connectivityManager(){
+        return (ConnectivityManager) app.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    void setConnected(boolean connected){
+        NetworkInfo ni = ShadowNetworkInfo.newInstance(
+            connected ? NetworkInfo.DetailedState.CONNECTED : NetworkInfo.DetailedState.DISCONNECTED,
+            ConnectivityManager.TYPE_WIFI, 0, true, connected);
+        shadowOf(connectivityManager()).setActiveNetworkInfo(ni);
+    }
+}
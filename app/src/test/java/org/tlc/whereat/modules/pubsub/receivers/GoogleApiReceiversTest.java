@@ -17,33 +17,29 @@
 
 package org.tlc.whereat.modules.pubsub.receivers;
 
+import android.app.FragmentManager;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.IntentSender;
-import android.support.v4.content.LocalBroadcastManager;
 
 import com.google.android.gms.common.ConnectionResult;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricGradleTestRunner;
-import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.R;
 import org.tlc.whereat.activities.OnOffActivity;
-import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
 import org.tlc.whereat.fragments.LocServicesAlertFragment;
 import org.tlc.whereat.fragments.PlayServicesAlertFragment;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.Channels.Alert;
 
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.tlc.whereat.support.ActivityHelpers.*;
-import static org.robolectric.Shadows.shadowOf;
 
 @RunWith(RobolectricGradleTestRunner.class)
 @Config(constants = BuildConfig.class, sdk = 21)
@@ -55,9 +51,7 @@ public class GoogleApiReceiversTest extends ReceiversTest {
     @Before
     public void setup(){
         ctx = createActivity(OnOffActivity.class);
-        lbm = spy(LocalBroadcastManager.getInstance(RuntimeEnvironment.application));
-        rcv = new GoogleApiReceivers(ctx, lbm);
-        ifArg = ArgumentCaptor.forClass(IntentFilter.class);
+        rcv = new GoogleApiReceivers(ctx);
     }
 
     @Test
@@ -66,26 +60,22 @@ public class GoogleApiReceiversTest extends ReceiversTest {
     }
 
     @Test
-    public void register_should_registerBroadcastReceivers(){
+    public void register_should_bindToChannels(){
         rcv.register();
 
-        verify(lbm).registerReceiver(eq(rcv.mApiClientDisconnected), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED)).isTrue();
-
-        verify(lbm).registerReceiver(eq(rcv.mLocationServicesDisabledReceiver), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_LOCATION_SERVICES_DISABLED)).isTrue();
-
-        verify(lbm).registerReceiver(eq(rcv.mPlayServicesDisabledReceiver), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_PLAY_SERVICES_DISABLED)).isTrue();
+        assertThat(rcv.mBindings.isBound()).isTrue();
+        assertThat(Channels.googleApiDisconnected().hasListeners()).isTrue();
+        assertThat(Channels.alerts().hasListeners()).isTrue();
     }
 
     @Test
-    public void unregister_should_unRegisterAllReceivers() {
+    public void unregister_should_unbindFromAllChannels() {
+        rcv.register();
         rcv.unregister();
 
-        verify(lbm).unregisterReceiver(rcv.mApiClientDisconnected);
-        verify(lbm).unregisterReceiver(rcv.mLocationServicesDisabledReceiver);
-        verify(lbm).unregisterReceiver(rcv.mPlayServicesDisabledReceiver);
+        assertThat(rcv.mBindings.isBound()).isFalse();
+        assertThat(Channels.googleApiDisconnected().hasListeners()).isFalse();
+        assertThat(Channels.alerts().hasListeners()).isFalse();
     }
 
     @Test
@@ -94,7 +84,7 @@ public class GoogleApiReceiversTest extends ReceiversTest {
         when(cr.hasResolution()).thenReturn(true);
 
         rcv.register();
-        broadcastApiFailure(lbm, cr);
+        Channels.googleApiDisconnected().publish(cr);
 
         verify(cr).startResolutionForResult(ctx, GoogleApiReceivers.CONNECTION_FAILURE_RESOLUTION_REQUEST);
     }
@@ -105,33 +95,39 @@ public class GoogleApiReceiversTest extends ReceiversTest {
         when(cr.hasResolution()).thenReturn(false);
 
         rcv.register();
-        broadcastApiFailure(lbm, cr);
+        Channels.googleApiDisconnected().publish(cr);
 
         assertThat(lastToast()).isEqualTo(ctx.getString(R.string.goog_loc_api_disconnected_toast));
     }
 
-    protected void broadcastApiFailure(LocalBroadcastManager lbm, ConnectionResult cr){
-        lbm.sendBroadcast(new Intent()
-            .setAction(LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED)
-            .putExtra(LocPubBroadcasters.ACTION_GOOGLE_API_CLIENT_DISCONNECTED, cr));
-    }
-
     @Test
     public void locationServicesDisabledReceiver_should_tryToFixLocationServices(){
         rcv.mLocServicesAlert = mock(LocServicesAlertFragment.class);
         rcv.register();
-        lbm.sendBroadcast(new Intent().setAction(LocPubBroadcasters.ACTION_LOCATION_SERVICES_DISABLED));
+        Channels.alerts().publish(Alert.LOCATION_SERVICES_DISABLED);
 
         verify(rcv.mLocServicesAlert)
             .show(ctx.getFragmentManager(),ctx.getString(R.string.goog_loc_services_alert_tag));
     }
 
+    @Test
+    public void alerts_should_triggerOnlyTheirOwnFixer(){
+        rcv.mLocServicesAlert = mock(LocServicesAlertFragment.class);
+        rcv.mPlayServicesAlert = mock(PlayServicesAlertFragment.class);
+        rcv.register();
+        Channels.alerts().publish(Alert.LOCATION_REQUEST_FAILED);
+        Channels.alerts().publish(Alert.LOCATION_SERVICES_DISABLED);
+
+        verify(rcv.mLocServicesAlert).show(any(FragmentManager.class), anyString());
+        verifyZeroInteractions(rcv.mPlayServicesAlert);
+    }
+
     @Test
     public void playServicesDisabledReceiver_should_tryToFixPlayServices(){
-        rcv = new ReceiversWithPlay(ctx, lbm);
+        rcv = new ReceiversWithPlay(ctx);
         rcv.mPlayServicesAlert = mock(PlayServicesAlertFragment.class);
         rcv.register();
-        broadcastPlayServicesDisabled(lbm);
+        Channels.alerts().publish(Alert.PLAY_SERVICES_DISABLED);
 
         verify(rcv.mPlayServicesAlert)
             .show(ctx.getFragmentManager(), ctx.getString(R.string.goog_play_services_alert_tag));
@@ -139,21 +135,17 @@ public class GoogleApiReceiversTest extends ReceiversTest {
 
     @Test
     public void playServicesDisabledReceiver_should_notifyUserIfPlayServicesUnfixable(){
-        rcv = new ReceiversWithNoPlay(ctx, lbm);
+        rcv = new ReceiversWithNoPlay(ctx);
         rcv.register();
-        broadcastPlayServicesDisabled(lbm);
+        Channels.alerts().publish(Alert.PLAY_SERVICES_DISABLED);
 
         assertThat(lastToast()).isEqualTo(ctx.getString(R.string.goog_play_services_unavailable_toast));
     }
 
-    private void broadcastPlayServicesDisabled(LocalBroadcastManager lbm){
-        lbm.sendBroadcast(new Intent().setAction(LocPubBroadcasters.ACTION_PLAY_SERVICES_DISABLED));
-    }
-
     private class ReceiversWithPlay extends GoogleApiReceivers {
 
-        public ReceiversWithPlay(Context ctx, LocalBroadcastManager lbm){
-            super(ctx, lbm);
+        public ReceiversWithPlay(Context ctx){
+            super(ctx);
         }
 
         @Override
@@ -164,8 +156,8 @@ public class GoogleApiReceiversTest extends ReceiversTest {
 
     private class ReceiversWithNoPlay extends GoogleApiReceivers {
 
-        public ReceiversWithNoPlay(Context ctx, LocalBroadcastManager lbm){
-            super(ctx, lbm);
+        public ReceiversWithNoPlay(Context ctx){
+            super(ctx);
         }
 
         @Override
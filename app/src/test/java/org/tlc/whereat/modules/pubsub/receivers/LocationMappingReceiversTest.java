@@ -17,27 +17,26 @@
 
 package org.tlc.whereat.modules.pubsub.receivers;
 
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.support.v4.content.LocalBroadcastManager;
-
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricGradleTestRunner;
-import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.activities.MapActivity;
-import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
 import org.tlc.whereat.model.UserLocation;
-import org.tlc.whereat.modules.schedule.Scheduler;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.support.SampleTimes;
+
+import java.util.Arrays;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.S17_UUID;
 import static org.tlc.whereat.support.LocationHelpers.s17UserLocationStub;
+import static org.tlc.whereat.support.LocationHelpers.n17UserLocationStub;
 
 
 @RunWith(RobolectricGradleTestRunner.class)
@@ -50,41 +49,60 @@ public class LocationMappingReceiversTest extends ReceiversTest {
     @Before
     public void setup(){
         ctx = mock(MapActivity.class);
-        lbm = spy(LocalBroadcastManager.getInstance(RuntimeEnvironment.application));
-        ifArg = ArgumentCaptor.forClass(IntentFilter.class);
-        rcv = new LocationMappingReceivers(ctx, lbm);
+        rcv = new LocationMappingReceivers(ctx);
     }
+
     @Test
-    public void register_should_registerBroadcastReceivers(){
+    public void register_should_bindToChannels(){
         rcv.register();
 
-        verify(lbm).registerReceiver(eq(rcv.mMap), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_LOCATION_RECEIVED)).isTrue();
+        assertThat(rcv.mBindings.isBound()).isTrue();
+        assertThat(Channels.locationsReceived().hasListeners()).isTrue();
+        assertThat(Channels.locationRemoved().hasListeners()).isTrue();
+        assertThat(Channels.locationsForgotten().hasListeners()).isTrue();
+    }
 
-        verify(lbm).registerReceiver(eq(rcv.mForget), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(Scheduler.ACTION_LOCATIONS_FORGOTTEN)).isTrue();
+    @Test
+    public void unregister_should_unbindFromAllChannels(){
+        rcv.register();
+        rcv.unregister();
 
+        assertThat(rcv.mBindings.isBound()).isFalse();
+        assertThat(Channels.locationsReceived().hasListeners()).isFalse();
+        assertThat(Channels.locationRemoved().hasListeners()).isFalse();
+        assertThat(Channels.locationsForgotten().hasListeners()).isFalse();
     }
 
     @Test
-    public void unregister_should_unRegisterAllReceivers(){
-        rcv.unregister();
+    public void locationReceiver_should_addTheWholeBatchToMapAtOnce(){
+        rcv.register();
+        rcv.mCtx = spy(rcv.mCtx);
+        List<UserLocation> uls = Arrays.asList(s17UserLocationStub(), n17UserLocationStub());
+
+        Channels.locationsReceived().publish(uls);
+
+        verify((MapActivity)rcv.mCtx, times(1)).mapAll(same(uls));
+        verify((MapActivity)rcv.mCtx, never()).map(any(UserLocation.class));
+    }
+
+    @Test
+    public void removalReceiver_should_removeLocationFromMap(){
+        rcv.register();
+        rcv.mCtx = spy(rcv.mCtx);
+
+        Channels.locationRemoved().publish(S17_UUID);
 
-        verify(lbm).unregisterReceiver(rcv.mMap);
-        verify(lbm).unregisterReceiver(rcv.mForget);
+        verify((MapActivity)rcv.mCtx).unmap(S17_UUID);
     }
 
     @Test
-    public void locationReceiver_should_addReceivedLocationToMap(){
+    public void forgetReceiver_should_forgetOldLocationsOnMap(){
         rcv.register();
         rcv.mCtx = spy(rcv.mCtx);
-        UserLocation loc = s17UserLocationStub();
 
-        lbm.sendBroadcast(new Intent()
-            .setAction(LocPubBroadcasters.ACTION_LOCATION_RECEIVED)
-            .putExtra(LocPubBroadcasters.ACTION_LOCATION_RECEIVED, loc));
+        Channels.locationsForgotten().publish(SampleTimes.S17);
 
-        verify((MapActivity)rcv.mCtx).map(loc);
+        verify((MapActivity)rcv.mCtx).forgetSince(SampleTimes.S17);
     }
 
-}
\ No newline at end of file
+}
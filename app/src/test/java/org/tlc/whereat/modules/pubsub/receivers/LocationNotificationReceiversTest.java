@@ -18,28 +18,31 @@
 package org.tlc.whereat.modules.pubsub.receivers;
 
 import android.app.Activity;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.support.v4.content.LocalBroadcastManager;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricGradleTestRunner;
-import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowToast;
 
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.R;
-import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
-import org.tlc.whereat.modules.schedule.Scheduler;
+import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.Channels.Alert;
+import org.tlc.whereat.modules.ui.ToastSink;
+import org.tlc.whereat.modules.ui.Toaster;
 import org.tlc.whereat.support.SampleTimes;
 import org.tlc.whereat.util.TimeUtils;
 
-import static org.mockito.Mockito.*;
+import java.util.concurrent.TimeUnit;
+
+import rx.schedulers.TestScheduler;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.tlc.whereat.support.ActivityHelpers.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
 
 @RunWith(RobolectricGradleTestRunner.class)
 @Config(constants = BuildConfig.class, sdk = 21)
@@ -47,74 +50,128 @@ import static org.tlc.whereat.support.ActivityHelpers.*;
 public class LocationNotificationReceiversTest extends ReceiversTest {
 
     LocationNotificationReceivers rcv;
+    TestScheduler timer;
 
     @Before
     public void setup(){
         ctx = createActivity(Activity.class);
-        lbm = spy(LocalBroadcastManager.getInstance(RuntimeEnvironment.application));
-        rcv = new LocationNotificationReceivers(ctx, lbm);
-        ifArg = ArgumentCaptor.forClass(IntentFilter.class);
+        rcv = new LocationNotificationReceivers(ctx);
+        timer = new TestScheduler();
+        rcv.mToasts = new ToastSink(msg -> Toaster.shortToast(ctx, msg), timer, ToastSink.WINDOW);
     }
 
     @Test
-    public void register_should_registerBroadcastReceivers(){
+    public void register_should_bindToChannels(){
         rcv.register();
 
-        verify(lbm).registerReceiver(eq(rcv.mPub), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_LOCATION_PUBLISHED)).isTrue();
-
-        verify(lbm).registerReceiver(eq(rcv.mClear), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_LOCATIONS_CLEARED)).isTrue();
-
-        verify(lbm).registerReceiver(eq(rcv.mFail), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(LocPubBroadcasters.ACTION_LOCATION_REQUEST_FAILED)).isTrue();
-
-        verify(lbm).registerReceiver(eq(rcv.mForget), ifArg.capture());
-        assertThat(ifArg.getValue().hasAction(Scheduler.ACTION_LOCATIONS_FORGOTTEN)).isTrue();
+        assertThat(rcv.mBindings.isBound()).isTrue();
+        assertThat(Channels.locationPublished().hasListeners()).isTrue();
+        assertThat(Channels.locationsCleared().hasListeners()).isTrue();
+        assertThat(Channels.locationsForgotten().hasListeners()).isTrue();
+        assertThat(Channels.alerts().hasListeners()).isTrue();
     }
 
     @Test
-    public void unregister_should_unRegisterAllReceivers(){
+    public void unregister_should_unbindFromAllChannels(){
+        rcv.register();
         rcv.unregister();
 
-        verify(lbm).unregisterReceiver(rcv.mPub);
-        verify(lbm).unregisterReceiver(rcv.mClear);
-        verify(lbm).unregisterReceiver(rcv.mFail);
-        verify(lbm).unregisterReceiver(rcv.mForget);
+        assertThat(rcv.mBindings.isBound()).isFalse();
+        assertThat(Channels.locationPublished().hasListeners()).isFalse();
+        assertThat(Channels.locationsCleared().hasListeners()).isFalse();
+        assertThat(Channels.locationsForgotten().hasListeners()).isFalse();
+        assertThat(Channels.alerts().hasListeners()).isFalse();
     }
 
     @Test
     public void pub_should_notifyUserOfLocationPublication(){
         rcv.register();
-        lbm.sendBroadcast(new Intent().setAction(LocPubBroadcasters.ACTION_LOCATION_PUBLISHED));
+        Channels.locationPublished().publish(s17UserLocationStub());
 
         assertThat(lastToast()).isEqualTo(ctx.getString(R.string.loc_shared_toast));
     }
 
+    @Test
+    public void pub_should_coalesceRepeatsWithinAWindow(){
+        rcv.register();
+
+        Channels.locationPublished().publish(s17UserLocationStub());
+        Channels.locationPublished().publish(s17UserLocationStubMoved());
+        Channels.locationPublished().publish(n17UserLocationStub());
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(1);
+
+        timer.advanceTimeBy(ToastSink.WINDOW, TimeUnit.MILLISECONDS);
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(2);
+        assertThat(lastToast()).isEqualTo(ctx.getString(R.string.loc_shared_repeated_toast, 2));
+    }
+
+    @Test
+    public void unregister_should_dropPendingSummaries(){
+        rcv.register();
+        Channels.locationPublished().publish(s17UserLocationStub());
+        Channels.locationPublished().publish(s17UserLocationStub());
+
+        rcv.unregister();
+        timer.advanceTimeBy(ToastSink.WINDOW, TimeUnit.MILLISECONDS);
+
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(1);
+    }
+
     @Test
     public void fail_should_notifyUserOfFailureToRetrieveLocation(){
         rcv.register();
-        lbm.sendBroadcast(new Intent().setAction(LocPubBroadcasters.ACTION_LOCATION_REQUEST_FAILED));
+        Channels.alerts().publish(Alert.LOCATION_REQUEST_FAILED);
 
         assertThat(lastToast()).isEqualTo(ctx.getString(R.string.loc_retrieval_failed_toast));
     }
 
+    @Test
+    public void otherAlerts_should_notBeToasted(){
+        rcv.register();
+        Channels.alerts().publish(Alert.PLAY_SERVICES_DISABLED);
+
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(0);
+    }
+
     @Test
     public void clear_should_notifyUserOfDeletion(){
         rcv.register();
-        lbm.sendBroadcast(new Intent().setAction(LocPubBroadcasters.ACTION_LOCATIONS_CLEARED));
+        Channels.locationsCleared().publish(ApiMessage.of("Database erased."));
 
         assertThat(lastToast()).isEqualTo(ctx.getString(R.string.loc_clear_toast));
     }
 
+    @Test
+    public void clear_should_notifyUserEveryTimeWithoutWaitingForAWindow(){
+        rcv.register();
+        Channels.locationsCleared().publish(ApiMessage.of("Database erased."));
+        Channels.locationsCleared().publish(ApiMessage.of("Database erased."));
+
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(2);
+
+        timer.advanceTimeBy(ToastSink.WINDOW, TimeUnit.MILLISECONDS);
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(2);
+    }
+
     @Test
     public void forget_should_notifyUserOfForgetting(){
         rcv.register();
-        lbm.sendBroadcast(new Intent(Scheduler.ACTION_LOCATIONS_FORGOTTEN)
-                .putExtra(Scheduler.ACTION_LOCATIONS_FORGOTTEN, SampleTimes.S17));
+        Channels.locationsForgotten().publish(SampleTimes.S17);
+
+        assertThat(lastToast())
+            .isEqualTo(ctx.getString(R.string.loc_forget_prefix) + TimeUtils.fullDate(SampleTimes.S17));
+    }
+
+    @Test
+    public void forget_should_notBeHeldBackByCoalescedToasts(){
+        rcv.register();
+        Channels.locationPublished().publish(s17UserLocationStub());
+        Channels.locationPublished().publish(s17UserLocationStub());
+        Channels.locationsForgotten().publish(SampleTimes.S17);
 
+        assertThat(ShadowToast.shownToastCount()).isEqualTo(2);
         assertThat(lastToast())
             .isEqualTo(ctx.getString(R.string.loc_forget_prefix) + TimeUtils.fullDate(SampleTimes.S17));
     }
 
-}
\ No newline at end of file
+}
@@ -17,15 +17,10 @@
 
 package org.tlc.whereat.modules.pubsub.receivers;
 
-import android.content.IntentFilter;
-import android.support.v4.content.LocalBroadcastManager;
-
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricGradleTestRunner;
-import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import org.tlc.whereat.BuildConfig;
@@ -46,8 +41,6 @@ public class OnOffActivityReceiversTest extends ReceiversTest {
     @Before
     public void setup(){
         ctx = ActivityHelpers.createActivity(OnOffActivity.class);
-        lbm = spy(LocalBroadcastManager.getInstance(RuntimeEnvironment.application));
-        ifArg = ArgumentCaptor.forClass(IntentFilter.class);
         rcv = new MainActivityReceivers(ctx);
     }
 
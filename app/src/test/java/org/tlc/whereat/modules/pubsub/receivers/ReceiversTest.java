@@ -18,13 +18,12 @@
 package org.tlc.whereat.modules.pubsub.receivers;
 
 import android.app.Activity;
-import android.content.IntentFilter;
-import android.support.v4.content.LocalBroadcastManager;
 
 import static org.mockito.Mockito.*;
 
-import org.mockito.ArgumentCaptor;
+import org.junit.After;
 import org.robolectric.shadows.ShadowLog;
+import org.tlc.whereat.modules.pubsub.Channels;
 
 import java.util.List;
 
@@ -33,8 +32,11 @@ public class ReceiversTest {
     static { ShadowLog.stream = System.out; }
 
     Activity ctx;
-    LocalBroadcastManager lbm;
-    ArgumentCaptor<IntentFilter> ifArg;
+
+    @After
+    public void resetChannels(){
+        Channels.reset();
+    }
 
     protected void addSpies(List<Receivers> rs){
         for (int i=0; i < rs.size(); i++) rs.set(i, spy(rs.get(i)));
@@ -17,13 +17,10 @@
 
 package org.tlc.whereat.modules.pubsub.receivers;
 
-import android.support.v4.content.LocalBroadcastManager;
-
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricGradleTestRunner;
-import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.activities.SettingsActivity;
@@ -43,7 +40,6 @@ public class SettingsActivityReceiversTest extends ReceiversTest {
     @Before
     public void setup() {
         ctx = createActivity(SettingsActivity.class);
-        lbm = spy(LocalBroadcastManager.getInstance(RuntimeEnvironment.application));
         rcv = new SettingsActivityReceivers(ctx);
     }
 
@@ -17,9 +17,7 @@
 
 package org.tlc.whereat.modules.schedule;
 
-import android.content.Intent;
 import android.os.Handler;
-import android.support.v4.content.LocalBroadcastManager;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,7 +30,8 @@ import org.robolectric.annotation.Config;
 import static org.robolectric.Shadows.shadowOf;
 
 import org.tlc.whereat.BuildConfig;
-import org.tlc.whereat.services.LocationPublisher;
+import org.tlc.whereat.modules.pubsub.Channel;
+import org.tlc.whereat.modules.pubsub.Channels;
 import org.tlc.whereat.support.SampleTimes;
 
 import static org.mockito.Mockito.*;
@@ -48,10 +47,8 @@ public class SchedulerTest {
 
     public static class SchedulingForget {
 
-        LocationPublisher locPub;
-        LocalBroadcastManager lbm;
+        Channel<Long> forgotten;
         Scheduler sked;
-        ArgumentCaptor<Intent> intentArg;
         ArgumentCaptor<Long> longArg;
 
         long millis = 50;
@@ -60,46 +57,47 @@ public class SchedulerTest {
         long offset = 5;
 
         @Before
+        @SuppressWarnings("unchecked")
         public void setup(){
-            locPub = mock(LocationPublisher.class);
-            lbm = mock(LocalBroadcastManager.class);
-            sked = Scheduler.getInstance(locPub, lbm);
+            forgotten = mock(Channel.class);
+            sked = new Scheduler(forgotten);
 
-            intentArg = ArgumentCaptor.forClass(Intent.class);
             longArg = ArgumentCaptor.forClass(Long.class);
         }
 
+        @Test
+        public void getInstance_should_publishOnTheSharedChannel(){
+            assertThat(Scheduler.getInstance().mForgotten).isSameAs(Channels.locationsForgotten());
+        }
+
         @Test
         public void forget_should_forgetRecordsAtSpecifiedInterval() throws InterruptedException {
 
             sked.forget(millis, ttl, now);
             org.robolectric.Robolectric.getForegroundThreadScheduler().advanceBy(2 * millis + offset);
 
-            verify(lbm, times(2)).sendBroadcast(intentArg.capture());
-            assertThat(intentArg.getValue().getAction())
-                .isEqualTo(Scheduler.ACTION_LOCATIONS_FORGOTTEN);
-            assertThat(intentArg.getValue().getExtras().getLong(Scheduler.ACTION_LOCATIONS_FORGOTTEN))
-                .isEqualTo(now - ttl);
+            verify(forgotten, times(2)).publish(longArg.capture());
+            assertThat(longArg.getValue()).isEqualTo(now - ttl);
         }
 
         @Test
         public void forget_should_incrementExpirationThresholdEveryCall(){
 
             sked.forget(millis, ttl);
-            InOrder inOrder = inOrder(sked.mLbm);
+            InOrder inOrder = inOrder(forgotten);
 
             org.robolectric.Robolectric.getForegroundThreadScheduler().advanceBy(millis + offset);
 
-            inOrder.verify(lbm).sendBroadcast(intentArg.capture());
-            long time1 = intentArg.getValue().getExtras().getLong(Scheduler.ACTION_LOCATIONS_FORGOTTEN);
+            inOrder.verify(forgotten).publish(longArg.capture());
+            long time1 = longArg.getValue();
 
             org.robolectric.Robolectric.getForegroundThreadScheduler().advanceBy(millis + offset);
-            inOrder.verify(lbm).sendBroadcast(intentArg.capture());
-            long time2 = intentArg.getValue().getExtras().getLong(Scheduler.ACTION_LOCATIONS_FORGOTTEN);
+            inOrder.verify(forgotten).publish(longArg.capture());
+            long time2 = longArg.getValue();
 
             org.robolectric.Robolectric.getForegroundThreadScheduler().advanceBy(millis + offset);
-            inOrder.verify(lbm).sendBroadcast(intentArg.capture());
-            long time3 = intentArg.getValue().getExtras().getLong(Scheduler.ACTION_LOCATIONS_FORGOTTEN);
+            inOrder.verify(forgotten).publish(longArg.capture());
+            long time3 = longArg.getValue();
 
             assertThat(time1 < time2);
             assertThat(time2 < time3);
@@ -0,0 +1,119 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.modules.ui;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ToastSinkTest {
+
+    static final long WINDOW = 1000L;
+
+    TestScheduler clock;
+    List<String> shown;
+    ToastSink sink;
+
+    @Before
+    public void setup(){
+        clock = new TestScheduler();
+        shown = new ArrayList<>();
+        sink = new ToastSink(shown::add, clock, WINDOW);
+    }
+
+    @Test
+    public void post_should_showANewMessageAtOnce(){
+        sink.post("shared");
+
+        assertThat(shown).containsExactly("shared");
+    }
+
+    @Test
+    public void post_should_mergeRepeatsWithinTheWindowIntoOneToast(){
+        for (int i = 0; i < 7; i++) sink.post("shared", n -> "shared " + n + " more times");
+        assertThat(shown).containsExactly("shared");
+
+        clock.advanceTimeBy(WINDOW, TimeUnit.MILLISECONDS);
+
+        assertThat(shown).containsExactly("shared", "shared 6 more times");
+    }
+
+    @Test
+    public void post_withoutRepeats_should_showNothingWhenTheWindowCloses(){
+        sink.post("shared");
+
+        clock.advanceTimeBy(WINDOW, TimeUnit.MILLISECONDS);
+        sink.post("shared");
+
+        assertThat(shown).containsExactly("shared", "shared");
+        assertThat(sink.mWindows).hasSize(1);
+    }
+
+    @Test
+    public void post_withASteadyStream_should_showOneToastPerWindow(){
+        // one post every 100ms for 3 windows
+        for (int i = 0; i < 30; i++) {
+            sink.post("shared", n -> "shared " + n + " more times");
+            clock.advanceTimeBy(WINDOW / 10, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(shown).containsExactly(
+            "shared", "shared 9 more times", "shared 10 more times", "shared 10 more times");
+    }
+
+    @Test
+    public void post_withoutAMerger_should_repeatTheMessageOncePerWindow(){
+        sink.post("failed");
+        sink.post("failed");
+        sink.post("failed");
+
+        clock.advanceTimeBy(WINDOW, TimeUnit.MILLISECONDS);
+
+        assertThat(shown).containsExactly("failed", "failed");
+    }
+
+    @Test
+    public void post_should_coalesceEachMessageSeparately(){
+        sink.post("shared");
+        sink.post("failed");
+        sink.post("shared");
+
+        assertThat(shown).containsExactly("shared", "failed");
+
+        clock.advanceTimeBy(WINDOW, TimeUnit.MILLISECONDS);
+        assertThat(shown).containsExactly("shared", "failed", "shared");
+    }
+
+    @Test
+    public void clear_should_dropOpenWindowsAndTheirSummaries(){
+        sink.post("shared", n -> "shared " + n + " more times");
+        sink.post("shared", n -> "shared " + n + " more times");
+
+        sink.clear();
+        clock.advanceTimeBy(WINDOW, TimeUnit.MILLISECONDS);
+        sink.post("shared");
+
+        assertThat(shown).containsExactly("shared", "shared");
+    }
+}
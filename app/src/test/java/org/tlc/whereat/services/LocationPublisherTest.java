@@ -28,6 +28,9 @@ import android.content.Intent;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.location.FusedLocationProviderApi;
+import com.google.android.gms.location.LocationRequest;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -40,19 +43,31 @@ import org.robolectric.shadows.ShadowPreferenceManager;
 import org.tlc.whereat.BuildConfig;
 import org.tlc.whereat.R;
 import org.tlc.whereat.model.ApiMessage;
+import org.tlc.whereat.model.LocationDelta;
 import org.tlc.whereat.model.UserLocation;
 import org.tlc.whereat.model.UserLocationTimestamped;
+import org.tlc.whereat.modules.api.WhereatApi;
 import org.tlc.whereat.modules.api.WhereatApiClient;
+import org.tlc.whereat.modules.api.CircuitBreaker;
+import org.tlc.whereat.modules.api.UpdateQueue;
 import org.tlc.whereat.modules.db.LocationDao;
+import org.tlc.whereat.modules.location.AdaptivePollPolicy;
+import org.tlc.whereat.modules.location.PublishFilter;
+import org.tlc.whereat.modules.pubsub.Channels;
+import org.tlc.whereat.modules.pubsub.receivers.BatteryReceivers;
+import org.tlc.whereat.modules.pubsub.receivers.ConnectivityReceivers;
 import org.tlc.whereat.modules.pubsub.broadcasters.LocPubBroadcasters;
 import org.tlc.whereat.modules.schedule.Scheduler;
+import org.tlc.whereat.support.FakeLocationDao;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import retrofit.RestAdapter;
 import rx.Observable;
 import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -123,9 +138,17 @@ public class LocationPublisherTest {
             assertThat(lp.mTtl).isEqualTo(3600000L);
             assertThat(lp.mLocReq).isNotNull();
             assertThat(lp.mLocReq.getInterval()).isEqualTo(30000L);
+            assertThat(lp.mAdaptivePolling).isFalse();
+            assertThat(lp.mPollPolicy.interval()).isEqualTo(30000);
+            assertThat(lp.mPublishFilter.minDistance()).isEqualTo(0);
+            assertThat(lp.mBatteryReceivers).isNotNull();
+            assertThat(lp.mConnectivityReceivers).isNotNull();
 
             assertThat(lp.mWhereatClient).isNotNull();
             assertThat(lp.mDao).isNotNull();
+            assertThat(lp.mQueue).isNotNull();
+            assertThat(lp.mQueue.isDeltaSync()).isFalse();
+            assertThat(lp.mDao.isHistoryEnabled()).isFalse();
             assertThat(lp.mScheduler).isNotNull();
             assertThat(lp.mBroadcast).isNotNull();
             assertThat(lp.mLocProvider).isNotNull();
@@ -145,13 +168,39 @@ public class LocationPublisherTest {
             lp.mPrefs = mock(SharedPreferences.class);
             lp.mScheduler = mock(Scheduler.class);
             doReturn(false).when(lp.mGoogClient).isConnected();
+            lp.mBatteryReceivers = mock(BatteryReceivers.class);
+            lp.mConnectivityReceivers = mock(ConnectivityReceivers.class);
+            doReturn(Observable.just(lp.mDao)).when(lp.mDao).connectAsync();
 
             lp.run();
 
             verify(lp.mGoogClient).connect();
-            verify(lp.mDao).connect();
+            verify(lp.mDao).connectAsync();
             verify(lp.mPrefs).registerOnSharedPreferenceChangeListener(lp.mPrefListener);
+            verify(lp.mBatteryReceivers).register();
+            verify(lp.mConnectivityReceivers).register();
             verify(lp.mScheduler).forget(LocationPublisher.sForgetInterval, lp.mTtl);
+            assertThat(lp.mBindings.isBound()).isTrue();
+            lp.mBindings.unbind();
+        }
+
+        @Test
+        public void run_should_pruneTheDbWhenLocationsAreForgotten() {
+            LocationPublisher lp = spy(LocationPublisher.class);
+            lp.mGoogClient = mock(GoogleApiClient.class);
+            lp.mDao = mock(LocationDao.class);
+            lp.mPrefs = mock(SharedPreferences.class);
+            lp.mScheduler = mock(Scheduler.class);
+            lp.mBatteryReceivers = mock(BatteryReceivers.class);
+            lp.mConnectivityReceivers = mock(ConnectivityReceivers.class);
+            doReturn(Observable.just(lp.mDao)).when(lp.mDao).connectAsync();
+            doReturn(Observable.just(1)).when(lp.mDao).forgetSinceAsync(S17_MILLIS);
+
+            lp.run();
+            Channels.locationsForgotten().publish(S17_MILLIS);
+
+            verify(lp.mDao).forgetSinceAsync(S17_MILLIS);
+            lp.mBindings.unbind();
         }
 
         @Test
@@ -277,6 +326,84 @@ public class LocationPublisherTest {
             lp.mPrefs.edit().putString("pref_loc_ttl_key", value).apply();
         }
 
+        @Test
+        public void onSharedPreferenceChanged_should_toggleHistoryMode(){
+            lp.mDao = new LocationDao(RuntimeEnvironment.application);
+            assertThat(lp.mDao.isHistoryEnabled()).isFalse();
+
+            setHistory(true);
+
+            verify(lp, times(1)).resetHistory();
+            assertThat(lp.mDao.isHistoryEnabled()).isTrue();
+
+            setHistory(false);
+
+            verify(lp, times(2)).resetHistory();
+            assertThat(lp.mDao.isHistoryEnabled()).isFalse();
+        }
+
+        @Test
+        public void onSharedPreferenceChanged_should_toggleAdaptivePolling(){
+            lp.mPollInterval = 30000;
+            lp.mPollPolicy.setBaseInterval(30000);
+            lp.mPollPolicy.setLowBattery(true);
+
+            setAdaptive(true);
+
+            verify(lp, times(1)).resetAdaptivePolling();
+            assertThat(lp.mAdaptivePolling).isTrue();
+            assertThat(lp.mLocReq.getInterval()).isEqualTo(60000L);
+            assertThat(lp.mLocReq.getPriority()).isEqualTo(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+
+            setAdaptive(false);
+
+            verify(lp, times(2)).resetAdaptivePolling();
+            assertThat(lp.mAdaptivePolling).isFalse();
+            assertThat(lp.mLocReq.getInterval()).isEqualTo(30000L);
+            assertThat(lp.mLocReq.getPriority()).isEqualTo(LocationRequest.PRIORITY_HIGH_ACCURACY);
+        }
+
+        @Test
+        public void onSharedPreferenceChanged_should_resetMinDistance(){
+            lp.mPrefs.edit().putString("pref_loc_min_distance_key", "25").apply();
+
+            verify(lp, times(1)).resetMinDistance();
+            assertThat(lp.mPublishFilter.minDistance()).isEqualTo(25);
+
+            lp.mPrefs.edit().putString("pref_loc_min_distance_key", "0").apply();
+
+            verify(lp, times(2)).resetMinDistance();
+            assertThat(lp.mPublishFilter.isEnabled()).isFalse();
+        }
+
+        @Test
+        public void onSharedPreferenceChanged_should_toggleDeltaSync(){
+            lp.mDeltaSub = delta -> {};
+            lp.mQueue = new UpdateQueue(mock(LocationDao.class), mock(WhereatApiClient.class), locs -> {});
+
+            setDeltaSync(true);
+
+            verify(lp, times(1)).resetDeltaSync();
+            assertThat(lp.mQueue.isDeltaSync()).isTrue();
+
+            setDeltaSync(false);
+
+            verify(lp, times(2)).resetDeltaSync();
+            assertThat(lp.mQueue.isDeltaSync()).isFalse();
+        }
+
+        protected void setAdaptive(boolean value){
+            lp.mPrefs.edit().putBoolean("pref_loc_adaptive_key", value).apply();
+        }
+
+        protected void setHistory(boolean value){
+            lp.mPrefs.edit().putBoolean("pref_loc_history_key", value).apply();
+        }
+
+        protected void setDeltaSync(boolean value){
+            lp.mPrefs.edit().putBoolean("pref_loc_delta_sync_key", value).apply();
+        }
+
     }
 
     @RunWith(RobolectricGradleTestRunner.class)
@@ -350,6 +477,17 @@ public class LocationPublisherTest {
             verify(lp).relay(s17raw);
         }
 
+        @Test
+        public void ping_resetsPublishFilter() {
+            doReturn(s17raw).when(lp.mLocProvider).getLastLocation(lp.mGoogClient);
+            doNothing().when(lp).relay(s17raw);
+            lp.mPublishFilter = mock(PublishFilter.class);
+            lp.ping();
+
+            verify(lp.mPublishFilter).reset();
+            verify(lp).relay(s17raw);
+        }
+
         @Test
         public void poll_turnsOnPolling() {
             lp.mLocProvider = mock(FusedLocationProviderApi.class);
@@ -377,15 +515,35 @@ public class LocationPublisherTest {
             lp.mClearSub = sub::onNext;
             lp.mBroadcast = mock(LocPubBroadcasters.class);
             lp.mDao = mock(LocationDao.class);
-            doReturn(s17).when(lp.mDao).get(lp.mUserId);
+            lp.mQueue = mock(UpdateQueue.class);
+            doReturn(Observable.just(s17)).when(lp.mDao).getAsync(lp.mUserId);
+            doReturn(Observable.just(2)).when(lp.mDao).clearAsync();
 
             lp.clear();
 
             verify(lp.mWhereatClient).remove(s17);
-            verify(lp.mDao).clear();
+            verify(lp.mDao).clearAsync();
+            verify(lp.mQueue).resetSync();
             sub.assertNoErrors();
             sub.assertReceivedOnNext(Arrays.asList(msg));
         }
+
+        @Test
+        public void clear_whenServerFails_stillClearsDBWithoutThrowing() {
+            lp.mWhereatClient = mock(WhereatApiClient.class);
+            doReturn(Observable.error(new CircuitBreaker.OpenException())).when(lp.mWhereatClient).remove(any(UserLocation.class));
+            TestSubscriber<ApiMessage> sub = new TestSubscriber<>();
+            lp.mClearSub = sub::onNext;
+            lp.mDao = mock(LocationDao.class);
+            lp.mQueue = mock(UpdateQueue.class);
+            doReturn(Observable.just(s17)).when(lp.mDao).getAsync(lp.mUserId);
+            doReturn(Observable.just(2)).when(lp.mDao).clearAsync();
+
+            lp.clear();
+
+            verify(lp.mDao).clearAsync();
+            sub.assertReceivedOnNext(Arrays.asList());
+        }
     }
 
     @RunWith(RobolectricGradleTestRunner.class)
@@ -406,38 +564,179 @@ public class LocationPublisherTest {
             lp.mUserId = S17_UUID;
             lp.mDao = mock(LocationDao.class);
             lp.mBroadcast = mock(LocPubBroadcasters.class);
-            doReturn(1L).when(lp.mDao).save(s17ul);
+            doReturn(Observable.just(1L)).when(lp.mDao).saveAsync(s17ul);
             doNothing().when(lp).update(s17ul);
 
             lp.relay(s17raw);
 
-            verify(lp.mBroadcast).pub();
+            verify(lp.mBroadcast).pub(any(UserLocation.class));
             verify(lp).update(s17ul);
-            verify(lp.mDao).save(s17ul);
+            verify(lp.mDao).saveAsync(s17ul);
             assertThat(lp.mLastPing).isEqualTo(s17ul.getTime());
         }
 
         @Test
-        public void update_relaysAnObservableApiResponseToASubscriber() {
-            lp.mWhereatClient = mock(WhereatApiClient.class);
-            doReturn(Observable.just(locs)).when(lp.mWhereatClient).update(any(UserLocationTimestamped.class));
-            TestSubscriber<UserLocation> sub = new TestSubscriber<>();
-            lp.mLocSub = sub::onNext;
+        public void relay_whenAdaptivePollingAndPolicyChanges_rebuildsLocationRequest() {
+            lp.mUserId = S17_UUID;
+            lp.mDao = mock(LocationDao.class);
+            lp.mBroadcast = mock(LocPubBroadcasters.class);
+            lp.mPollPolicy = mock(AdaptivePollPolicy.class);
+            doReturn(Observable.just(1L)).when(lp.mDao).saveAsync(s17ul);
+            doNothing().when(lp).update(s17ul);
+            doNothing().when(lp).resetLocReq();
+            doReturn(true).when(lp.mPollPolicy).onFix(eq(s17ul), anyFloat());
+
+            lp.mAdaptivePolling = false;
+            lp.relay(s17raw);
+
+            verify(lp.mPollPolicy, never()).onFix(any(UserLocation.class), anyFloat());
+            verify(lp, never()).resetLocReq();
+
+            lp.mAdaptivePolling = true;
+            lp.relay(s17raw);
+
+            verify(lp.mPollPolicy).onFix(eq(s17ul), anyFloat());
+            verify(lp).resetLocReq();
+        }
+
+        @Test
+        public void relay_whenFixIsSuppressed_doesNothing() {
+            lp.mLastPing = -1L;
+            lp.mUserId = S17_UUID;
+            lp.mDao = mock(LocationDao.class);
+            lp.mBroadcast = mock(LocPubBroadcasters.class);
+            lp.mPublishFilter = mock(PublishFilter.class);
+            doReturn(false).when(lp.mPublishFilter).accept(eq(s17ul), anyFloat());
+
+            lp.relay(s17raw);
+
+            verify(lp.mBroadcast, never()).pub(any(UserLocation.class));
+            verify(lp, never()).update(any(UserLocation.class));
+            verify(lp.mDao, never()).saveAsync(any(UserLocation.class));
+            assertThat(lp.mLastPing).isEqualTo(-1L);
+        }
+
+        @Test
+        public void relay_whenUserIsStill_onlyPostsKeepAlives() throws Exception {
+            MockWebServer server = new MockWebServer();
+            server.start();
+            WhereatApi api = new RestAdapter.Builder()
+                .setEndpoint(server.getUrl("/").toString())
+                .setExecutors(Runnable::run, Runnable::run)
+                .build()
+                .create(WhereatApi.class);
+            FakeLocationDao dao = new FakeLocationDao(RuntimeEnvironment.application)
+                .setScheduler(Schedulers.immediate());
+            dao.connect();
+
+            lp.mUserId = S17_UUID;
+            lp.mDao = dao;
+            lp.mBroadcast = mock(LocPubBroadcasters.class);
+            lp.mPublishFilter = new PublishFilter(25);
+            lp.mQueue = new UpdateQueue(dao, api, lp::record);
+            for (int i = 0; i < 2; i++) server.enqueue(new MockResponse().setResponseCode(200).setBody("[]"));
+
+            for (int i = 0; i < 5; i++) lp.relay(s17raw); // hasn't moved
+            assertThat(server.getRequestCount()).isEqualTo(1);
+
+            Location later = s17AndroidLocationMock();
+            when(later.getTime()).thenReturn(S17_MILLIS + PublishFilter.KEEP_ALIVE);
+            lp.relay(later);
+            assertThat(server.getRequestCount()).isEqualTo(2);
+
+            dao.clear();
+            dao.disconnect();
+            server.shutdown();
+        }
+
+        @Test
+        public void onBatteryLow_whenAdaptivePolling_rebuildsLocationRequest() {
+            doNothing().when(lp).resetLocReq();
+
+            lp.mAdaptivePolling = false;
+            lp.onBatteryLow(true);
+            verify(lp, never()).resetLocReq();
+
+            lp.mAdaptivePolling = true;
+            lp.onBatteryLow(false);
+            verify(lp, times(1)).resetLocReq();
+            lp.onBatteryLow(false);
+            verify(lp, times(1)).resetLocReq();
+        }
+
+        @Test
+        public void update_queuesLocationTimestampedWithLastPing() {
+            lp.mQueue = mock(UpdateQueue.class);
+            lp.mLastPing = S17_MILLIS;
 
             lp.update(s17);
 
-            sub.assertNoErrors();
-            sub.assertReceivedOnNext(locs);
+            verify(lp.mQueue).offer(new UserLocationTimestamped(S17_MILLIS, s17));
+        }
+
+        @Test
+        public void onConnectivityChanged_whenConnected_drainsQueue() {
+            lp.mQueue = mock(UpdateQueue.class);
+
+            lp.onConnectivityChanged(false);
+            verify(lp.mQueue, never()).drain();
+
+            lp.onConnectivityChanged(true);
+            verify(lp.mQueue).drain();
+        }
+
+        @Test
+        public void reconcile_onlyTouchesChangedAndRemovedLocations(){
+            lp.mDao = mock(LocationDao.class);
+            lp.mBroadcast = mock(LocPubBroadcasters.class);
+            doReturn(Observable.just(2)).when(lp.mDao).saveAllAsync(anyListOf(UserLocation.class));
+            doReturn(Observable.just(1)).when(lp.mDao).deleteAllAsync(anyListOf(String.class));
+            LocationDelta delta = LocationDelta.of("2", Arrays.asList(s17), Arrays.asList(n17), Arrays.asList("gone"));
+
+            lp.reconcile(delta);
+
+            verify(lp.mBroadcast).mapAll(Arrays.asList(s17, n17));
+            verify(lp.mBroadcast).unmap("gone");
+            verify(lp.mDao).saveAllAsync(Arrays.asList(s17, n17));
+            verify(lp.mDao).deleteAllAsync(Arrays.asList("gone"));
+        }
+
+        @Test
+        public void reconcile_whenDbWriteFails_doesNotThrow(){
+            lp.mDao = mock(LocationDao.class);
+            lp.mBroadcast = mock(LocPubBroadcasters.class);
+            doReturn(Observable.error(new IllegalStateException("database is locked")))
+                .when(lp.mDao).saveAllAsync(anyListOf(UserLocation.class));
+            doReturn(Observable.error(new IllegalStateException("database is locked")))
+                .when(lp.mDao).deleteAllAsync(anyListOf(String.class));
+
+            lp.reconcile(LocationDelta.of("2", Arrays.asList(s17), Arrays.asList(n17), Arrays.asList("gone")));
+
+            verify(lp.mBroadcast).mapAll(Arrays.asList(s17, n17));
+            verify(lp.mBroadcast).unmap("gone");
+        }
+
+        @Test
+        public void reconcile_whenNothingChanged_touchesNothing(){
+            lp.mDao = mock(LocationDao.class);
+            lp.mBroadcast = mock(LocPubBroadcasters.class);
+
+            lp.reconcile(LocationDelta.fromJson("{\"token\":\"3\"}"));
+
+            verifyZeroInteractions(lp.mDao, lp.mBroadcast);
         }
 
         @Test
-        public void record_broadcastsAndSavesLocation(){
+        public void record_broadcastsAndSavesLocationsInOneBatch(){
             lp.mDao = mock(LocationDao.class);
             lp.mBroadcast = mock(LocPubBroadcasters.class);
-            lp.record(s17);
+            doReturn(Observable.just(2)).when(lp.mDao).saveAllAsync(locs);
+            lp.record(locs);
 
-            verify(lp.mBroadcast).map(s17);
-            verify(lp.mDao).save(s17);
+            verify(lp.mBroadcast).mapAll(locs);
+            verify(lp.mBroadcast, never()).map(any(UserLocation.class));
+            verify(lp.mDao, times(1)).saveAllAsync(locs);
+            verify(lp.mDao, never()).saveAsync(any(UserLocation.class));
         }
     }
 
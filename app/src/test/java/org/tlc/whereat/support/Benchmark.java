@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.support;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Bare-bones microbenchmark harness for plain JVM tests: warms an operation up, then reports its
+ * mean time and (where the JVM can tell us) bytes allocated per call. Benchmarks are slow and
+ * machine-dependent, so they only run when the BENCHMARK environment variable is set, eg:
+ *
+ *   BENCHMARK=1 ./gradlew testDebug
+ */
+
+public class Benchmark {
+
+    public static final boolean ENABLED = System.getenv("BENCHMARK") != null;
+    public static final int WARMUP = 10000;
+    public static final int ITERATIONS = 50000;
+
+    public static volatile Object sink; // keeps results alive, so the JIT can't skip the work
+
+    public interface Op { Object run() throws Exception; }
+
+    public static class Result {
+        public final String name;
+        public final double nanosPerOp;
+        public final double bytesPerOp; // -1 if allocations can't be measured
+
+        Result(String name, double nanosPerOp, double bytesPerOp){
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %10.0f ns/op %10.0f B/op", name, nanosPerOp, bytesPerOp);
+        }
+    }
+
+    public static Result run(String name, Op op) throws Exception {
+        return run(name, WARMUP, ITERATIONS, op);
+    }
+
+    public static Result run(String name, int warmup, int iterations, Op op) throws Exception {
+        for (int i = 0; i < warmup; i++) sink = op.run();
+
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink = op.run();
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - bytes;
+
+        Result r = new Result(name, nanos / (double) iterations, bytes < 0 ? -1 : allocated / (double) iterations);
+        System.out.println(r);
+        return r;
+    }
+
+    // HELPERS
+
+    protected static long allocatedBytes(){
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.support;
+
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+import org.tlc.whereat.model.LocationDelta;
+import org.tlc.whereat.model.SyncRequest;
+import org.tlc.whereat.model.UserLocation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stand-in for a server implementing the delta sync protocol: every write bumps a
+ * version counter, and the sync token is the version a client last saw, so a response holds
+ * exactly the peers added, moved or removed since then. Any other path is a 404.
+ */
+
+public class DeltaSyncDispatcher extends Dispatcher {
+
+    protected long mVersion = 0L;
+    protected Map<String, UserLocation> mLocations = new HashMap<>();
+    protected Map<String, Long> mCreatedAt = new HashMap<>();
+    protected Map<String, Long> mMovedAt = new HashMap<>();
+    protected Map<String, Long> mRemovedAt = new HashMap<>();
+    protected List<SyncRequest> mRequests = new ArrayList<>();
+
+    // SIMULATED PEERS
+
+    public synchronized DeltaSyncDispatcher put(UserLocation ul){
+        String id = ul.getId();
+        mVersion++;
+        if (!mLocations.containsKey(id)) mCreatedAt.put(id, mVersion);
+        mLocations.put(id, ul);
+        mMovedAt.put(id, mVersion);
+        mRemovedAt.remove(id);
+        return this;
+    }
+
+    public synchronized DeltaSyncDispatcher remove(String id){
+        if (mLocations.remove(id) == null) return this;
+        mVersion++;
+        mRemovedAt.put(id, mVersion);
+        return this;
+    }
+
+    public synchronized List<SyncRequest> requests(){
+        return new ArrayList<>(mRequests);
+    }
+
+    // DISPATCHER
+
+    @Override
+    public synchronized MockResponse dispatch(RecordedRequest req) {
+        if (!"/locations/sync".equals(req.getPath())) return new MockResponse().setResponseCode(404);
+
+        SyncRequest sr = SyncRequest.fromJson(req.getBody().readUtf8());
+        mRequests.add(sr);
+        put(sr.getUserLocation());
+
+        return new MockResponse().setResponseCode(200).setBody(deltaSince(sr.getToken()).toJson());
+    }
+
+    // HELPERS
+
+    protected LocationDelta deltaSince(String token){
+        long since = token == null ? 0L : Long.parseLong(token);
+        List<UserLocation> added = new ArrayList<>();
+        List<UserLocation> moved = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        for (Map.Entry<String, UserLocation> e : mLocations.entrySet()) {
+            if (mCreatedAt.get(e.getKey()) > since) added.add(e.getValue());
+            else if (mMovedAt.get(e.getKey()) > since) moved.add(e.getValue());
+        }
+        for (Map.Entry<String, Long> e : mRemovedAt.entrySet()) {
+            if (e.getValue() > since && mCreatedAt.get(e.getKey()) <= since) removed.add(e.getKey());
+        }
+        return LocationDelta.of(Long.toString(mVersion), added, moved, removed);
+    }
+}
@@ -22,13 +22,17 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 
 import org.tlc.whereat.modules.db.Dao;
+import org.tlc.whereat.modules.db.LocationCache;
 import org.tlc.whereat.modules.db.LocationDao;
 
+import rx.Scheduler;
+
 public class FakeLocationDao extends LocationDao {
 
     public FakeLocationDao(Context ctx){
         super(ctx);
         mDao = FakeDao.getInstance(ctx);
+        mCache = new LocationCache(LocationCache.DEFAULT_CAPACITY);
     }
 
     public FakeLocationDao setDao(Dao dao){
@@ -36,6 +40,20 @@ public class FakeLocationDao extends LocationDao {
         return this;
     }
 
+    public FakeLocationDao setCache(LocationCache cache){
+        mCache = cache;
+        return this;
+    }
+
+    public LocationCache getCache(){
+        return mCache;
+    }
+
+    public FakeLocationDao setScheduler(Scheduler scheduler){
+        mScheduler = scheduler;
+        return this;
+    }
+
     public FakeLocationDao setDb(SQLiteDatabase db){
         mDb = db;
         return this;
@@ -23,6 +23,10 @@ import android.location.Location;
 import org.tlc.whereat.model.UserLocationTimestamped;
 import org.tlc.whereat.model.UserLocation;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -119,6 +123,13 @@ public class LocationHelpers {
         return UserLocation.create(N17_UUID, N17_MOVED_LAT, N17_LON, N17_MILLIS + 1L);
     }
 
+    public static List<UserLocation> peerLocationsStub(int n){
+        List<UserLocation> peers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            peers.add(UserLocation.create(UUID.randomUUID().toString(), S17_LAT + i * 1e-5, S17_LON - i * 1e-5, S17_MILLIS + i));
+        return peers;
+    }
+
     public static UserLocationTimestamped s17LocationTimestampedStub(){
         return new UserLocationTimestamped(S17_MILLIS, s17UserLocationStubLater());
     }
@@ -0,0 +1,48 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.tlc.whereat.support.LocationHelpers.*;
+
+public class GeoUtilsTest {
+
+    @Test
+    public void distance_betweenAPointAndItself_should_beZero(){
+        assertThat(GeoUtils.distance(s17UserLocationStub(), s17UserLocationStub())).isEqualTo(0.0);
+    }
+
+    @Test
+    public void distance_alongAMeridian_should_beAbout111KmPerDegree(){
+        assertThat(GeoUtils.distance(40.0, -74.0, 41.0, -74.0)).isCloseTo(111195.0, within(1.0));
+    }
+
+    @Test
+    public void distance_should_matchAKnownCityPair(){
+        // NYC (Battery Park) -> Washington, DC (Capitol): ~325.5 km
+        assertThat(GeoUtils.distance(40.7033, -74.0170, 38.8899, -77.0091)).isCloseTo(325500.0, within(1000.0));
+    }
+
+    @Test
+    public void distance_should_beSymmetric(){
+        assertThat(GeoUtils.distance(s17UserLocationStub(), n17UserLocationStub()))
+            .isEqualTo(GeoUtils.distance(n17UserLocationStub(), s17UserLocationStub()));
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+import org.tlc.whereat.support.Benchmark;
+import org.whispersystems.curve25519.JCESecureRandomProvider;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Per-fix cost of making a location id: the old path (a new SecureRandom provider and 32 bytes,
+ * decoded with the platform charset) against the shared IdGenerator
+ */
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class IdGeneratorBenchmark {
+
+    @Before
+    public void setup(){
+        assumeTrue(Benchmark.ENABLED);
+    }
+
+    @Test
+    public void next_should_beCheaperThanANewProviderPerId() throws Exception {
+        Benchmark.Result perCall = Benchmark.run("id (new provider per id)", () -> {
+            byte[] idBytes = new byte[32];
+            new JCESecureRandomProvider().nextBytes(idBytes);
+            return new String(idBytes);
+        });
+        Benchmark.Result shared = Benchmark.run("id (shared IdGenerator)", () -> IdGenerator.getInstance().next());
+
+        assertThat(shared.nanosPerOp).isLessThan(perCall.nanosPerOp);
+        if (shared.bytesPerOp >= 0) assertThat(shared.bytesPerOp).isLessThan(perCall.bytesPerOp);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+package org.tlc.whereat.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.tlc.whereat.BuildConfig;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+// android.util.Base64 is only implemented on the device (or under Robolectric)
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+
+public class IdGeneratorTest {
+
+    @Test
+    public void getInstance_should_returnASharedGenerator(){
+        assertThat(IdGenerator.getInstance()).isSameAs(IdGenerator.getInstance());
+    }
+
+    @Test
+    public void next_should_produceCompactUrlSafeIds(){
+        String id = IdGenerator.getInstance().next();
+
+        assertThat(id).hasSize(IdGenerator.ID_LENGTH);
+        assertThat(id).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    public void next_should_produceUniqueIds(){
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10000; i++) ids.add(IdGenerator.getInstance().next());
+
+        assertThat(ids).hasSize(10000);
+    }
+
+    @Test
+    public void next_should_beDeterministicForASeededRandom(){
+        assertThat(new IdGenerator(new Random(17)).next()).isEqualTo(new IdGenerator(new Random(17)).next());
+    }
+
+    @Test
+    public void encode_should_matchUnpaddedUrlSafeBase64() throws Exception {
+        // RFC 4648 test vectors, minus padding
+        assertThat(IdGenerator.encode("".getBytes("US-ASCII"))).isEqualTo("");
+        assertThat(IdGenerator.encode("f".getBytes("US-ASCII"))).isEqualTo("Zg");
+        assertThat(IdGenerator.encode("fo".getBytes("US-ASCII"))).isEqualTo("Zm8");
+        assertThat(IdGenerator.encode("foo".getBytes("US-ASCII"))).isEqualTo("Zm9v");
+        assertThat(IdGenerator.encode("foob".getBytes("US-ASCII"))).isEqualTo("Zm9vYg");
+        assertThat(IdGenerator.encode("fooba".getBytes("US-ASCII"))).isEqualTo("Zm9vYmE");
+        assertThat(IdGenerator.encode("foobar".getBytes("US-ASCII"))).isEqualTo("Zm9vYmFy");
+        // "+/" in standard base64
+        assertThat(IdGenerator.encode(new byte[]{ (byte) 0xfb, (byte) 0xff })).isEqualTo("-_8");
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ * Copyright (c) 2015-present, Total Location Test Paragraph.
+ * All rights reserved.
+ *
+ * This file is part of Where@. Where@ is free software:
+ * you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License (GPL), either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Where@ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. For more details,
+ * see the full license at <http://www.gnu.org/licenses/gpl-3.0.en.html>
+ *
+ */
+
+package org.tlc.whereat.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TimeIndexTest {
+
+    TimeIndex<String> index;
+
+    @Before
+    public void setup(){
+        index = new TimeIndex<>();
+    }
+
+    @Test
+    public void expire_whenEmpty_should_returnNothing(){
+        assertThat(index.expire(100L)).isEmpty();
+    }
+
+    @Test
+    public void expire_should_returnOnlyKeysSeenBeforeTheThresholdOldestFirst(){
+        index.touch("c", 30L);
+        index.touch("a", 10L);
+        index.touch("b", 20L);
+
+        assertThat(index.expire(30L)).containsExactly("a", "b");
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.contains("c")).isTrue();
+    }
+
+    @Test
+    public void expire_should_removeExpiredKeys(){
+        index.touch("a", 10L);
+
+        index.expire(11L);
+
+        assertThat(index.contains("a")).isFalse();
+        assertThat(index.expire(11L)).isEmpty();
+        assertThat(index.mByTime).isEmpty();
+    }
+
+    @Test
+    public void touch_should_moveAKeyToItsNewTime(){
+        index.touch("a", 10L);
+        index.touch("a", 40L);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.expire(30L)).isEmpty();
+        assertThat(index.expire(41L)).containsExactly("a");
+        assertThat(index.mByTime).isEmpty();
+    }
+
+    @Test
+    public void touch_should_allowManyKeysAtTheSameTime(){
+        index.touch("a", 10L);
+        index.touch("b", 10L);
+
+        assertThat(index.expire(11L)).containsExactly("a", "b");
+    }
+
+    @Test
+    public void remove_should_dropAKeyAndItsEmptyBucket(){
+        index.touch("a", 10L);
+        index.touch("b", 20L);
+
+        index.remove("a");
+        index.remove("nope");
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.mByTime).doesNotContainKey(10L);
+        assertThat(index.expire(100L)).containsExactly("b");
+    }
+
+    @Test
+    public void clear_should_emptyTheIndex(){
+        index.touch("a", 10L);
+        index.clear();
+
+        assertThat(index.size()).isEqualTo(0);
+        assertThat(index.expire(100L)).isEmpty();
+    }
+}